@@ -0,0 +1,108 @@
+package machine.benchmark;
+
+import machine.availability.AvailabilityCache;
+import machine.cashregister.CashRegister;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.SupplyCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares showing the menu from an {@link AvailabilityCache} with working out the number
+ * of cups of every drink before each purchase. The purchase benchmarks sell one latte after
+ * checking the menu, so they include what keeping the cache current costs the sell path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvailabilityBenchmark {
+
+    private static final CoffeeOptions[] DRINKS = {
+            CoffeeOptions.ESPRESSO, CoffeeOptions.LATTE, CoffeeOptions.CAPPUCCINO
+    };
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Recipe latte = registry.get(CoffeeOptions.LATTE);
+
+    private SupplyCalculator recomputed;
+    private SupplyCalculator cached;
+    private AvailabilityCache cache;
+    private CashRegister cashRegister;
+
+    @Setup
+    public void setUp() {
+        recomputed = new SupplyCalculator(400_000, 540_000, 120_000, 9_000);
+        cached = new SupplyCalculator(400_000, 540_000, 120_000, 9_000);
+        cache = new AvailabilityCache(cached, registry);
+        cached.addListener(cache);
+        cashRegister = new CashRegister(550);
+    }
+
+    @Benchmark
+    public int menuRecomputed() {
+        return recomputeMenu();
+    }
+
+    @Benchmark
+    public int menuCached() {
+        return cachedMenu();
+    }
+
+    @Benchmark
+    public int purchaseRecomputed() {
+        if (recomputed.getDisposableCupsSupply() == 0) {
+            recomputed.fillSupplies(400_000, 540_000, 120_000, 9_000);
+        }
+        int available = recomputeMenu();
+        recomputed.trySellCoffee(latte, cashRegister);
+        return available;
+    }
+
+    @Benchmark
+    public int purchaseCached() {
+        if (cached.getDisposableCupsSupply() == 0) {
+            cached.fillSupplies(400_000, 540_000, 120_000, 9_000);
+        }
+        int available = cachedMenu();
+        cached.trySellCoffee(latte, cashRegister);
+        return available;
+    }
+
+    /**
+     * Counts the drinks that can be made, the way a menu had to before the cache.
+     */
+    private int recomputeMenu() {
+        int available = 0;
+        for (CoffeeOptions drink : DRINKS) {
+            if (recomputed.calculateSuppliesBeforeSell(registry.get(drink)) > 0) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private int cachedMenu() {
+        int available = 0;
+        for (CoffeeOptions drink : DRINKS) {
+            if (cache.isAvailable(drink)) {
+                available++;
+            }
+        }
+        return available;
+    }
+}
@@ -0,0 +1,87 @@
+package machine.benchmark;
+
+import machine.cashregister.CashRegister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for charging and emptying the {@link CashRegister}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CashRegisterBenchmark {
+
+    private CashRegister cashRegister;
+    private PrintStream console;
+
+    /**
+     * One register shared by every benchmark thread.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedRegister {
+        final CashRegister cashRegister = new CashRegister(0);
+    }
+
+    /**
+     * One striped register shared by every benchmark thread.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedStripedRegister {
+        final CashRegister cashRegister = CashRegister.concurrent(0);
+    }
+
+    @Setup
+    public void setUp() {
+        cashRegister = new CashRegister(550);
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public long charge() {
+        cashRegister.charge(7);
+        return cashRegister.getMoney();
+    }
+
+    @Benchmark
+    public long chargeAndTake() {
+        cashRegister.charge(7);
+        cashRegister.take();
+        return cashRegister.getMoney();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void chargeContended(SharedRegister shared) {
+        shared.cashRegister.charge(7);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void chargeStripedContended(SharedStripedRegister shared) {
+        shared.cashRegister.charge(7);
+    }
+}
@@ -0,0 +1,119 @@
+package machine.benchmark;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.CoffeeFactory;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.SupplyCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many order terminals selling from one concurrent inventory.
+ * Run with {@code -t 1}, {@code -t 2}, {@code -t 4}, ... to see how throughput scales
+ * with the number of terminals. After every iteration the benchmark checks that no supply
+ * went negative, that water and cups were always debited together, i.e. no terminal ever
+ * oversold the machine, and that every cup sold was charged exactly once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ContendedSupplyBenchmark {
+
+    private static final int BATCH = 500;
+
+    private final Coffee latte = CoffeeFactory.createCoffee(CoffeeOptions.LATTE);
+    private final LongAdder filledWater = new LongAdder();
+    private final LongAdder filledCups = new LongAdder();
+    private final Queue<CashRegister> cashRegisters = new ConcurrentLinkedQueue<>();
+
+    private SupplyCalculator supplyCalculator;
+    private PrintStream console;
+
+    /**
+     * Each terminal charges its own register, so only the shared inventory is contended.
+     */
+    @State(Scope.Thread)
+    public static class Terminal {
+        final CashRegister cashRegister = new CashRegister(0);
+
+        @Setup
+        public void register(ContendedSupplyBenchmark benchmark) {
+            benchmark.cashRegisters.add(cashRegister);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        supplyCalculator = SupplyCalculator.concurrent(0, 0, 0, 0);
+        filledWater.reset();
+        filledCups.reset();
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkNoOversell() {
+        System.setOut(console);
+        if (supplyCalculator.getWaterSupply() < 0 || supplyCalculator.getMilkSupply() < 0
+                || supplyCalculator.getGramsCoffeeSupply() < 0 || supplyCalculator.getDisposableCupsSupply() < 0) {
+            throw new IllegalStateException("Inventory went negative");
+        }
+        long waterUsed = filledWater.sum() - supplyCalculator.getWaterSupply();
+        long cupsUsed = filledCups.sum() - supplyCalculator.getDisposableCupsSupply();
+        if (waterUsed != cupsUsed * latte.getWaterNeeded()) {
+            throw new IllegalStateException("Inventory oversold: " + cupsUsed + " cups used "
+                    + waterUsed + " ml of water");
+        }
+        long charged = 0;
+        for (CashRegister cashRegister : cashRegisters) {
+            // every terminal is idle between iterations, so its register can be emptied for the next one
+            charged += cashRegister.drain();
+        }
+        if (charged != cupsUsed * latte.getPrice()) {
+            throw new IllegalStateException("Charges lost: " + cupsUsed + " cups sold for " + charged);
+        }
+    }
+
+    @Benchmark
+    public void sellCoffee(Terminal terminal) {
+        if (supplyCalculator.getDisposableCupsSupply() == 0) {
+            refill();
+        }
+        supplyCalculator.sellCoffee(latte, terminal.cashRegister);
+    }
+
+    private void refill() {
+        try {
+            supplyCalculator.fillSupplies(BATCH * latte.getWaterNeeded(), BATCH * latte.getMilkNeeded(),
+                    BATCH * latte.getCoffeeBeansNeeded(), BATCH * latte.getDisposableCupsNeeded());
+        } catch (IllegalArgumentException full) {
+            // another terminal refilled first and the inventory is at capacity
+            return;
+        }
+        filledWater.add((long) BATCH * latte.getWaterNeeded());
+        filledCups.add((long) BATCH * latte.getDisposableCupsNeeded());
+    }
+}
@@ -0,0 +1,148 @@
+package machine.benchmark;
+
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.fleet.CapacityHistogram;
+import machine.fleet.FleetStateStore;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.Capacity;
+import machine.supplycalculator.Inventory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the column-wise bulk operations of {@link FleetStateStore} with driving every machine
+ * through its row view one at a time. Scores are per machine.
+ * <p>
+ * The capacity histogram is also compared with a plain division loop over the same columns,
+ * which isolates what the reciprocal multiply saves over {@code supply / needed}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetStateBenchmark {
+
+    private static final int MACHINES = 1 << 20;
+
+    private final Recipe latte = RecipeRegistry.withDefaults().get(CoffeeOptions.LATTE);
+    private final boolean[] canMake = new boolean[MACHINES];
+
+    private FleetStateStore store;
+
+    @Setup
+    public void setUp() {
+        store = new FleetStateStore(MACHINES, 0, 0, 0, 0, 0);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int machine = 0; machine < MACHINES; machine++) {
+            store.inventory(machine).add(random.nextInt(2_000), random.nextInt(1_000),
+                    random.nextInt(200), random.nextInt(12));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public int fillAll() {
+        // one unit per call cannot overflow the columns within the measured time
+        store.fillAll(1, 1, 1, 1);
+        return store.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public int fillPerMachine() {
+        for (int machine = 0; machine < MACHINES; machine++) {
+            store.inventory(machine).add(1, 1, 1, 1);
+        }
+        return store.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public int canMake() {
+        return store.canMake(latte, canMake);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public int canMakePerMachine() {
+        int count = 0;
+        for (int machine = 0; machine < MACHINES; machine++) {
+            Inventory inventory = store.inventory(machine);
+            if (inventory.getWater() >= latte.getWaterNeeded() && inventory.getMilk() >= latte.getMilkNeeded()
+                    && inventory.getCoffeeBeans() >= latte.getCoffeeBeansNeeded()
+                    && inventory.getDisposableCups() >= latte.getDisposableCupsNeeded()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public long capacityHistogram() {
+        return store.capacityHistogram("latte", latte).getMachinesOutOfStock();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public long capacityHistogramPerMachine() {
+        long[] buckets = new long[CapacityHistogram.BUCKETS];
+        for (int machine = 0; machine < MACHINES; machine++) {
+            Inventory inventory = store.inventory(machine);
+            long capacity = Capacity.of(inventory.getWater(), inventory.getMilk(), inventory.getCoffeeBeans(),
+                    inventory.getDisposableCups(), latte);
+            buckets[CapacityHistogram.bucketOf(Capacity.cups(capacity))]++;
+        }
+        return buckets[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public long capacityHistogramPlainDivision() {
+        long[] buckets = new long[CapacityHistogram.BUCKETS];
+        int waterNeeded = latte.getWaterNeeded();
+        int milkNeeded = latte.getMilkNeeded();
+        int coffeeBeansNeeded = latte.getCoffeeBeansNeeded();
+        int cupsNeeded = latte.getDisposableCupsNeeded();
+        for (int machine = 0; machine < MACHINES; machine++) {
+            Inventory inventory = store.inventory(machine);
+            int cups = Math.min(Math.min(inventory.getWater() / waterNeeded, inventory.getMilk() / milkNeeded),
+                    Math.min(inventory.getCoffeeBeans() / coffeeBeansNeeded,
+                            inventory.getDisposableCups() / cupsNeeded));
+            buckets[CapacityHistogram.bucketOf(cups)]++;
+        }
+        return buckets[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public long totalMoney() {
+        return store.getTotalMoney();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MACHINES)
+    public long totalMoneyPerMachine() {
+        long total = 0;
+        for (int machine = 0; machine < MACHINES; machine++) {
+            total += store.cashRegister(machine).getMoney();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,67 @@
+package machine.benchmark;
+
+import machine.menu.CoffeeOptions;
+import machine.menu.MenuOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for turning console input into {@link MenuOptions} and {@link CoffeeOptions}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionParsingBenchmark {
+
+    @Param({"buy", "remaining", "EXIT"})
+    public String action;
+
+    @Param({"1", "3", "back"})
+    public String coffeeCode;
+
+    @Benchmark
+    public MenuOptions menuOptionFromString() {
+        return MenuOptions.fromString(action);
+    }
+
+    @Benchmark
+    public CoffeeOptions coffeeOptionFromCode() {
+        return CoffeeOptions.fromCode(coffeeCode);
+    }
+
+    @Benchmark
+    public Optional<MenuOptions> menuOptionParse() {
+        return MenuOptions.parse(action);
+    }
+
+    @Benchmark
+    public Optional<CoffeeOptions> coffeeOptionParse() {
+        return CoffeeOptions.parse(coffeeCode);
+    }
+
+    @Benchmark
+    public Optional<MenuOptions> menuOptionParseInvalid() {
+        return MenuOptions.parse("refill");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public MenuOptions menuOptionFromStringContended() {
+        return MenuOptions.fromString(action);
+    }
+}
@@ -0,0 +1,101 @@
+package machine.benchmark;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.CoffeeFactory;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.SupplyCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Single-threaded benchmarks for the {@link SupplyCalculator} hot paths.
+ * Console output of {@code sellCoffee} is discarded so the numbers reflect the
+ * inventory work rather than the terminal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupplyCalculatorBenchmark {
+
+    private final Coffee latte = CoffeeFactory.createCoffee(CoffeeOptions.LATTE);
+    private final Coffee espresso = CoffeeFactory.createCoffee(CoffeeOptions.ESPRESSO);
+
+    private SupplyCalculator supplyCalculator;
+    private CashRegister cashRegister;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        supplyCalculator = new SupplyCalculator(400_000, 540_000, 120_000, 9_000);
+        cashRegister = new CashRegister(550);
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public int sellCoffee() {
+        if (supplyCalculator.getDisposableCupsSupply() == 0) {
+            supplyCalculator.fillSupplies(400_000, 540_000, 120_000, 9_000);
+        }
+        supplyCalculator.sellCoffee(latte, cashRegister);
+        return supplyCalculator.getDisposableCupsSupply();
+    }
+
+    @Benchmark
+    public int fillSupplies() {
+        supplyCalculator.fillSupplies(0, 0, 0, 0);
+        return supplyCalculator.getWaterSupply();
+    }
+
+    @Benchmark
+    public int calculateSuppliesBeforeSell() {
+        return supplyCalculator.calculateSuppliesBeforeSell(latte)
+                + supplyCalculator.calculateSuppliesBeforeSell(espresso);
+    }
+
+    /**
+     * The boxed, stream-based capacity calculation {@code calculateSuppliesBeforeSell}
+     * used before it was rewritten with primitives, kept as a baseline.
+     */
+    @Benchmark
+    public int calculateSuppliesBeforeSellStreamBaseline() {
+        return streamCapacity(supplyCalculator, latte) + streamCapacity(supplyCalculator, espresso);
+    }
+
+    private static int streamCapacity(SupplyCalculator supply, Coffee coffee) {
+        int cupsByWater = supply.getWaterSupply() / coffee.getWaterNeeded();
+        int cupsByMilk = coffee.getMilkNeeded() != 0 ? supply.getMilkSupply() / coffee.getMilkNeeded() : 1;
+        int cupsByCoffee = supply.getGramsCoffeeSupply() / coffee.getCoffeeBeansNeeded();
+        int disposableCupsNeeded = supply.getDisposableCupsSupply() / coffee.getDisposableCupsNeeded();
+
+        return Stream.of(
+                cupsByWater,
+                cupsByMilk,
+                cupsByCoffee,
+                disposableCupsNeeded
+        ).min(Integer::compare).orElse(0);
+    }
+}
@@ -1,9 +1,300 @@
 package machine;
 
+import machine.cashregister.CashRegister;
+import machine.coffees.RecipeRegistry;
+import machine.events.EventBus;
+import machine.events.EventSubscriber;
+import machine.events.MachineEvent;
+import machine.fleet.FleetSimulator;
+import machine.io.BufferedOutput;
+import machine.io.Output;
+import machine.maintenance.MaintenanceScheduler;
 import machine.menu.Menu;
+import machine.metrics.MachineMetrics;
+import machine.persistence.MachineSnapshot;
+import machine.persistence.MachineState;
+import machine.persistence.Snapshotter;
+import machine.persistence.TransactionJournal;
+import machine.pipeline.PipelineLoad;
+import machine.pricing.PricingEngine;
+import machine.replay.ReplaySession;
+import machine.server.OrderServer;
+import machine.server.ServerLoad;
+import machine.simulation.Arrivals;
+import machine.simulation.CapacityPlanner;
+import machine.simulation.CapacityResult;
+import machine.simulation.DaySimulation;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class CoffeeMachine {
-    public static void main(String[] args) {
-        Menu.showMenu();
+
+    private static final long JOURNAL_FLUSH_MILLIS = 50;
+    private static final int EVENTS_PER_SNAPSHOT = 10_000;
+    private static final int PIPELINE_QUEUE_CAPACITY = 256;
+    private static final int PIPELINE_TERMINALS = 8;
+    private static final int SERVER_LOAD_DEPTH = 16;
+    private static final int EVENT_RING_CAPACITY = 4096;
+    private static final double NORMAL_CUPS_PER_HOUR = 30;
+    private static final long PRICE_SMOOTHING_NANOS = 900_000_000_000L;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 3 && args[0].equals("--fleet")) {
+            runFleet(Integer.parseInt(args[1]), Long.parseLong(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : 0);
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equals("--pipeline")) {
+            runPipeline(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : 1);
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equals("--simulate")) {
+            runSimulation(Double.parseDouble(args[1]), Double.parseDouble(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : 1);
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equals("--serve-load")) {
+            runServerLoad(Integer.parseInt(args[1]), Long.parseLong(args[2]),
+                    args.length > 3 ? Integer.parseInt(args[3]) : SERVER_LOAD_DEPTH);
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--plan")) {
+            runCapacityPlan(Integer.parseInt(args[1]), args.length > 2 ? Double.parseDouble(args[2]) : 30,
+                    args.length > 3 ? Long.parseLong(args[3]) : 1);
+            return;
+        }
+
+        Path dataDirectory = null;
+        Path replayLog = null;
+        MachineMetrics metrics = null;
+        InetSocketAddress serveAddress = null;
+        boolean logEvents = false;
+        int maxSurchargePercent = -1;
+        InetAddress bindAddress = InetAddress.getLoopbackAddress();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data" -> dataDirectory = Path.of(args[++i]);
+                case "--replay" -> replayLog = Path.of(args[++i]);
+                case "--metrics" -> metrics = new MachineMetrics();
+                case "--events" -> logEvents = true;
+                case "--pricing" -> maxSurchargePercent = Integer.parseInt(args[++i]);
+                case "--serve" -> serveAddress = new InetSocketAddress(bindAddress, Integer.parseInt(args[++i]));
+                case "--bind" -> {
+                    bindAddress = InetAddress.getByName(args[++i]);
+                    if (serveAddress != null) {
+                        serveAddress = new InetSocketAddress(bindAddress, serveAddress.getPort());
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (dataDirectory == null) {
+            SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+            usePricing(supplyCalculator, maxSurchargePercent);
+            run(replayLog, serveAddress, metrics, logEvents, supplyCalculator, new CashRegister(550));
+            return;
+        }
+
+        // boot from the last snapshot, then replay only the journal written after it
+        Files.createDirectories(dataDirectory);
+        Path snapshotFile = dataDirectory.resolve("snapshot.bin");
+        MachineSnapshot snapshot = MachineSnapshot.load(snapshotFile);
+        MachineState state = MachineState.factoryDefaults();
+        long journalPosition = 0;
+        if (snapshot != null) {
+            snapshot.restoreRecipes(RecipeRegistry.getDefault());
+            state = snapshot.toState();
+            journalPosition = snapshot.getJournalPosition();
+        }
+        try (TransactionJournal journal = TransactionJournal.open(
+                dataDirectory.resolve("journal.bin"), journalPosition, state, JOURNAL_FLUSH_MILLIS)) {
+            SupplyCalculator supplyCalculator = state.toSupplyCalculator();
+            CashRegister cashRegister = state.toCashRegister();
+            usePricing(supplyCalculator, maxSurchargePercent);
+            try (Snapshotter snapshotter = new Snapshotter(snapshotFile, supplyCalculator, cashRegister,
+                    RecipeRegistry.getDefault(), journal, EVENTS_PER_SNAPSHOT)) {
+                supplyCalculator.addListener(journal);
+                cashRegister.addListener(journal);
+                supplyCalculator.addListener(snapshotter);
+                cashRegister.addListener(snapshotter);
+                run(replayLog, serveAddress, metrics, logEvents, supplyCalculator, cashRegister);
+            }
+        }
+    }
+
+    private static void run(Path replayLog, InetSocketAddress serveAddress, MachineMetrics metrics, boolean logEvents,
+                            SupplyCalculator supplyCalculator, CashRegister cashRegister) throws IOException {
+        EventBus events = null;
+        if (logEvents) {
+            // events go to stderr, one write per batch, so a busy machine does not wait for the console
+            events = new EventBus(EVENT_RING_CAPACITY);
+            Output log = new BufferedOutput(System.err);
+            events.subscribe("event-log", new EventSubscriber() {
+                @Override
+                public void onEvent(MachineEvent event, boolean endOfBatch) {
+                    log.println(event.toString());
+                    if (endOfBatch) {
+                        log.flush();
+                    }
+                }
+
+                @Override
+                public void onDropped(long count) {
+                    log.printf("%d events dropped%n", count);
+                }
+            });
+            supplyCalculator.addListener(events);
+            cashRegister.addListener(events);
+        }
+        if (metrics != null) {
+            supplyCalculator.addListener(metrics);
+            cashRegister.addListener(metrics);
+            metrics.registerMBean("default");
+            Menu.setMetrics(metrics);
+        }
+        try {
+            if (replayLog != null) {
+                new ReplaySession(replayLog).run(supplyCalculator, cashRegister);
+            } else if (serveAddress != null) {
+                serve(serveAddress, supplyCalculator, cashRegister);
+            } else {
+                Menu.showMenu(supplyCalculator, cashRegister);
+            }
+        } finally {
+            // delivers the events still in the ring even if the session ended on an exception, such as input at EOF
+            if (events != null) {
+                events.close();
+            }
+        }
+        if (metrics != null) {
+            // the report goes to stderr so it never mixes with the dialog on stdout
+            Output report = new BufferedOutput(System.err);
+            metrics.print(report);
+            report.flush();
+        }
+    }
+
+    private static void usePricing(SupplyCalculator supplyCalculator, int maxSurchargePercent) {
+        if (maxSurchargePercent < 0) {
+            return;
+        }
+        // scarcity is judged against a freshly stocked machine
+        PricingEngine pricing = new PricingEngine(supplyCalculator, RecipeRegistry.getDefault(),
+                MachineState.factoryDefaults(), maxSurchargePercent, NORMAL_CUPS_PER_HOUR, PRICE_SMOOTHING_NANOS,
+                System::nanoTime);
+        supplyCalculator.addListener(pricing);
+        supplyCalculator.setPriceList(pricing);
+    }
+
+    private static void serve(InetSocketAddress address, SupplyCalculator supplyCalculator,
+                              CashRegister cashRegister) throws IOException {
+        try (OrderServer server = new OrderServer(supplyCalculator, cashRegister, RecipeRegistry.getDefault(),
+                address)) {
+            // terminals talk to the socket, the console only decides when to stop
+            System.err.printf("Serving orders on %s, type exit to stop%n", server.getAddress());
+            BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            do {
+                line = console.readLine();
+            } while (line != null && !line.trim().equalsIgnoreCase("exit"));
+            System.err.printf("Served %d requests on %d connections%n", server.getRequests(),
+                    server.getConnections());
+        }
+    }
+
+    private static void runServerLoad(int terminals, long requests, int depth)
+            throws IOException, InterruptedException {
+        Output output = new BufferedOutput(System.out);
+        new ServerLoad(terminals, depth).run(requests, output);
+        output.flush();
+    }
+
+    private static void runFleet(int machines, long customers, long thinkTimeMillis) throws InterruptedException {
+        FleetSimulator fleet = new FleetSimulator(machines, thinkTimeMillis, MaintenanceScheduler::everyTenCoffees,
+                true);
+        Output output = new BufferedOutput(System.out);
+        output.println(FleetSimulator.usesVirtualThreads()
+                ? "Customers run on virtual threads"
+                : "Virtual threads are not available, customers run on a platform thread pool");
+        fleet.run(customers).print(output, 10);
+        output.flush();
+    }
+
+    private static void runPipeline(int brewUnits, int orders, long brewMillis) throws InterruptedException {
+        Output output = new BufferedOutput(System.out);
+        new PipelineLoad(brewUnits, PIPELINE_QUEUE_CAPACITY, brewMillis * 1_000_000)
+                .run(orders, PIPELINE_TERMINALS, output);
+        output.flush();
+    }
+
+    private static void runSimulation(double hours, double customersPerHour, long seed) {
+        // a cafe-sized machine: two group heads, half-minute brews and a quarter-hour supply run
+        DaySimulation simulation = new DaySimulation(
+                Arrivals.poisson(customersPerHour, RecipeRegistry.getDefault().size(), seed),
+                new MachineState(10_000, 6_000, 2_000, 300, 0, 0),
+                2, 30_000_000_000L, 120_000_000_000L, 900_000_000_000L);
+        Output output = new BufferedOutput(System.out);
+        simulation.run((long) (hours * 3600e9)).print(output);
+        output.flush();
+    }
+
+    private static void runCapacityPlan(int days, double customersPerHour, long seed) {
+        // the default stock scaled up in steps, against an even mix, an espresso crowd and a milk crowd
+        List<MachineState> supplies = new ArrayList<>();
+        for (int scale = 1; scale <= 256; scale *= 4) {
+            supplies.add(new MachineState(400L * scale, 540L * scale, 120L * scale, 9L * scale, 0, 0));
+        }
+        List<double[]> mixes = List.of(new double[] {1, 1, 1}, new double[] {3, 1, 1}, new double[] {1, 2, 2});
+        CapacityPlanner planner = new CapacityPlanner(days, 12 * 3_600_000_000_000L, customersPerHour,
+                1, 30_000_000_000L, 120_000_000_000L, 1_800_000_000_000L, seed);
+
+        // the same plan on 1, 2, 4, ... threads up to every core, to show how the runtime scales;
+        // an untimed run first, so the single-threaded timing does not include the warm-up
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<CapacityResult> results = planner.plan(supplies, mixes);
+        long[] elapsed = new long[Integer.SIZE - Integer.numberOfLeadingZeros(cores) + 1];
+        int[] threads = new int[elapsed.length];
+        int runs = 0;
+        for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                long start = System.nanoTime();
+                results = planner.plan(supplies, mixes, pool);
+                elapsed[runs] = System.nanoTime() - start;
+            } finally {
+                pool.shutdown();
+            }
+            threads[runs++] = parallelism;
+            if (parallelism == cores) {
+                break;
+            }
+        }
+
+        Output output = new BufferedOutput(System.out);
+        output.printf("%d days per configuration, %d configurations on %d cores%n", days, results.size(), cores);
+        for (int run = 0; run < runs; run++) {
+            output.printf("parallelism %3d: %.3f s, speedup %.2fx%n", threads[run], elapsed[run] / 1e9,
+                    (double) elapsed[0] / elapsed[run]);
+        }
+        for (CapacityResult result : results) {
+            result.print(output);
+        }
+        output.flush();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package machine.availability;
+
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.Capacity;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps the number of cups every recipe can make with the current supplies, so a menu can
+ * show which drinks are available without working it out before every purchase.
+ * <p>
+ * Registered as a listener on the supply calculator, the cache updates the counts after
+ * every sale, hold, release and refill. Only the recipes that need a resource the change
+ * touched are recounted, each from one read of the supplies, and a sale or hold skips the
+ * recipes already at zero since it only ever lowers the counts. Reading a count is a single
+ * table read that never locks or allocates, so the cost of keeping the menu current is paid
+ * once per change instead of once per customer looking at it.
+ * </p>
+ * <p>
+ * Updates take no lock, so terminals selling at the same time never wait for each other here.
+ * A count is only written when it changed, with compare-and-set, and whoever writes it counts
+ * again from a fresh read of the supplies until the two agree. A terminal that read the
+ * supplies before another one changed them may briefly store an outdated count, but it
+ * corrects it before returning, so once the supplies stop changing every count is current.
+ * </p>
+ * <p>
+ * {@link AvailabilityListener}s are told about every count that changed, including when a
+ * recipe runs out or becomes available again. Only the recipes registered when the cache was
+ * created are counted, and the cleaning state of the machine is not taken into account.
+ * </p>
+ */
+public class AvailabilityCache implements MachineListener {
+
+    private static final AvailabilityListener[] NONE = new AvailabilityListener[0];
+    private static final int ALL_RESOURCES = (1 << Resource.values().length) - 1;
+
+    private final SupplyCalculator supplyCalculator;
+    private final RecipeRegistry registry;
+    private final Recipe[] recipes;
+    private final int[] needed;
+    private final AtomicIntegerArray cups;
+    private volatile AvailabilityListener[] listeners = NONE;
+
+    /**
+     * Creates a cache counting the recipes currently in the registry for the current supplies.
+     *
+     * @param supplyCalculator the machine whose supplies are counted
+     * @param registry the recipes to count
+     */
+    public AvailabilityCache(SupplyCalculator supplyCalculator, RecipeRegistry registry) {
+        this.supplyCalculator = supplyCalculator;
+        this.registry = registry;
+        this.recipes = new Recipe[registry.size()];
+        this.needed = new int[recipes.length];
+        for (int id = 0; id < recipes.length; id++) {
+            recipes[id] = registry.get(id);
+            // a recipe needing nothing is recounted on every change rather than never
+            int resources = resourcesNeeded(recipes[id]);
+            needed[id] = resources == 0 ? ALL_RESOURCES : resources;
+        }
+        this.cups = new AtomicIntegerArray(recipes.length);
+        update(ALL_RESOURCES, false);
+    }
+
+    /**
+     * Returns the number of cups of a recipe the supplies can make.
+     *
+     * @param id the recipe id
+     * @return the number of cups
+     * @throws IllegalArgumentException if the cache does not count that recipe
+     */
+    public int getCups(int id) {
+        if (id < 0 || id >= recipes.length) {
+            throw new IllegalArgumentException("Unknown recipe id: " + id);
+        }
+        return cups.get(id);
+    }
+
+    /**
+     * Returns the number of cups of a menu drink the supplies can make.
+     *
+     * @param option the menu selection
+     * @return the number of cups
+     * @throws IllegalArgumentException if the option does not name a drink the cache counts
+     */
+    public int getCups(CoffeeOptions option) {
+        return getCups(registry.get(option).getId());
+    }
+
+    /**
+     * Checks whether the supplies can make at least one cup of a menu drink.
+     *
+     * @param option the menu selection
+     * @return true if the drink can be sold now
+     * @throws IllegalArgumentException if the option does not name a drink the cache counts
+     */
+    public boolean isAvailable(CoffeeOptions option) {
+        return getCups(option) > 0;
+    }
+
+    /**
+     * Returns the number of recipes the cache counts.
+     *
+     * @return the number of recipes
+     */
+    public int size() {
+        return recipes.length;
+    }
+
+    /**
+     * Registers a listener for changed counts.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public synchronized void addListener(AvailabilityListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        AvailabilityListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+        next[next.length - 1] = listener;
+        listeners = next;
+    }
+
+    /**
+     * Unregisters a listener. Does nothing if it was not registered.
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeListener(AvailabilityListener listener) {
+        AvailabilityListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                AvailabilityListener[] next = new AvailabilityListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                listeners = next;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void coffeeSold(Coffee coffee, int count, long amount) {
+        // a committed hold was already counted when the supplies were held, the update finds no change
+        update(resourcesNeeded(coffee), true);
+    }
+
+    @Override
+    public void stockout(Coffee coffee, Resource resource) {
+        // another terminal may have emptied the supplies without this cache having caught up yet
+        update(ALL_RESOURCES, false);
+    }
+
+    @Override
+    public void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        update(resources(water, milk, coffeeBeans, disposableCups), false);
+    }
+
+    @Override
+    public void suppliesHeld(Coffee coffee) {
+        update(resourcesNeeded(coffee), true);
+    }
+
+    @Override
+    public void holdReleased(Coffee coffee) {
+        update(resourcesNeeded(coffee), false);
+    }
+
+    /**
+     * Recounts the recipes needing one of the changed resources and notifies the listeners of the counts that changed.
+     *
+     * @param changed the bit set of the resources that changed, by ordinal
+     * @param onlyLowered true if the supplies were only debited, so recipes at zero cups stay there
+     */
+    private void update(int changed, boolean onlyLowered) {
+        int water = supplyCalculator.getWaterSupply();
+        int milk = supplyCalculator.getMilkSupply();
+        int coffeeBeans = supplyCalculator.getGramsCoffeeSupply();
+        int disposableCups = supplyCalculator.getDisposableCupsSupply();
+        for (int id = 0; id < recipes.length; id++) {
+            if ((needed[id] & changed) == 0) {
+                continue;
+            }
+            int previous = cups.get(id);
+            if (onlyLowered && previous == 0) {
+                continue;
+            }
+            int current = count(id, water, milk, coffeeBeans, disposableCups);
+            while (current != previous) {
+                if (cups.compareAndSet(id, previous, current)) {
+                    for (AvailabilityListener listener : listeners) {
+                        listener.availabilityChanged(recipes[id], previous, current);
+                    }
+                    // the supplies may have changed since they were read, so count again until the count holds
+                    previous = current;
+                    current = count(id, supplyCalculator.getWaterSupply(), supplyCalculator.getMilkSupply(),
+                            supplyCalculator.getGramsCoffeeSupply(), supplyCalculator.getDisposableCupsSupply());
+                } else {
+                    previous = cups.get(id);
+                }
+            }
+        }
+    }
+
+    private int count(int id, int water, int milk, int coffeeBeans, int disposableCups) {
+        return Capacity.cups(Capacity.of(water, milk, coffeeBeans, disposableCups, recipes[id]));
+    }
+
+    private static int resourcesNeeded(Coffee coffee) {
+        return resources(coffee.getWaterNeeded(), coffee.getMilkNeeded(), coffee.getCoffeeBeansNeeded(),
+                coffee.getDisposableCupsNeeded());
+    }
+
+    private static int resources(int water, int milk, int coffeeBeans, int disposableCups) {
+        int resources = 0;
+        if (water != 0) {
+            resources |= 1 << Resource.WATER.ordinal();
+        }
+        if (milk != 0) {
+            resources |= 1 << Resource.MILK.ordinal();
+        }
+        if (coffeeBeans != 0) {
+            resources |= 1 << Resource.COFFEE_BEANS.ordinal();
+        }
+        if (disposableCups != 0) {
+            resources |= 1 << Resource.DISPOSABLE_CUPS.ordinal();
+        }
+        return resources;
+    }
+}
@@ -0,0 +1,24 @@
+package machine.availability;
+
+import machine.coffees.Recipe;
+
+/**
+ * Receives a callback whenever the number of cups an {@link AvailabilityCache} reports
+ * for a recipe changes. Called synchronously on the thread that changed the supplies.
+ * For one recipe the callbacks form a chain, each {@code previousCups} being the
+ * {@code cups} of the callback before it, but terminals selling at the same time may
+ * run their callbacks concurrently.
+ */
+public interface AvailabilityListener {
+
+    /**
+     * Called after the number of cups a recipe can make changed.
+     * The recipe became unavailable if {@code cups} is 0, and available again if
+     * {@code previousCups} is 0.
+     *
+     * @param recipe the recipe
+     * @param previousCups the number of cups reported before
+     * @param cups the number of cups the supplies can make now
+     */
+    void availabilityChanged(Recipe recipe, int previousCups, int cups);
+}
@@ -1,10 +1,15 @@
 package machine.cashregister;
 
+import machine.events.Listeners;
+import machine.events.MachineListener;
+import machine.messages.PrintMessages;
+
 /**
  * Represents a cash register in the coffee machine simulation.
  */
 public class CashRegister {
-    private int money;
+    private long money;
+    private final Listeners listeners = new Listeners();
 
     /**
      * Initializes the cash register with a starting amount of money.
@@ -12,19 +17,31 @@ public class CashRegister {
      * @param money the initial amount of money in the register
      * @throws IllegalArgumentException if the initial amount is negative
      */
-    public CashRegister(int money) {
+    public CashRegister(long money) {
         if(money < 0) {
             throw new IllegalArgumentException("Cash register should not be initialized with negative numbers.");
         }
         this.money = money;
     }
 
+    /**
+     * Creates a cash register that many order terminals can charge at the same time
+     * without losing money, see {@link StripedCashRegister}.
+     *
+     * @param money the initial amount of money in the register
+     * @return a thread-safe cash register
+     * @throws IllegalArgumentException if the initial amount is negative
+     */
+    public static CashRegister concurrent(long money) {
+        return new StripedCashRegister(money);
+    }
+
     /**
      * Returns the current amount of money in the register.
      *
      * @return the current money amount
      */
-    public int getMoney() {
+    public long getMoney() {
         return money;
     }
 
@@ -33,29 +50,83 @@ public class CashRegister {
      *
      * @param money the new amount to set
      */
-    private void setMoney(int money) {
+    private void setMoney(long money) {
         this.money = money;
     }
 
+    /**
+     * Registers a listener that is told whenever money is taken out of the register.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(MachineListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addListener(MachineListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(MachineListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stores a charged amount. Subclasses override this together with
+     * {@link #removeAll()} and {@link #getMoney()} to change how the balance is kept.
+     *
+     * @param money the amount to add, never negative
+     */
+    protected void add(long money) {
+        setMoney(getMoney() + money);
+    }
+
+    /**
+     * Sets the balance to zero.
+     *
+     * @return the balance before it was cleared
+     */
+    protected long removeAll() {
+        long money = getMoney();
+        setMoney(0);
+        return money;
+    }
+
     /**
      * Adds a specified amount of money to the register.
      *
      * @param money the amount to add
      * @throws IllegalArgumentException if the amount is negative
      */
-    public void charge(int money) {
+    public void charge(long money) {
         if(money < 0) {
             throw new IllegalArgumentException("charge amount can't be negative.");
         }
-        setMoney(getMoney() + money);
+        add(money);
+    }
+
+    /**
+     * Empties the register without printing anything.
+     *
+     * @return the amount that was removed
+     */
+    public long drain() {
+        long money = removeAll();
+        for (MachineListener listener : listeners.get()) {
+            listener.moneyTaken(money);
+        }
+        return money;
     }
 
     /**
      * Empties the register and prints the amount that was removed.
+     *
+     * @return the amount that was removed
      */
-    public void take() {
-        int money = getMoney();
-        setMoney(0);
-        System.out.printf("I gave you $%d%n%n", money);
+    public long take() {
+        long money = drain();
+        PrintMessages.printMoneyTaken(money);
+        return money;
     }
 }
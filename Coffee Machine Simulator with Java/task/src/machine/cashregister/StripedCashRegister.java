@@ -0,0 +1,93 @@
+package machine.cashregister;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link CashRegister} for many concurrent order terminals, in the style of
+ * {@link java.util.concurrent.atomic.LongAdder}. The balance is spread over several
+ * stripes, each on its own cache line, and every thread charges the stripe its identity
+ * hashes to, so terminals rarely contend on the same counter.
+ * <p>
+ * Every charge lands in exactly one stripe. {@link #drain()} atomically swaps each stripe
+ * to zero and adds up what it removed, so each charge is counted by exactly one
+ * {@code take()}: either the current one or, if it arrived while draining, the next one.
+ * </p>
+ */
+public class StripedCashRegister extends CashRegister {
+
+    /**
+     * Longs per 64-byte cache line; only the first slot of each line is used.
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray stripes;
+    private final int mask;
+
+    /**
+     * Creates a striped register with two stripes per available processor, rounded up to a power of two.
+     *
+     * @param money the initial amount of money in the register
+     * @throws IllegalArgumentException if the initial amount is negative
+     */
+    public StripedCashRegister(long money) {
+        this(money, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a striped register.
+     *
+     * @param money the initial amount of money in the register
+     * @param stripes the minimum number of stripes; rounded up to a power of two
+     * @throws IllegalArgumentException if the initial amount is negative or the stripe count is not positive
+     */
+    public StripedCashRegister(long money, int stripes) {
+        super(0);
+        if (money < 0) {
+            throw new IllegalArgumentException("Cash register should not be initialized with negative numbers.");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("A striped register needs at least one stripe.");
+        }
+        int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new AtomicLongArray(count * PADDING);
+        this.mask = count - 1;
+        this.stripes.set(0, money);
+    }
+
+    /**
+     * Returns the sum of all stripes. While other threads are charging,
+     * the result is a moment-in-time estimate, just like {@link java.util.concurrent.atomic.LongAdder#sum()}.
+     *
+     * @return the current money amount
+     */
+    @Override
+    public long getMoney() {
+        long total = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            total += stripes.get(stripe * PADDING);
+        }
+        return total;
+    }
+
+    @Override
+    protected void add(long money) {
+        stripes.getAndAdd(stripeOfCurrentThread() * PADDING, money);
+    }
+
+    @Override
+    protected long removeAll() {
+        long total = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            total += stripes.getAndSet(stripe * PADDING, 0);
+        }
+        return total;
+    }
+
+    private int stripeOfCurrentThread() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash & mask;
+    }
+}
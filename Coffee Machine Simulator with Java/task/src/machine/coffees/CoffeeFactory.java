@@ -4,22 +4,19 @@ import machine.menu.CoffeeOptions;
 
 /**
  * A factory class for creating different types of coffee drinks based on user selection.
- * This class uses the {@link CoffeeOptions} enum to determine which coffee instance to create.
+ * This class uses the {@link CoffeeOptions} enum to determine which coffee recipe to return.
+ * Recipes are shared flyweights from the default {@link RecipeRegistry}, so buying a coffee
+ * does not allocate a new object.
  */
 public class CoffeeFactory {
     /**
-     * Creates and returns a specific type of {@link Coffee} based on the given {@link CoffeeOptions}.
+     * Returns the {@link Coffee} recipe for the given {@link CoffeeOptions}.
      *
      * @param option the selected coffee option
-     * @return a new instance of a specific Coffee subclass (Espresso, Latte, Cappuccino)
+     * @return the shared, immutable recipe for espresso, latte or cappuccino
      * @throws IllegalArgumentException if the coffee option is not recognized
      */
     public static Coffee createCoffee(CoffeeOptions option) {
-        return switch (option) {
-            case ESPRESSO -> new Espresso();
-            case LATTE -> new Latte();
-            case CAPPUCCINO -> new Cappuccino();
-            default -> throw new IllegalArgumentException("Invalid coffee option: " + option);
-        };
+        return RecipeRegistry.getDefault().get(option);
     }
 }
@@ -0,0 +1,67 @@
+package machine.coffees;
+
+/**
+ * An immutable coffee recipe held by a {@link RecipeRegistry}.
+ * Unlike {@link Espresso}, {@link Latte} and {@link Cappuccino}, a recipe carries all of its
+ * ingredient amounts as plain fields, so new drinks can be added at runtime without a subclass.
+ */
+public final class Recipe extends Coffee {
+
+    /**
+     * The largest amount a single ingredient of a recipe can hold.
+     */
+    public static final int MAX_AMOUNT = 0xFFFF;
+
+    private final int id;
+    private final String name;
+    private final int milkNeeded;
+    private final int disposableCupsNeeded;
+
+    /**
+     * Creates a recipe with the given registry id, name, ingredient amounts and price.
+     *
+     * @param id the index of the recipe in its registry
+     * @param name the name of the drink
+     * @param waterNeeded the amount of water required
+     * @param milkNeeded the amount of milk required
+     * @param coffeeBeansNeeded the amount of coffee beans required
+     * @param disposableCupsNeeded the number of disposable cups required
+     * @param price the selling price of the drink
+     */
+    Recipe(int id, String name, int waterNeeded, int milkNeeded, int coffeeBeansNeeded,
+           int disposableCupsNeeded, int price) {
+        super(waterNeeded, coffeeBeansNeeded, price);
+        this.id = id;
+        this.name = name;
+        this.milkNeeded = milkNeeded;
+        this.disposableCupsNeeded = disposableCupsNeeded;
+    }
+
+    /**
+     * Returns the index of the recipe in its registry.
+     *
+     * @return the recipe id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the drink.
+     *
+     * @return the recipe name
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getMilkNeeded() {
+        return milkNeeded;
+    }
+
+    @Override
+    public int getDisposableCupsNeeded() {
+        return disposableCupsNeeded;
+    }
+}
@@ -0,0 +1,152 @@
+package machine.coffees;
+
+import machine.menu.CoffeeOptions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the shared, immutable {@link Recipe} instances a coffee machine can brew.
+ * The default drinks occupy the ids matching the ordinals of {@link CoffeeOptions},
+ * so looking up a menu selection is a single array access and never allocates.
+ * New recipes can be registered at runtime; readers always see a consistent
+ * snapshot of the registered recipes.
+ */
+public class RecipeRegistry {
+
+    private static final RecipeRegistry DEFAULT = withDefaults();
+
+    private volatile Recipe[] recipes = new Recipe[0];
+    private final Map<String, Recipe> byName = new HashMap<>();
+
+    /**
+     * Registries always start from {@link #withDefaults()}, which keeps the default
+     * drinks at the ids matching {@link CoffeeOptions}.
+     */
+    private RecipeRegistry() {
+    }
+
+    /**
+     * Returns the registry shared by the coffee machine.
+     *
+     * @return the default registry
+     */
+    public static RecipeRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a registry holding espresso, latte and cappuccino with their default recipes.
+     *
+     * @return a new registry with the default drinks
+     */
+    public static RecipeRegistry withDefaults() {
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.register("espresso", new Espresso());
+        registry.register("latte", new Latte());
+        registry.register("cappuccino", new Cappuccino());
+        return registry;
+    }
+
+    /**
+     * Returns the recipe for a menu selection.
+     *
+     * @param option the selected coffee option
+     * @return the shared recipe instance
+     * @throws IllegalArgumentException if the option does not name a drink
+     */
+    public Recipe get(CoffeeOptions option) {
+        Recipe[] current = recipes;
+        if (option == CoffeeOptions.BACK || option.ordinal() >= current.length) {
+            throw new IllegalArgumentException("Invalid coffee option: " + option);
+        }
+        return current[option.ordinal()];
+    }
+
+    /**
+     * Returns the recipe registered under the given id.
+     *
+     * @param id the recipe id
+     * @return the shared recipe instance
+     * @throws IllegalArgumentException if no recipe has that id
+     */
+    public Recipe get(int id) {
+        Recipe[] current = recipes;
+        if (id < 0 || id >= current.length) {
+            throw new IllegalArgumentException("Unknown recipe id: " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Looks up a recipe by name, ignoring case.
+     *
+     * @param name the name of the drink
+     * @return the recipe, or null if no recipe has that name
+     */
+    public synchronized Recipe find(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the number of registered recipes. Ids run from 0 to {@code size() - 1}.
+     *
+     * @return the number of recipes
+     */
+    public int size() {
+        return recipes.length;
+    }
+
+    /**
+     * Registers a recipe with the same ingredients and price as the given coffee.
+     *
+     * @param name the name of the drink
+     * @param coffee the coffee to copy the recipe from
+     * @return the registered recipe
+     * @throws IllegalArgumentException if the name is taken or the amounts are out of range
+     */
+    public Recipe register(String name, Coffee coffee) {
+        return register(name, coffee.getWaterNeeded(), coffee.getMilkNeeded(), coffee.getCoffeeBeansNeeded(),
+                coffee.getDisposableCupsNeeded(), coffee.getPrice());
+    }
+
+    /**
+     * Registers a new recipe.
+     *
+     * @param name the name of the drink
+     * @param waterNeeded the amount of water required
+     * @param milkNeeded the amount of milk required
+     * @param coffeeBeansNeeded the amount of coffee beans required
+     * @param disposableCupsNeeded the number of disposable cups required
+     * @param price the selling price of the drink
+     * @return the registered recipe
+     * @throws IllegalArgumentException if the name is taken or the amounts are out of range
+     */
+    public synchronized Recipe register(String name, int waterNeeded, int milkNeeded, int coffeeBeansNeeded,
+                                        int disposableCupsNeeded, int price) {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (byName.containsKey(key)) {
+            throw new IllegalArgumentException("Recipe already registered: " + name);
+        }
+        if (waterNeeded <= 0 || coffeeBeansNeeded <= 0 || disposableCupsNeeded <= 0 || milkNeeded < 0
+                || waterNeeded > Recipe.MAX_AMOUNT || milkNeeded > Recipe.MAX_AMOUNT
+                || coffeeBeansNeeded > Recipe.MAX_AMOUNT || disposableCupsNeeded > Recipe.MAX_AMOUNT) {
+            throw new IllegalArgumentException("Invalid ingredient amounts for recipe: " + name);
+        }
+        if (price < 0) {
+            throw new IllegalArgumentException("Recipe price can't be negative.");
+        }
+
+        Recipe[] current = recipes;
+        Recipe recipe = new Recipe(current.length, name, waterNeeded, milkNeeded, coffeeBeansNeeded,
+                disposableCupsNeeded, price);
+
+        Recipe[] nextRecipes = Arrays.copyOf(current, current.length + 1);
+        nextRecipes[recipe.getId()] = recipe;
+        recipes = nextRecipes;
+        byName.put(key, recipe);
+        return recipe;
+    }
+}
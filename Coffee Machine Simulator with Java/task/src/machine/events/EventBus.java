@@ -0,0 +1,223 @@
+package machine.events;
+
+import machine.coffees.Coffee;
+import machine.supplycalculator.Resource;
+
+import java.io.Closeable;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams every change of a machine as a typed {@link MachineEvent} to any number of
+ * {@link EventSubscriber}s, so dashboards and accounting no longer have to scrape the
+ * {@code remaining} report.
+ * <p>
+ * The bus is a {@link MachineListener}: register it on the {@link machine.supplycalculator.SupplyCalculator}
+ * and the {@link machine.cashregister.CashRegister} and it publishes their sales, stockouts,
+ * refills, cleanings, withdrawals and the holds and releases of reservations. Publishing copies the change into the next slot of a
+ * preallocated ring and never waits for a subscriber, so the sell path costs the same with
+ * one subscriber or ten and a slow subscriber cannot stall it.
+ * </p>
+ * <p>
+ * Every subscriber reads the ring on a thread of its own, at its own pace, and is handed all
+ * events available at once as a batch. A subscriber that falls a whole ring behind loses the
+ * events that were overwritten, is told how many through {@link EventSubscriber#onDropped(long)}
+ * and carries on from the newer half of the ring. Each slot carries the sequence of the event
+ * in it, written before and after the event itself, so a reader that raced with a wrap-around
+ * notices and discards the torn copy.
+ * </p>
+ */
+public class EventBus implements MachineListener, Closeable {
+
+    private static final long WRITING = Long.MIN_VALUE;
+    private static final Subscription[] NONE = new Subscription[0];
+
+    private final MachineEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile Subscription[] subscriptions = NONE;
+
+    /**
+     * Creates a bus.
+     *
+     * @param capacity the number of events a subscriber may lag behind; rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public EventBus(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new MachineEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int slot = 0; slot < size; slot++) {
+            slots[slot] = new MachineEvent();
+            // as if the previous lap had just been written
+            sequences.set(slot, slot - size);
+        }
+    }
+
+    /**
+     * Starts delivering events published from now on to a subscriber, on a new daemon thread.
+     *
+     * @param name the name of the subscriber thread
+     * @param subscriber the subscriber
+     * @return the subscription, to be closed to stop the deliveries
+     * @throws IllegalArgumentException if the subscriber is null
+     */
+    public synchronized Subscription subscribe(String name, EventSubscriber subscriber) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber cannot be null");
+        }
+        Subscription subscription = new Subscription(this, subscriber, cursor.get(), name);
+        Subscription[] next = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        next[next.length - 1] = subscription;
+        subscriptions = next;
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Returns the number of events published so far.
+     *
+     * @return the published count
+     */
+    public long getPublished() {
+        return cursor.get();
+    }
+
+    /**
+     * Returns the number of events a subscriber may lag behind.
+     *
+     * @return the ring capacity
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Stops every subscription after it has delivered the events published so far.
+     */
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    @Override
+    public void coffeeSold(Coffee coffee, int count, long amount) {
+        publish(MachineEvent.Type.COFFEE_SOLD, coffee, null, count, amount, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void stockout(Coffee coffee, Resource resource) {
+        publish(MachineEvent.Type.STOCKOUT_REJECTED, coffee, resource, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        publish(MachineEvent.Type.SUPPLIES_FILLED, null, null, 0, 0, water, milk, coffeeBeans, disposableCups);
+    }
+
+    @Override
+    public void moneyTaken(long amount) {
+        publish(MachineEvent.Type.MONEY_TAKEN, null, null, 0, amount, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void machineCleaned() {
+        publish(MachineEvent.Type.MACHINE_CLEANED, null, null, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void suppliesHeld(Coffee coffee) {
+        publish(MachineEvent.Type.SUPPLIES_HELD, coffee, null, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void holdReleased(Coffee coffee) {
+        publish(MachineEvent.Type.HOLD_RELEASED, coffee, null, 0, 0, 0, 0, 0, 0);
+    }
+
+    private void publish(MachineEvent.Type type, Coffee coffee, Resource resource, int count, long amount,
+                         int water, int milk, int coffeeBeans, int disposableCups) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) sequence & mask;
+        // only another publisher still writing the previous lap of this slot can hold us up
+        while (!sequences.compareAndSet(slot, sequence - slots.length, WRITING)) {
+            Thread.onSpinWait();
+        }
+        slots[slot].set(type, sequence, coffee, resource, count, amount, water, milk, coffeeBeans, disposableCups);
+        sequences.set(slot, sequence);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.waiting) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    /**
+     * Copies an event out of the ring for a reader.
+     *
+     * @param sequence the sequence of the event to read
+     * @param target the reader's event object
+     * @return 1 if the event was copied, 0 if it is not published yet,
+     *         -1 if it was already overwritten
+     */
+    int read(long sequence, MachineEvent target) {
+        int slot = (int) sequence & mask;
+        long published = sequences.get(slot);
+        if (published == sequence) {
+            target.copyFrom(slots[slot]);
+            // the copy must be complete before the sequence is checked again
+            VarHandle.acquireFence();
+            if (sequences.get(slot) == sequence) {
+                return 1;
+            }
+            return -1;
+        }
+        if (published > sequence || cursor.get() - sequence > slots.length) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether the event with the given sequence can be read.
+     *
+     * @param sequence the sequence of the event
+     * @return true if it is published
+     */
+    boolean isPublished(long sequence) {
+        return sequences.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Returns where a reader that fell a lap behind continues: in the middle of the ring,
+     * so the publishers do not overwrite its next event right away.
+     *
+     * @return the sequence to continue from
+     */
+    long resumeSequence() {
+        return cursor.get() - slots.length / 2;
+    }
+
+    synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscriptions = next;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package machine.events;
+
+/**
+ * Consumes the events of an {@link EventBus} on a thread of its own.
+ */
+public interface EventSubscriber {
+
+    /**
+     * Called for every event in publication order. The event object is reused for the next event.
+     *
+     * @param event the event
+     * @param endOfBatch true if no further event is available right now, a good moment to flush
+     *                   whatever the subscriber batches
+     */
+    void onEvent(MachineEvent event, boolean endOfBatch);
+
+    /**
+     * Called when the subscriber fell a whole ring behind and events were overwritten
+     * before it could read them. Does nothing by default.
+     *
+     * @param count the number of events skipped
+     */
+    default void onDropped(long count) {
+    }
+}
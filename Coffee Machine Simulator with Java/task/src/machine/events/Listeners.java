@@ -0,0 +1,56 @@
+package machine.events;
+
+import java.util.Arrays;
+
+/**
+ * A copy-on-write list of {@link MachineListener}s. Adding is rare and synchronized;
+ * notifying reads one volatile array and never allocates, so it is cheap on the sell path.
+ */
+public class Listeners {
+
+    private static final MachineListener[] NONE = new MachineListener[0];
+
+    private volatile MachineListener[] listeners = NONE;
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public synchronized void add(MachineListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        MachineListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+        next[next.length - 1] = listener;
+        listeners = next;
+    }
+
+    /**
+     * Unregisters a listener. Does nothing if it was not registered.
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void remove(MachineListener listener) {
+        MachineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                MachineListener[] next = new MachineListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                listeners = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the registered listeners. The array must not be modified.
+     *
+     * @return the current listeners
+     */
+    public MachineListener[] get() {
+        return listeners;
+    }
+}
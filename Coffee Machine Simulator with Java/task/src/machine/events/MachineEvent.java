@@ -0,0 +1,180 @@
+package machine.events;
+
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.supplycalculator.Resource;
+
+/**
+ * One change to a machine, as published by an {@link EventBus}.
+ * <p>
+ * Events are not allocated per change: the bus copies every change into a preallocated
+ * ring slot and each subscriber receives a copy in an event object of its own that is reused
+ * for the next event. A subscriber that keeps an event beyond its callback has to copy
+ * the fields it needs. Fields that do not apply to the {@link Type type} are zero or null.
+ * </p>
+ */
+public final class MachineEvent {
+
+    /**
+     * The kinds of change a machine publishes.
+     */
+    public enum Type {
+        /** Coffees were made and charged: coffee, count and amount are set. */
+        COFFEE_SOLD,
+        /** A coffee was refused because a resource ran out: coffee and resource are set. */
+        STOCKOUT_REJECTED,
+        /** Supplies were added: water, milk, coffee beans and disposable cups are set. */
+        SUPPLIES_FILLED,
+        /** Money was taken out of the cash register: amount is set. */
+        MONEY_TAKEN,
+        /** An operator cleaned the machine; no other field is set. */
+        MACHINE_CLEANED,
+        /** The supplies of a coffee were held for a customer who pays later: coffee is set. */
+        SUPPLIES_HELD,
+        /** Held supplies were given back without a sale: coffee is set. */
+        HOLD_RELEASED
+    }
+
+    private Type type;
+    private long sequence;
+    private Coffee coffee;
+    private Resource resource;
+    private int count;
+    private long amount;
+    private int water;
+    private int milk;
+    private int coffeeBeans;
+    private int disposableCups;
+
+    MachineEvent() {
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the position of the event in the stream of its bus, counting from 0.
+     * Gaps mean the subscriber fell a whole ring behind and missed events.
+     *
+     * @return the event sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the recipe that was sold, refused, held or released.
+     *
+     * @return the coffee, or null
+     */
+    public Coffee getCoffee() {
+        return coffee;
+    }
+
+    /**
+     * Returns the resource that ran out.
+     *
+     * @return the resource, or null
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Returns the number of coffees sold.
+     *
+     * @return the coffee count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the amount charged for a sale or the amount taken out of the register.
+     *
+     * @return the amount of money
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Returns the amount of water added.
+     *
+     * @return the water in milliliters
+     */
+    public int getWater() {
+        return water;
+    }
+
+    /**
+     * Returns the amount of milk added.
+     *
+     * @return the milk in milliliters
+     */
+    public int getMilk() {
+        return milk;
+    }
+
+    /**
+     * Returns the amount of coffee beans added.
+     *
+     * @return the coffee beans in grams
+     */
+    public int getCoffeeBeans() {
+        return coffeeBeans;
+    }
+
+    /**
+     * Returns the number of disposable cups added.
+     *
+     * @return the cup count
+     */
+    public int getDisposableCups() {
+        return disposableCups;
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case COFFEE_SOLD -> String.format("#%d %s %d x %s for $%d", sequence, type, count,
+                    name(coffee), amount);
+            case STOCKOUT_REJECTED -> String.format("#%d %s %s, no %s", sequence, type, name(coffee),
+                    resource.getName());
+            case SUPPLIES_FILLED -> String.format("#%d %s %d ml water, %d ml milk, %d g coffee beans, %d cups",
+                    sequence, type, water, milk, coffeeBeans, disposableCups);
+            case MONEY_TAKEN -> String.format("#%d %s $%d", sequence, type, amount);
+            case MACHINE_CLEANED -> String.format("#%d %s", sequence, type);
+            case SUPPLIES_HELD, HOLD_RELEASED -> String.format("#%d %s %s", sequence, type, name(coffee));
+        };
+    }
+
+    private static String name(Coffee coffee) {
+        return coffee instanceof Recipe recipe ? recipe.getName() : coffee.getClass().getSimpleName();
+    }
+
+    void set(Type type, long sequence, Coffee coffee, Resource resource, int count, long amount,
+             int water, int milk, int coffeeBeans, int disposableCups) {
+        this.type = type;
+        this.sequence = sequence;
+        this.coffee = coffee;
+        this.resource = resource;
+        this.count = count;
+        this.amount = amount;
+        this.water = water;
+        this.milk = milk;
+        this.coffeeBeans = coffeeBeans;
+        this.disposableCups = disposableCups;
+    }
+
+    void copyFrom(MachineEvent other) {
+        set(other.type, other.sequence, other.coffee, other.resource, other.count, other.amount,
+                other.water, other.milk, other.coffeeBeans, other.disposableCups);
+    }
+}
@@ -0,0 +1,74 @@
+package machine.events;
+
+import machine.coffees.Coffee;
+import machine.supplycalculator.Resource;
+
+/**
+ * Receives a callback for every change to a machine's supplies, money or cleaning state.
+ * Listeners are registered on {@link machine.supplycalculator.SupplyCalculator} and
+ * {@link machine.cashregister.CashRegister} and are called synchronously on the thread
+ * that made the change, after the change was applied. All methods default to doing nothing.
+ */
+public interface MachineListener {
+
+    /**
+     * Called after coffees were made and charged.
+     *
+     * @param coffee the recipe that was sold
+     * @param count the number of drinks of that recipe
+     * @param amount the total amount charged for them
+     */
+    default void coffeeSold(Coffee coffee, int count, long amount) {
+    }
+
+    /**
+     * Called after a coffee could not be made because a resource ran out.
+     *
+     * @param coffee the recipe that was ordered
+     * @param resource the resource that ran out
+     */
+    default void stockout(Coffee coffee, Resource resource) {
+    }
+
+    /**
+     * Called after supplies were added.
+     *
+     * @param water the amount of water added in milliliters
+     * @param milk the amount of milk added in milliliters
+     * @param coffeeBeans the amount of coffee beans added in grams
+     * @param disposableCups the number of disposable cups added
+     */
+    default void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+    }
+
+    /**
+     * Called after the supplies of a coffee were held for a customer who pays later.
+     * If the customer pays, {@link #coffeeSold(Coffee, int, long)} follows.
+     *
+     * @param coffee the recipe whose supplies were debited
+     */
+    default void suppliesHeld(Coffee coffee) {
+    }
+
+    /**
+     * Called after held supplies were given back because the customer did not pay.
+     *
+     * @param coffee the recipe whose supplies were returned
+     */
+    default void holdReleased(Coffee coffee) {
+    }
+
+    /**
+     * Called after money was taken out of the cash register.
+     *
+     * @param amount the amount that was removed
+     */
+    default void moneyTaken(long amount) {
+    }
+
+    /**
+     * Called after the machine was cleaned by an operator.
+     */
+    default void machineCleaned() {
+    }
+}
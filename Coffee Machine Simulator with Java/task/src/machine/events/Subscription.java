@@ -0,0 +1,144 @@
+package machine.events;
+
+import java.io.Closeable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The delivery of an {@link EventBus}'s events to one {@link EventSubscriber}, on a thread of its own.
+ * <p>
+ * The thread reads every published event in order and hands it over, flagging the last one
+ * available as the end of a batch. Once it has caught up it parks until the next publication.
+ * An exception thrown by the subscriber ends the subscription: it is printed, kept for
+ * {@link #getFailure()} and the bus stops waking the thread, while the other subscriptions
+ * carry on.
+ * </p>
+ */
+public final class Subscription implements Closeable {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    final Thread thread;
+    volatile boolean waiting;
+
+    private final EventBus bus;
+    private final EventSubscriber subscriber;
+    private final MachineEvent event = new MachineEvent();
+    private volatile boolean running = true;
+    private volatile long delivered;
+    private volatile long dropped;
+    private volatile Throwable failure;
+    private long next;
+
+    Subscription(EventBus bus, EventSubscriber subscriber, long first, String name) {
+        this.bus = bus;
+        this.subscriber = subscriber;
+        this.next = first;
+        this.thread = new Thread(this::deliver, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the number of events handed to the subscriber so far.
+     *
+     * @return the delivered count
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Returns the number of events the subscriber missed because it fell a ring behind.
+     *
+     * @return the dropped count
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns what the subscriber threw if that ended the subscription.
+     *
+     * @return the exception or error, or null while the subscriber has not failed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops the deliveries once the events published so far are delivered, and waits for that.
+     */
+    @Override
+    public void close() {
+        bus.remove(this);
+        running = false;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    private void deliver() {
+        try {
+            while (true) {
+                // read before draining, so nothing published before close is left behind
+                boolean stopping = !running;
+                if (drain() > 0) {
+                    continue;
+                }
+                if (stopping) {
+                    return;
+                }
+                waiting = true;
+                if (!bus.isPublished(next)) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                waiting = false;
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            bus.remove(this);
+            System.err.println("Event subscriber " + thread.getName() + " stopped after an error:");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Delivers every event available right now.
+     *
+     * @return the number of events delivered
+     */
+    private int drain() {
+        int count = 0;
+        while (true) {
+            int read = bus.read(next, event);
+            if (read == 0) {
+                return count;
+            }
+            if (read < 0) {
+                long resume = Math.max(next + 1, bus.resumeSequence());
+                dropped += resume - next;
+                subscriber.onDropped(resume - next);
+                next = resume;
+                continue;
+            }
+            next++;
+            subscriber.onEvent(event, !bus.isPublished(next));
+            count++;
+            // single writer, so the volatile increment is safe
+            delivered++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package machine.fleet;
+
+import machine.io.Output;
+
+/**
+ * How many machines of a fleet can still make how many cups of one recipe, in power-of-two buckets:
+ * bucket 0 holds the machines that cannot make a single cup, bucket {@code k} those that can make
+ * between {@code 2^(k-1)} and {@code 2^k - 1} cups.
+ */
+public class CapacityHistogram {
+
+    /**
+     * The number of buckets, enough for any non-negative {@code int} capacity.
+     */
+    public static final int BUCKETS = 33;
+
+    private final String recipe;
+    private final long[] machines;
+
+    /**
+     * Creates a histogram from bucket counts.
+     *
+     * @param recipe the name of the recipe
+     * @param machines the number of machines per bucket
+     */
+    CapacityHistogram(String recipe, long[] machines) {
+        this.recipe = recipe;
+        this.machines = machines;
+    }
+
+    /**
+     * Returns the bucket a capacity falls into.
+     *
+     * @param cups the number of cups a machine can make
+     * @return the bucket index
+     */
+    public static int bucketOf(int cups) {
+        return 32 - Integer.numberOfLeadingZeros(cups);
+    }
+
+    /**
+     * Returns the smallest capacity counted in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the lowest number of cups in the bucket
+     */
+    public static long lowestCupsIn(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    /**
+     * Returns the name of the recipe.
+     *
+     * @return the recipe name
+     */
+    public String getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * Returns the number of machines in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the machine count
+     */
+    public long getMachines(int bucket) {
+        return machines[bucket];
+    }
+
+    /**
+     * Returns the number of machines that cannot make a single cup.
+     *
+     * @return the machine count of bucket 0
+     */
+    public long getMachinesOutOfStock() {
+        return machines[0];
+    }
+
+    /**
+     * Prints the non-empty buckets.
+     *
+     * @param output where to print the histogram
+     */
+    public void print(Output output) {
+        output.println(recipe + ":");
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (machines[bucket] == 0) {
+                continue;
+            }
+            if (bucket == 0) {
+                output.printf("  %21s %10d machines%n", "no cups", machines[bucket]);
+            } else {
+                output.printf("  %8d - %8d cups %10d machines%n",
+                        lowestCupsIn(bucket), 2 * lowestCupsIn(bucket) - 1, machines[bucket]);
+            }
+        }
+    }
+}
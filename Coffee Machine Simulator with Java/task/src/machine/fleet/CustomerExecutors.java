@@ -0,0 +1,49 @@
+package machine.fleet;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor simulated customers run on.
+ * On a JDK with virtual threads every customer gets its own virtual thread;
+ * older JDKs fall back to a pool of platform threads, one per core.
+ */
+final class CustomerExecutors {
+
+    private CustomerExecutors() {
+    }
+
+    /**
+     * Returns a new executor for customer tasks.
+     *
+     * @return a virtual-thread-per-task executor when available, otherwise a fixed pool
+     */
+    static ExecutorService newCustomerExecutor() {
+        try {
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create the customer executor", e);
+        }
+    }
+
+    /**
+     * Checks whether customers run on virtual threads on this JDK.
+     *
+     * @return true if virtual threads are available
+     */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package machine.fleet;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.maintenance.MaintenanceScheduler;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+/**
+ * One coffee machine of a fleet, with its own supplies, cash register and cleaning schedule.
+ * Customers of the same machine are served one at a time; different machines never
+ * share any state, so they serve their customers in parallel.
+ * <p>
+ * A machine can be set to refill when empty: when a customer's drink can't be made, the
+ * supplies are topped up to what the machine started with and the drink is made after all.
+ * </p>
+ */
+public class FleetMachine {
+
+    private final int id;
+    private final SupplyCalculator supplyCalculator;
+    private final CashRegister cashRegister;
+    private final boolean refillWhenEmpty;
+    private final int waterCapacity;
+    private final int milkCapacity;
+    private final int coffeeBeansCapacity;
+    private final int disposableCupsCapacity;
+    private long sold;
+    private long stockouts;
+    private long refills;
+    private long turnedAwayForCleaning;
+
+    /**
+     * Creates a machine with the given starting supplies and money.
+     *
+     * @param id the index of the machine in its fleet
+     * @param supplyCalculator the supplies of the machine
+     * @param cashRegister the cash register of the machine
+     */
+    public FleetMachine(int id, SupplyCalculator supplyCalculator, CashRegister cashRegister) {
+        this(id, supplyCalculator, cashRegister, false);
+    }
+
+    /**
+     * Creates a machine with the given starting supplies and money, which optionally
+     * refills itself to those starting supplies whenever a drink can't be made.
+     *
+     * @param id the index of the machine in its fleet
+     * @param supplyCalculator the supplies of the machine; its current supplies are also its capacity
+     * @param cashRegister the cash register of the machine
+     * @param refillWhenEmpty whether to refill instead of turning a customer away for lack of supplies
+     */
+    public FleetMachine(int id, SupplyCalculator supplyCalculator, CashRegister cashRegister,
+                        boolean refillWhenEmpty) {
+        this.id = id;
+        this.supplyCalculator = supplyCalculator;
+        this.cashRegister = cashRegister;
+        this.refillWhenEmpty = refillWhenEmpty;
+        this.waterCapacity = supplyCalculator.getWaterSupply();
+        this.milkCapacity = supplyCalculator.getMilkSupply();
+        this.coffeeBeansCapacity = supplyCalculator.getGramsCoffeeSupply();
+        this.disposableCupsCapacity = supplyCalculator.getDisposableCupsSupply();
+    }
+
+    /**
+     * Serves one customer. Without an operator around, a machine that waits for a manual
+     * cleaning cleans itself right away; one whose brew units are all busy with automatic
+     * cleanings turns the customer away. A machine that refills when empty tops up its
+     * supplies and tries once more before turning the customer away for lack of supplies.
+     *
+     * @param coffee the coffee the customer orders
+     * @return true if the coffee was sold, false if the machine was out of stock or cleaning
+     */
+    public synchronized boolean serve(Coffee coffee) {
+        MaintenanceScheduler maintenance = supplyCalculator.getMaintenance();
+        if (maintenance.isReadyToClean()) {
+            if (maintenance.cleansAutomatically()) {
+                turnedAwayForCleaning++;
+                return false;
+            }
+            maintenance.cleanAll();
+        }
+        Resource shortage = supplyCalculator.trySellCoffee(coffee, cashRegister);
+        if (shortage != null && refillWhenEmpty) {
+            refill();
+            shortage = supplyCalculator.trySellCoffee(coffee, cashRegister);
+        }
+        if (shortage != null) {
+            stockouts++;
+            return false;
+        }
+        sold++;
+        return true;
+    }
+
+    /**
+     * Tops the supplies up to what the machine started with.
+     */
+    private void refill() {
+        refills++;
+        supplyCalculator.fillSupplies(
+                Math.max(0, waterCapacity - supplyCalculator.getWaterSupply()),
+                Math.max(0, milkCapacity - supplyCalculator.getMilkSupply()),
+                Math.max(0, coffeeBeansCapacity - supplyCalculator.getGramsCoffeeSupply()),
+                Math.max(0, disposableCupsCapacity - supplyCalculator.getDisposableCupsSupply()));
+    }
+
+    /**
+     * Returns the index of the machine in its fleet.
+     *
+     * @return the machine id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the supplies of the machine.
+     *
+     * @return the supply calculator
+     */
+    public SupplyCalculator getSupplyCalculator() {
+        return supplyCalculator;
+    }
+
+    /**
+     * Returns the money currently in the machine.
+     *
+     * @return the cash register balance
+     */
+    public synchronized long getMoney() {
+        return cashRegister.getMoney();
+    }
+
+    /**
+     * Returns the number of coffees sold.
+     *
+     * @return the sold count
+     */
+    public synchronized long getSold() {
+        return sold;
+    }
+
+    /**
+     * Returns the number of customers turned away because a resource ran out.
+     *
+     * @return the stockout count
+     */
+    public synchronized long getStockouts() {
+        return stockouts;
+    }
+
+    /**
+     * Returns the number of times the machine refilled itself.
+     *
+     * @return the refill count
+     */
+    public synchronized long getRefills() {
+        return refills;
+    }
+
+    /**
+     * Returns the number of customers turned away because every brew unit was being cleaned.
+     *
+     * @return the count of customers lost to cleaning
+     */
+    public synchronized long getTurnedAwayForCleaning() {
+        return turnedAwayForCleaning;
+    }
+}
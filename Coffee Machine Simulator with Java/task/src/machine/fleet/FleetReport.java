@@ -0,0 +1,170 @@
+package machine.fleet;
+
+import machine.io.Output;
+
+/**
+ * Aggregated outcome of a {@link FleetSimulator} run.
+ */
+public class FleetReport {
+
+    private final long customers;
+    private final long sold;
+    private final long revenue;
+    private final long elapsedNanos;
+    private final long[] stockouts;
+    private final long refills;
+    private final long cleanings;
+    private final long turnedAwayForCleaning;
+    private final double lostThroughput;
+
+    /**
+     * Creates a fleet report.
+     *
+     * @param customers the number of customers served or turned away
+     * @param sold the number of coffees sold across the fleet
+     * @param revenue the money earned across the fleet during the run
+     * @param elapsedNanos the wall-clock duration of the run
+     * @param stockouts the number of stockouts per machine, indexed by machine id
+     * @param refills the number of times machines refilled themselves
+     * @param cleanings the number of cleanings across the fleet
+     * @param turnedAwayForCleaning the number of customers turned away while all brew units were cleaning
+     * @param lostThroughput the average share of brewing capacity lost to cleaning
+     */
+    FleetReport(long customers, long sold, long revenue, long elapsedNanos, long[] stockouts, long refills,
+                long cleanings, long turnedAwayForCleaning, double lostThroughput) {
+        this.customers = customers;
+        this.sold = sold;
+        this.revenue = revenue;
+        this.elapsedNanos = elapsedNanos;
+        this.stockouts = stockouts;
+        this.refills = refills;
+        this.cleanings = cleanings;
+        this.turnedAwayForCleaning = turnedAwayForCleaning;
+        this.lostThroughput = lostThroughput;
+    }
+
+    /**
+     * Returns the number of customers in the run.
+     *
+     * @return the customer count
+     */
+    public long getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Returns the number of coffees sold across the fleet.
+     *
+     * @return the sold count
+     */
+    public long getSold() {
+        return sold;
+    }
+
+    /**
+     * Returns the money earned across the fleet during the run.
+     *
+     * @return the revenue
+     */
+    public long getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Returns the number of customers handled per second of wall-clock time.
+     *
+     * @return the aggregate throughput
+     */
+    public double getCustomersPerSecond() {
+        return elapsedNanos == 0 ? 0 : customers * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the number of stockouts of one machine.
+     *
+     * @param machineId the machine id
+     * @return the stockout count of that machine
+     */
+    public long getStockouts(int machineId) {
+        return stockouts[machineId];
+    }
+
+    /**
+     * Returns the number of stockouts across the fleet.
+     *
+     * @return the total stockout count
+     */
+    public long getTotalStockouts() {
+        long total = 0;
+        for (long count : stockouts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of times machines refilled themselves during the run.
+     *
+     * @return the refill count
+     */
+    public long getRefills() {
+        return refills;
+    }
+
+    /**
+     * Returns the number of cleanings across the fleet during the run.
+     *
+     * @return the cleaning count
+     */
+    public long getCleanings() {
+        return cleanings;
+    }
+
+    /**
+     * Returns the number of customers turned away because every brew unit of their machine was cleaning.
+     *
+     * @return the count of customers lost to cleaning
+     */
+    public long getTurnedAwayForCleaning() {
+        return turnedAwayForCleaning;
+    }
+
+    /**
+     * Returns the average share of brewing capacity the machines lost to automatic cleanings.
+     *
+     * @return a fraction between 0 and 1
+     */
+    public double getLostThroughput() {
+        return lostThroughput;
+    }
+
+    /**
+     * Prints the aggregate figures and the machines with the most stockouts.
+     *
+     * @param output where to print the report
+     * @param topMachines how many machines with the most stockouts to list
+     */
+    public void print(Output output, int topMachines) {
+        output.printf("%d machines served %d customers in %.3f s (%.0f customers/s)%n",
+                stockouts.length, customers, elapsedNanos / 1e9, getCustomersPerSecond());
+        output.printf("%d coffees sold, $%d of revenue, %d stockouts, %d refills%n",
+                sold, revenue, getTotalStockouts(), refills);
+        output.printf("%d cleanings, %d customers turned away while cleaning, %.2f%% of brewing capacity lost%n",
+                cleanings, turnedAwayForCleaning, lostThroughput * 100);
+
+        boolean[] listed = new boolean[stockouts.length];
+        for (int rank = 0; rank < Math.min(topMachines, stockouts.length); rank++) {
+            int worst = -1;
+            for (int machine = 0; machine < stockouts.length; machine++) {
+                if (!listed[machine] && (worst < 0 || stockouts[machine] > stockouts[worst])) {
+                    worst = machine;
+                }
+            }
+            if (stockouts[worst] == 0) {
+                break;
+            }
+            listed[worst] = true;
+            output.printf("machine %d: %d stockouts%n", worst, stockouts[worst]);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package machine.fleet;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.CoffeeFactory;
+import machine.maintenance.MaintenanceScheduler;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.PlainInventory;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hosts a fleet of independent coffee machines and lets simulated customers buy from them.
+ * Every customer runs as its own task, on a virtual thread where the JDK supports it,
+ * picks a random machine and a random drink, and optionally lingers before ordering.
+ */
+public class FleetSimulator {
+
+    private static final Coffee[] DRINKS = {
+            CoffeeFactory.createCoffee(CoffeeOptions.ESPRESSO),
+            CoffeeFactory.createCoffee(CoffeeOptions.LATTE),
+            CoffeeFactory.createCoffee(CoffeeOptions.CAPPUCCINO)
+    };
+
+    private final FleetMachine[] machines;
+    private final long thinkTimeMillis;
+
+    /**
+     * Creates a fleet where every machine starts with the default supplies
+     * (400 ml water, 540 ml milk, 120 g coffee beans, 9 cups) and $550,
+     * and cleans itself every 10 coffees.
+     *
+     * @param machineCount the number of machines in the fleet
+     * @param thinkTimeMillis how long each customer waits before ordering
+     * @throws IllegalArgumentException if the machine count is not positive or the think time is negative
+     */
+    public FleetSimulator(int machineCount, long thinkTimeMillis) {
+        this(machineCount, thinkTimeMillis, MaintenanceScheduler::everyTenCoffees);
+    }
+
+    /**
+     * Creates a fleet where every machine starts with the default supplies and money
+     * and follows its own instance of the given cleaning policy.
+     *
+     * @param machineCount the number of machines in the fleet
+     * @param thinkTimeMillis how long each customer waits before ordering
+     * @param maintenance creates the cleaning policy of each machine
+     * @throws IllegalArgumentException if the machine count is not positive or the think time is negative
+     */
+    public FleetSimulator(int machineCount, long thinkTimeMillis, Supplier<MaintenanceScheduler> maintenance) {
+        this(machineCount, thinkTimeMillis, maintenance, false);
+    }
+
+    /**
+     * Creates a fleet where every machine starts with the default supplies and money,
+     * follows its own instance of the given cleaning policy and optionally refills itself
+     * to the default supplies whenever a customer's drink can't be made.
+     *
+     * @param machineCount the number of machines in the fleet
+     * @param thinkTimeMillis how long each customer waits before ordering
+     * @param maintenance creates the cleaning policy of each machine
+     * @param refillWhenEmpty whether machines refill instead of turning customers away for lack of supplies
+     * @throws IllegalArgumentException if the machine count is not positive or the think time is negative
+     */
+    public FleetSimulator(int machineCount, long thinkTimeMillis, Supplier<MaintenanceScheduler> maintenance,
+                          boolean refillWhenEmpty) {
+        if (machineCount <= 0) {
+            throw new IllegalArgumentException("A fleet needs at least one machine");
+        }
+        if (thinkTimeMillis < 0) {
+            throw new IllegalArgumentException("Think time can't be negative");
+        }
+        this.machines = new FleetMachine[machineCount];
+        for (int id = 0; id < machineCount; id++) {
+            SupplyCalculator supplyCalculator =
+                    new SupplyCalculator(new PlainInventory(400, 540, 120, 9), maintenance.get());
+            machines[id] = new FleetMachine(id, supplyCalculator, new CashRegister(550), refillWhenEmpty);
+        }
+        this.thinkTimeMillis = thinkTimeMillis;
+    }
+
+    /**
+     * Returns a machine of the fleet.
+     *
+     * @param id the machine id
+     * @return the machine
+     */
+    public FleetMachine getMachine(int id) {
+        return machines[id];
+    }
+
+    /**
+     * Returns the number of machines in the fleet.
+     *
+     * @return the fleet size
+     */
+    public int size() {
+        return machines.length;
+    }
+
+    /**
+     * Sends the given number of customers to the fleet and waits until all of them were served.
+     *
+     * @param customers the number of customers to simulate
+     * @return the aggregate throughput and per-machine stockouts of this run
+     * @throws InterruptedException if interrupted while waiting for the customers
+     */
+    public FleetReport run(long customers) throws InterruptedException {
+        long[] soldBefore = new long[machines.length];
+        long[] stockoutsBefore = new long[machines.length];
+        long moneyBefore = 0;
+        long turnedAwayBefore = 0;
+        long cleaningsBefore = 0;
+        long refillsBefore = 0;
+        for (FleetMachine machine : machines) {
+            soldBefore[machine.getId()] = machine.getSold();
+            stockoutsBefore[machine.getId()] = machine.getStockouts();
+            moneyBefore += machine.getMoney();
+            turnedAwayBefore += machine.getTurnedAwayForCleaning();
+            cleaningsBefore += machine.getSupplyCalculator().getMaintenance().getCleanings();
+            refillsBefore += machine.getRefills();
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = CustomerExecutors.newCustomerExecutor();
+        try {
+            for (long customer = 0; customer < customers; customer++) {
+                executor.execute(this::visit);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long sold = 0;
+        long moneyAfter = 0;
+        long turnedAway = 0;
+        long cleanings = 0;
+        long refills = 0;
+        double lostThroughput = 0;
+        long[] stockouts = new long[machines.length];
+        for (FleetMachine machine : machines) {
+            MaintenanceScheduler maintenance = machine.getSupplyCalculator().getMaintenance();
+            sold += machine.getSold() - soldBefore[machine.getId()];
+            stockouts[machine.getId()] = machine.getStockouts() - stockoutsBefore[machine.getId()];
+            moneyAfter += machine.getMoney();
+            turnedAway += machine.getTurnedAwayForCleaning();
+            cleanings += maintenance.getCleanings();
+            refills += machine.getRefills();
+            lostThroughput += maintenance.getLostThroughput();
+        }
+        return new FleetReport(customers, sold, moneyAfter - moneyBefore, elapsed, stockouts,
+                refills - refillsBefore, cleanings - cleaningsBefore, turnedAway - turnedAwayBefore, lostThroughput / machines.length);
+    }
+
+    /**
+     * One customer: wait, pick a machine and a drink, and order.
+     */
+    private void visit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (thinkTimeMillis > 0) {
+            try {
+                Thread.sleep(random.nextLong(thinkTimeMillis + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        machines[random.nextInt(machines.length)].serve(DRINKS[random.nextInt(DRINKS.length)]);
+    }
+
+    /**
+     * Checks whether customers run on virtual threads on this JDK.
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean usesVirtualThreads() {
+        return CustomerExecutors.hasVirtualThreads();
+    }
+}
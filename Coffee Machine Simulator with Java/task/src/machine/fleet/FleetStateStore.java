@@ -0,0 +1,404 @@
+package machine.fleet;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.maintenance.MaintenanceScheduler;
+import machine.supplycalculator.Inventory;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.Arrays;
+
+/**
+ * The state of a very large fleet kept as one primitive array per field, indexed by machine id.
+ * <p>
+ * A million machines take about 28 MB in six arrays instead of millions of small objects, and
+ * fleet-wide questions become tight loops over a single array that the JIT can unroll and
+ * vectorize: {@link #fillAll}, {@link #canMake}, {@link #capacityHistogram} and {@link #getTotalMoney()}.
+ * When one machine has to be driven through the regular API, {@link #supplyCalculator(int)}
+ * and {@link #cashRegister(int)} return views that read and write its row in place.
+ * </p>
+ * The store is not thread-safe; partition the machine ids between threads or confine the store to one.
+ */
+public class FleetStateStore {
+
+    /**
+     * Machines per block of the capacity query; the block's working arrays fit in the L1 cache.
+     */
+    private static final int CAPACITY_BLOCK = 2048;
+    private static final int HISTOGRAM_LANES = 4;
+
+    private final int[] water;
+    private final int[] milk;
+    private final int[] coffeeBeans;
+    private final int[] disposableCups;
+    private final long[] money;
+    private final int[] coffeesSinceCleaning;
+
+    /**
+     * Creates a store of machines that all start with the same supplies and money.
+     *
+     * @param machines the number of machines
+     * @param waterSupply the amount of water in milliliters
+     * @param milkSupply the amount of milk in milliliters
+     * @param gramsCoffeeSupply the amount of coffee beans in grams
+     * @param disposableCupsSupply the number of disposable cups
+     * @param startingMoney the money in each cash register
+     * @throws IllegalArgumentException if the machine count or any amount is negative
+     */
+    public FleetStateStore(int machines, int waterSupply, int milkSupply, int gramsCoffeeSupply,
+                           int disposableCupsSupply, long startingMoney) {
+        if (machines < 0 || waterSupply < 0 || milkSupply < 0 || gramsCoffeeSupply < 0
+                || disposableCupsSupply < 0 || startingMoney < 0) {
+            throw new IllegalArgumentException("Fleet sizes and supplies can't be negative.");
+        }
+        this.water = new int[machines];
+        this.milk = new int[machines];
+        this.coffeeBeans = new int[machines];
+        this.disposableCups = new int[machines];
+        this.money = new long[machines];
+        this.coffeesSinceCleaning = new int[machines];
+        Arrays.fill(water, waterSupply);
+        Arrays.fill(milk, milkSupply);
+        Arrays.fill(coffeeBeans, gramsCoffeeSupply);
+        Arrays.fill(disposableCups, disposableCupsSupply);
+        Arrays.fill(money, startingMoney);
+    }
+
+    /**
+     * Returns the number of machines.
+     *
+     * @return the fleet size
+     */
+    public int size() {
+        return water.length;
+    }
+
+    /**
+     * Adds the same amounts to the supplies of every machine.
+     *
+     * @param waterAmount amount of water to add in milliliters
+     * @param milkAmount amount of milk to add in milliliters
+     * @param gramsCoffeeAmount amount of coffee beans to add in grams
+     * @param cupsAmount number of disposable cups to add
+     * @throws IllegalArgumentException if any of the amounts are negative, or a machine's supply
+     *                                  would exceed {@link Integer#MAX_VALUE}; no machine is filled then
+     */
+    public void fillAll(int waterAmount, int milkAmount, int gramsCoffeeAmount, int cupsAmount) {
+        if (waterAmount < 0 || milkAmount < 0 || gramsCoffeeAmount < 0 || cupsAmount < 0) {
+            throw new IllegalArgumentException("FillSupplies does not support negative arguments");
+        }
+        // one column per loop keeps each loop a plain vectorizable array add; non-short-circuit ands fill all four
+        boolean fits = addToAll(water, waterAmount) & addToAll(milk, milkAmount)
+                & addToAll(coffeeBeans, gramsCoffeeAmount) & addToAll(disposableCups, cupsAmount);
+        if (!fits) {
+            // int arithmetic wraps back exactly, so subtracting restores every row
+            addToAll(water, -waterAmount);
+            addToAll(milk, -milkAmount);
+            addToAll(coffeeBeans, -gramsCoffeeAmount);
+            addToAll(disposableCups, -cupsAmount);
+            throw new IllegalArgumentException("Supplies exceed the capacity of a machine");
+        }
+    }
+
+    /**
+     * Marks which machines have the supplies for one more cup of the given coffee.
+     *
+     * @param coffee the coffee to check
+     * @param result receives, per machine id, whether that machine can make the coffee
+     * @return the number of machines that can make it
+     * @throws IllegalArgumentException if the result array is shorter than the fleet
+     */
+    public int canMake(Coffee coffee, boolean[] result) {
+        if (result.length < water.length) {
+            throw new IllegalArgumentException("Result array is smaller than the fleet");
+        }
+        int waterNeeded = coffee.getWaterNeeded();
+        int milkNeeded = coffee.getMilkNeeded();
+        int coffeeBeansNeeded = coffee.getCoffeeBeansNeeded();
+        int cupsNeeded = coffee.getDisposableCupsNeeded();
+        int count = 0;
+        for (int machine = 0; machine < water.length; machine++) {
+            // non-short-circuit ands keep the loop free of branches
+            boolean possible = water[machine] >= waterNeeded & milk[machine] >= milkNeeded
+                    & coffeeBeans[machine] >= coffeeBeansNeeded & disposableCups[machine] >= cupsNeeded;
+            result[machine] = possible;
+            count += possible ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Computes, for every machine, how many cups of the coffee its supplies cover, and counts the
+     * machines per capacity bucket. This is {@link SupplyCalculator#calculateSuppliesBeforeSell(Coffee)}
+     * for the whole fleet at once.
+     * <p>
+     * The fleet is processed in blocks that stay in the CPU cache. Within a block, each supply column
+     * is divided by the recipe's need and folded into the running minimum in one loop per column.
+     * Integer division has no SIMD instruction, so each division is replaced by a multiplication
+     * with a precomputed reciprocal and a shift, which is exact for every non-negative {@code int}
+     * and lets the JIT vectorize the loop.
+     * </p>
+     *
+     * @param name the name printed for the recipe
+     * @param coffee the recipe
+     * @return the capacity histogram of the fleet
+     */
+    public CapacityHistogram capacityHistogram(String name, Coffee coffee) {
+        // four interleaved sets of counters, so consecutive machines in the same bucket
+        // do not wait on each other's increment
+        long[] counters = new long[HISTOGRAM_LANES * CapacityHistogram.BUCKETS];
+        int[] capacity = new int[CAPACITY_BLOCK];
+        for (int from = 0; from < water.length; from += CAPACITY_BLOCK) {
+            int length = Math.min(CAPACITY_BLOCK, water.length - from);
+            Arrays.fill(capacity, 0, length, Integer.MAX_VALUE);
+            limitCapacity(capacity, water, from, length, coffee.getWaterNeeded());
+            limitCapacity(capacity, milk, from, length, coffee.getMilkNeeded());
+            limitCapacity(capacity, coffeeBeans, from, length, coffee.getCoffeeBeansNeeded());
+            limitCapacity(capacity, disposableCups, from, length, coffee.getDisposableCupsNeeded());
+            for (int machine = 0; machine < length; machine++) {
+                int lane = machine & (HISTOGRAM_LANES - 1);
+                counters[lane * CapacityHistogram.BUCKETS + CapacityHistogram.bucketOf(capacity[machine])]++;
+            }
+        }
+        long[] buckets = new long[CapacityHistogram.BUCKETS];
+        for (int lane = 0; lane < HISTOGRAM_LANES; lane++) {
+            for (int bucket = 0; bucket < CapacityHistogram.BUCKETS; bucket++) {
+                buckets[bucket] += counters[lane * CapacityHistogram.BUCKETS + bucket];
+            }
+        }
+        return new CapacityHistogram(name, buckets);
+    }
+
+    /**
+     * Computes the capacity histogram of every recipe in a registry, see {@link #capacityHistogram}.
+     *
+     * @param registry the recipes to check
+     * @return one histogram per recipe, indexed by recipe id
+     */
+    public CapacityHistogram[] capacityHistograms(RecipeRegistry registry) {
+        CapacityHistogram[] histograms = new CapacityHistogram[registry.size()];
+        for (int id = 0; id < histograms.length; id++) {
+            Recipe recipe = registry.get(id);
+            histograms[id] = capacityHistogram(recipe.getName(), recipe);
+        }
+        return histograms;
+    }
+
+    /**
+     * Returns the money held by all cash registers together.
+     *
+     * @return the total money of the fleet
+     */
+    public long getTotalMoney() {
+        long total = 0;
+        for (long registerMoney : money) {
+            total += registerMoney;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the supplies of one machine as an {@link Inventory} that reads and writes its row.
+     *
+     * @param machine the machine id
+     * @return the row view
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public Inventory inventory(int machine) {
+        checkId(machine);
+        return new RowInventory(machine);
+    }
+
+    /**
+     * Returns a supply calculator working on one machine's row. Its cleaning schedule starts from the
+     * stored cleaning count, and every sale and cleaning through it updates that count.
+     *
+     * @param machine the machine id
+     * @return the supply calculator view
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public SupplyCalculator supplyCalculator(int machine) {
+        checkId(machine);
+        MaintenanceScheduler maintenance = MaintenanceScheduler.everyTenCoffees();
+        maintenance.recordBrews(coffeesSinceCleaning[machine]);
+        SupplyCalculator supplyCalculator = new SupplyCalculator(new RowInventory(machine), maintenance);
+        supplyCalculator.addListener(new MachineListener() {
+            @Override
+            public void coffeeSold(Coffee coffee, int count, long amount) {
+                coffeesSinceCleaning[machine] += count;
+            }
+
+            @Override
+            public void machineCleaned() {
+                coffeesSinceCleaning[machine] = 0;
+            }
+        });
+        return supplyCalculator;
+    }
+
+    /**
+     * Returns a cash register that reads and writes one machine's money.
+     *
+     * @param machine the machine id
+     * @return the cash register view
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public CashRegister cashRegister(int machine) {
+        checkId(machine);
+        return new RowCashRegister(machine);
+    }
+
+    /**
+     * Returns the number of coffees a machine made since it was last cleaned.
+     *
+     * @param machine the machine id
+     * @return the cleaning count
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public int getCoffeesSinceCleaning(int machine) {
+        checkId(machine);
+        return coffeesSinceCleaning[machine];
+    }
+
+    /**
+     * Lowers each capacity in the block to what one supply column covers. A recipe that needs none of
+     * the supply is not limited by it. The quotient {@code supply / needed} is computed as
+     * {@code supply * m >>> shift} with {@code m = floor(2^shift / needed) + 1} and
+     * {@code shift = 31 + ceil(log2(needed))}, which is exact for supplies below {@code 2^31}
+     * and never overflows a {@code long}.
+     */
+    static void limitCapacity(int[] capacity, int[] column, int from, int length, int needed) {
+        if (needed <= 0) {
+            return;
+        }
+        int shift = 31 + (32 - Integer.numberOfLeadingZeros(needed - 1));
+        long reciprocal = (1L << shift) / needed + 1;
+        for (int machine = 0; machine < length; machine++) {
+            // supplies never go negative in the store; clamping keeps the multiplication exact anyway
+            int quotient = (int) ((Math.max(0, column[from + machine]) * reciprocal) >>> shift);
+            capacity[machine] = Math.min(capacity[machine], quotient);
+        }
+    }
+
+    /**
+     * Adds an amount to every row of a column and reports whether every sum fit. Supplies are
+     * never negative, so adding a non-negative amount overflowed exactly where the sum turned negative.
+     */
+    private static boolean addToAll(int[] column, int amount) {
+        int signs = 0;
+        for (int machine = 0; machine < column.length; machine++) {
+            int sum = column[machine] + amount;
+            column[machine] = sum;
+            signs |= sum;
+        }
+        return signs >= 0;
+    }
+
+    private static void checkCapacity(long water, long milk, long coffeeBeans, long disposableCups) {
+        if (water > Integer.MAX_VALUE || milk > Integer.MAX_VALUE
+                || coffeeBeans > Integer.MAX_VALUE || disposableCups > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Supplies exceed the capacity of a machine");
+        }
+    }
+
+    private void checkId(int machine) {
+        if (machine < 0 || machine >= water.length) {
+            throw new IllegalArgumentException("No machine with id " + machine);
+        }
+    }
+
+    /**
+     * One row of the supply columns behind the {@link Inventory} interface.
+     */
+    private final class RowInventory implements Inventory {
+
+        private final int machine;
+
+        RowInventory(int machine) {
+            this.machine = machine;
+        }
+
+        @Override
+        public int getWater() {
+            return water[machine];
+        }
+
+        @Override
+        public int getMilk() {
+            return milk[machine];
+        }
+
+        @Override
+        public int getCoffeeBeans() {
+            return coffeeBeans[machine];
+        }
+
+        @Override
+        public int getDisposableCups() {
+            return disposableCups[machine];
+        }
+
+        /**
+         * Adds the given amounts to the row.
+         *
+         * @throws IllegalArgumentException if a supply would exceed {@link Integer#MAX_VALUE}
+         */
+        @Override
+        public void add(int waterAmount, int milkAmount, int coffeeBeansAmount, int disposableCupsAmount) {
+            // summed in long, so a huge amount cannot wrap around to a value that passes the check
+            checkCapacity((long) water[machine] + waterAmount, (long) milk[machine] + milkAmount,
+                    (long) coffeeBeans[machine] + coffeeBeansAmount,
+                    (long) disposableCups[machine] + disposableCupsAmount);
+            water[machine] += waterAmount;
+            milk[machine] += milkAmount;
+            coffeeBeans[machine] += coffeeBeansAmount;
+            disposableCups[machine] += disposableCupsAmount;
+        }
+
+        @Override
+        public boolean tryTake(int waterAmount, int milkAmount, int coffeeBeansAmount, int disposableCupsAmount) {
+            if (water[machine] < waterAmount || milk[machine] < milkAmount
+                    || coffeeBeans[machine] < coffeeBeansAmount || disposableCups[machine] < disposableCupsAmount) {
+                return false;
+            }
+            water[machine] -= waterAmount;
+            milk[machine] -= milkAmount;
+            coffeeBeans[machine] -= coffeeBeansAmount;
+            disposableCups[machine] -= disposableCupsAmount;
+            return true;
+        }
+    }
+
+    /**
+     * One row of the money column behind the {@link CashRegister} API.
+     */
+    private final class RowCashRegister extends CashRegister {
+
+        private final int machine;
+
+        RowCashRegister(int machine) {
+            super(0);
+            this.machine = machine;
+        }
+
+        @Override
+        public long getMoney() {
+            return money[machine];
+        }
+
+        @Override
+        protected void add(long amount) {
+            money[machine] += amount;
+        }
+
+        @Override
+        protected long removeAll() {
+            long taken = money[machine];
+            money[machine] = 0;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package machine.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link Output} that collects text in a character buffer and hands it to the
+ * underlying stream in large batches. Text only becomes visible once the buffer
+ * fills up or {@link #flush()} is called, which makes it suited for scripted
+ * sessions rather than interactive use.
+ */
+public class BufferedOutput implements Output {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer writer;
+    private final char[] buffer;
+    private int position;
+
+    /**
+     * Creates a buffered output with a 64 KiB buffer.
+     *
+     * @param out the stream receiving the text
+     */
+    public BufferedOutput(OutputStream out) {
+        this(out, 1 << 16);
+    }
+
+    /**
+     * Creates a buffered output.
+     *
+     * @param out the stream receiving the text
+     * @param bufferSize the number of characters collected before writing a batch
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public BufferedOutput(OutputStream out, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.buffer = new char[bufferSize];
+    }
+
+    @Override
+    public void print(String text) {
+        int length = text.length();
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            text.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+
+    @Override
+    public void println(String text) {
+        print(text);
+        print(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void println() {
+        print(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        print(String.format(format, args));
+    }
+
+    @Override
+    public void flush() {
+        drain();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            writer.write(buffer, 0, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package machine.io;
+
+/**
+ * Writes straight to {@link System#out}, exactly like the machine always did.
+ * This is the default {@link Output}.
+ */
+public class ConsoleOutput implements Output {
+
+    @Override
+    public void print(String text) {
+        System.out.print(text);
+    }
+
+    @Override
+    public void println(String text) {
+        System.out.println(text);
+    }
+
+    @Override
+    public void println() {
+        System.out.println();
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        System.out.printf(format, args);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
@@ -0,0 +1,158 @@
+package machine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.Scanner;
+
+/**
+ * {@link Input} that tokenizes a byte stream directly instead of going through
+ * {@link Scanner}'s regular expressions. Plain decimal numbers are parsed from the bytes
+ * without creating strings, and lines are decoded as UTF-8.
+ * Accepts {@code \n} and {@code \r\n} line endings.
+ * <p>
+ * A token that is not a plain decimal number is handed to a {@link Scanner} in the default
+ * locale, so integers are read exactly as {@link ScannerInput} reads them, including group
+ * separators such as {@code 1,000}. Tokens are separated by ASCII whitespace.
+ * </p>
+ */
+public class FastInput implements Input {
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private byte[] line = new byte[128];
+    private byte[] token = new byte[32];
+
+    /**
+     * Creates an input with a 64 KiB read buffer.
+     *
+     * @param in the stream to read from
+     */
+    public FastInput(InputStream in) {
+        this(in, 1 << 16);
+    }
+
+    /**
+     * Creates an input.
+     *
+     * @param in the stream to read from
+     * @param bufferSize the number of bytes read from the stream at once
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public FastInput(InputStream in, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public String nextLine() {
+        if (!fill()) {
+            throw new NoSuchElementException("No line found");
+        }
+        int length = 0;
+        while (fill()) {
+            byte b = buffer[position++];
+            if (b == '\n') {
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int nextInt() {
+        OptionalInt value = tryNextInt();
+        if (value.isEmpty()) {
+            throw new InputMismatchException();
+        }
+        return value.getAsInt();
+    }
+
+    @Override
+    public OptionalInt tryNextInt() {
+        while (fill() && isWhitespace(buffer[position])) {
+            position++;
+        }
+        if (!fill()) {
+            throw new NoSuchElementException();
+        }
+
+        int length = 0;
+        // the whole token is consumed even once it is known to be malformed
+        while (fill() && !isWhitespace(buffer[position])) {
+            if (length == token.length) {
+                token = Arrays.copyOf(token, length * 2);
+            }
+            token[length++] = buffer[position++];
+        }
+
+        boolean negative = token[0] == '-';
+        int start = negative || token[0] == '+' ? 1 : 0;
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return scan(length);
+            }
+            if (value <= Integer.MAX_VALUE) {
+                value = value * 10 + digit;
+            }
+        }
+        value = negative ? -value : value;
+        if (start == length || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of((int) value);
+    }
+
+    /**
+     * Reads a token that is not a plain decimal number the way {@link Scanner#nextInt()} would.
+     */
+    private OptionalInt scan(int length) {
+        Scanner scanner = new Scanner(new String(token, 0, length, StandardCharsets.UTF_8));
+        return scanner.hasNextInt() ? OptionalInt.of(scanner.nextInt()) : OptionalInt.empty();
+    }
+
+    /**
+     * Makes sure at least one unread byte is buffered.
+     *
+     * @return false if the stream is exhausted
+     */
+    private boolean fill() {
+        if (position < limit) {
+            return true;
+        }
+        try {
+            int read = in.read(buffer, 0, buffer.length);
+            while (read == 0) {
+                read = in.read(buffer, 0, buffer.length);
+            }
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
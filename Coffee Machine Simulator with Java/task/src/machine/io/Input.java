@@ -0,0 +1,37 @@
+package machine.io;
+
+import java.util.OptionalInt;
+
+/**
+ * Source of the commands and amounts typed into the coffee machine.
+ * Follows the semantics of {@link java.util.Scanner}: {@link #nextInt()} skips any
+ * whitespace, including line breaks, and {@link #nextLine()} returns the rest of the current line.
+ */
+public interface Input {
+
+    /**
+     * Returns the rest of the current line, without its line separator.
+     *
+     * @return the line
+     * @throws java.util.NoSuchElementException if the input is exhausted
+     */
+    String nextLine();
+
+    /**
+     * Reads the next whitespace-delimited token as an {@code int}.
+     *
+     * @return the parsed number
+     * @throws java.util.InputMismatchException if the token is not an integer
+     * @throws java.util.NoSuchElementException if the input is exhausted
+     */
+    int nextInt();
+
+    /**
+     * Reads the next whitespace-delimited token as an {@code int} without throwing on a malformed one.
+     * The token is consumed either way, so a caller can report it and carry on with the next.
+     *
+     * @return the parsed number, or an empty optional if the token is not an integer
+     * @throws java.util.NoSuchElementException if the input is exhausted
+     */
+    OptionalInt tryNextInt();
+}
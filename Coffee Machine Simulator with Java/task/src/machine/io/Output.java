@@ -0,0 +1,40 @@
+package machine.io;
+
+/**
+ * Destination for everything the coffee machine prints.
+ * Mirrors the subset of {@link java.io.PrintStream} the machine uses.
+ */
+public interface Output {
+
+    /**
+     * Writes a string without a line separator.
+     *
+     * @param text the text to write
+     */
+    void print(String text);
+
+    /**
+     * Writes a string followed by a line separator.
+     *
+     * @param text the text to write
+     */
+    void println(String text);
+
+    /**
+     * Writes a line separator.
+     */
+    void println();
+
+    /**
+     * Writes a formatted string, see {@link String#format(String, Object...)}.
+     *
+     * @param format the format string
+     * @param args the arguments referenced by the format
+     */
+    void printf(String format, Object... args);
+
+    /**
+     * Pushes any buffered text to the underlying destination.
+     */
+    void flush();
+}
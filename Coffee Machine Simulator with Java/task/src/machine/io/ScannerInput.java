@@ -0,0 +1,42 @@
+package machine.io;
+
+import java.io.InputStream;
+import java.util.OptionalInt;
+import java.util.Scanner;
+
+/**
+ * {@link Input} backed by a {@link Scanner}. This is the default used for the console.
+ */
+public class ScannerInput implements Input {
+
+    private final Scanner scanner;
+
+    /**
+     * Creates an input reading from the given stream.
+     *
+     * @param in the stream to read from
+     */
+    public ScannerInput(InputStream in) {
+        this.scanner = new Scanner(in);
+    }
+
+    @Override
+    public String nextLine() {
+        return scanner.nextLine();
+    }
+
+    @Override
+    public int nextInt() {
+        return scanner.nextInt();
+    }
+
+    @Override
+    public OptionalInt tryNextInt() {
+        if (scanner.hasNextInt()) {
+            return OptionalInt.of(scanner.nextInt());
+        }
+        // the scanner leaves a mismatched token in place, so skip it explicitly
+        scanner.next();
+        return OptionalInt.empty();
+    }
+}
@@ -0,0 +1,377 @@
+package machine.maintenance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when the brew units of one coffee machine need cleaning and keeps track
+ * of what the cleaning policy costs.
+ * <p>
+ * A unit becomes due after a number of brews or, optionally, after a maximum time since
+ * its last cleaning. What happens next depends on the cleaning duration:
+ * </p>
+ * <ul>
+ *     <li>With a duration of zero the unit waits for an operator to {@link #cleanAll() clean}
+ *     the machine, which is how the interactive machine has always behaved.</li>
+ *     <li>With a positive duration the unit starts cleaning itself the moment it becomes due
+ *     and is out of service for that long, while the other units keep brewing.</li>
+ * </ul>
+ * The machine only has to turn customers away once every unit is due or cleaning.
+ * Times come from the supplied clock in nanoseconds, so simulations can use a virtual clock.
+ * <p>
+ * Brews are counted per unit with compare-and-set, and whether a unit is in service follows
+ * from its counters and the time it became due, so {@link #isReadyToClean()} and
+ * {@link #recordBrew()} never lock on the sell path. The lock is only taken to book an
+ * automatic cleaning that has ended and by {@link #cleanAll()}.
+ * </p>
+ */
+public class MaintenanceScheduler {
+
+    // the unit has not become due by brew count since it was last cleaned
+    private static final long NOT_DUE = Long.MIN_VALUE;
+
+    private final int brewsBeforeCleaning;
+    private final long maxNanosBetweenCleanings;
+    private final long cleaningNanos;
+    private final LongSupplier clock;
+
+    private final AtomicIntegerArray brews;
+    private final AtomicLongArray lastCleaned;
+    private final AtomicLongArray dueAt;
+    private final AtomicInteger nextUnit = new AtomicInteger();
+    private final long createdAt;
+    // cleanings and out-of-service time already booked, guarded by this
+    private long cleanings;
+    private long outOfServiceNanos;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param brewsBeforeCleaning the number of brews after which a unit is due
+     * @param maxNanosBetweenCleanings the maximum time between two cleanings of a unit, or 0 for no limit
+     * @param cleaningNanos how long an automatic cleaning keeps a unit out of service,
+     *                      or 0 to wait for {@link #cleanAll()}
+     * @param brewUnits the number of brew units in the machine
+     * @param clock the time source in nanoseconds
+     * @throws IllegalArgumentException if a count is not positive or a duration is negative
+     */
+    public MaintenanceScheduler(int brewsBeforeCleaning, long maxNanosBetweenCleanings, long cleaningNanos,
+                                int brewUnits, LongSupplier clock) {
+        if (brewsBeforeCleaning <= 0 || brewUnits <= 0) {
+            throw new IllegalArgumentException("Brews before cleaning and brew units must be positive");
+        }
+        if (maxNanosBetweenCleanings < 0 || cleaningNanos < 0) {
+            throw new IllegalArgumentException("Cleaning intervals can't be negative");
+        }
+        this.brewsBeforeCleaning = brewsBeforeCleaning;
+        this.maxNanosBetweenCleanings = maxNanosBetweenCleanings;
+        this.cleaningNanos = cleaningNanos;
+        this.clock = clock;
+        this.brews = new AtomicIntegerArray(brewUnits);
+        this.lastCleaned = new AtomicLongArray(brewUnits);
+        this.dueAt = new AtomicLongArray(brewUnits);
+        this.createdAt = clock.getAsLong();
+        for (int unit = 0; unit < brewUnits; unit++) {
+            lastCleaned.set(unit, createdAt);
+            dueAt.set(unit, NOT_DUE);
+        }
+    }
+
+    /**
+     * Creates the classic policy: a single brew unit that needs a manual cleaning every 10 coffees.
+     *
+     * @return a scheduler for one brew unit
+     */
+    public static MaintenanceScheduler everyTenCoffees() {
+        return new MaintenanceScheduler(10, 0, 0, 1, System::nanoTime);
+    }
+
+    /**
+     * Checks whether the machine has to stop serving until it is cleaned,
+     * i.e. whether every brew unit is due or being cleaned. Only reads the counters.
+     *
+     * @return true if no brew unit can take an order
+     */
+    public boolean isReadyToClean() {
+        long now = clock.getAsLong();
+        for (int unit = 0; unit < brews.length(); unit++) {
+            if (isInService(unit, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts one brew against the next brew unit in service.
+     */
+    public void recordBrew() {
+        recordBrews(1);
+    }
+
+    /**
+     * Counts several brews, spreading them over the brew units in service.
+     *
+     * @param count the number of brews
+     */
+    public void recordBrews(int count) {
+        long now = clock.getAsLong();
+        for (int brew = 0; brew < count; brew++) {
+            int start = brews.length() == 1 ? 0 : Math.floorMod(nextUnit.getAndIncrement(), brews.length());
+            if (!tryCount(start, now)) {
+                // the caller checked isReadyToClean, so only a brew racing another terminal runs past the threshold
+                addBrew(start, now);
+            }
+        }
+    }
+
+    /**
+     * Cleans every brew unit at once, as the {@code clean} command does.
+     */
+    public synchronized void cleanAll() {
+        long now = clock.getAsLong();
+        outOfServiceNanos = outOfServiceNanos(now);
+        cleanings += startedCleanings(now) + 1;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            lastCleaned.set(unit, now);
+            dueAt.set(unit, NOT_DUE);
+            brews.set(unit, 0);
+        }
+    }
+
+    /**
+     * Checks whether due units clean themselves or wait for {@link #cleanAll()}.
+     *
+     * @return true if cleanings are automatic and time-costed
+     */
+    public boolean cleansAutomatically() {
+        return cleaningNanos > 0;
+    }
+
+    /**
+     * Returns the number of brew units that can take an order right now.
+     *
+     * @return the number of units in service
+     */
+    public int getUnitsInService() {
+        long now = clock.getAsLong();
+        int inService = 0;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            if (isInService(unit, now)) {
+                inService++;
+            }
+        }
+        return inService;
+    }
+
+    /**
+     * Returns the number of brews counted since the units were last cleaned, summed over all units.
+     *
+     * @return the brews since cleaning
+     */
+    public int getBrewsSinceCleaning() {
+        long now = clock.getAsLong();
+        int total = 0;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            total += brewsSinceCleaning(unit, now);
+        }
+        return total;
+    }
+
+    /**
+     * Returns how many more brews the units in service can take before each of them is due by brew count.
+     * A unit may still fall due earlier on the maximum time between cleanings.
+     *
+     * @return the brews left before cleaning, 0 if the machine is ready to clean
+     */
+    public long getBrewsLeft() {
+        long now = clock.getAsLong();
+        long left = 0;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            if (isInService(unit, now)) {
+                left += Math.max(0, brewsBeforeCleaning - brewsSinceCleaning(unit, now));
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Returns the number of cleanings so far, automatic and manual, including automatic ones in progress.
+     *
+     * @return the cleaning count
+     */
+    public synchronized long getCleanings() {
+        return cleanings + startedCleanings(clock.getAsLong());
+    }
+
+    /**
+     * Returns the brew-unit time spent out of service so far, summed over all units: cleaning
+     * automatically or, with manual cleaning, waiting for the operator after becoming due.
+     *
+     * @return the out-of-service time in nanoseconds
+     */
+    public synchronized long getOutOfServiceNanos() {
+        return outOfServiceNanos(clock.getAsLong());
+    }
+
+    /**
+     * Returns the share of brewing capacity lost to cleanings since the scheduler was created.
+     * With manual cleaning that is the time due units waited for {@link #cleanAll()}, so a machine
+     * that stops until someone types {@code clean} reports that wait.
+     *
+     * @return a fraction between 0 and 1
+     */
+    public synchronized double getLostThroughput() {
+        long now = clock.getAsLong();
+        long elapsed = now - createdAt;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return Math.min(1.0, (double) outOfServiceNanos(now) / ((double) elapsed * brews.length()));
+    }
+
+    /**
+     * Counts a brew against the first unit in service, starting at the given one.
+     *
+     * @return true if a unit in service took the brew
+     */
+    private boolean tryCount(int start, long now) {
+        for (int offset = 0; offset < brews.length(); offset++) {
+            int unit = (start + offset) % brews.length();
+            while (isInService(unit, now)) {
+                if (cleaningNanos > 0 && sinceDue(unit, now) >= 0) {
+                    // the unit finished cleaning itself since it was last used
+                    bookCleanings(unit, now);
+                    continue;
+                }
+                int current = brews.get(unit);
+                if (current >= brewsBeforeCleaning) {
+                    break;
+                }
+                if (brews.compareAndSet(unit, current, current + 1)) {
+                    if (current + 1 == brewsBeforeCleaning) {
+                        markDue(unit, now);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int brewsSinceCleaning(int unit, long now) {
+        // a unit back from cleaning itself has brewed nothing since, even before the cleaning is booked
+        if (cleaningNanos > 0 && sinceDue(unit, now) >= 0 && isInService(unit, now)) {
+            return 0;
+        }
+        return brews.get(unit);
+    }
+
+    private void addBrew(int unit, long now) {
+        if (brews.incrementAndGet(unit) == brewsBeforeCleaning) {
+            markDue(unit, now);
+        }
+    }
+
+    private void markDue(int unit, long now) {
+        dueAt.set(unit, now);
+        if (brews.get(unit) < brewsBeforeCleaning) {
+            // cleanAll reset the unit between the brew and this mark
+            dueAt.compareAndSet(unit, now, NOT_DUE);
+        }
+    }
+
+    /**
+     * Books the automatic cleanings a unit finished since it became due and resets it to the end of the last one.
+     */
+    private synchronized void bookCleanings(int unit, long now) {
+        long sinceDue = sinceDue(unit, now);
+        if (sinceDue < 0 || !isInService(unit, now)) {
+            return;
+        }
+        long period = cleaningPeriod();
+        long finished = sinceDue / period + 1;
+        long lastEnd = now - sinceDue + (finished - 1) * period + cleaningNanos;
+        cleanings += finished;
+        outOfServiceNanos += finished * cleaningNanos;
+        lastCleaned.set(unit, lastEnd);
+        dueAt.set(unit, NOT_DUE);
+        brews.set(unit, 0);
+    }
+
+    /**
+     * Checks whether a unit can take an order: it is not due or, with automatic cleaning,
+     * it is between cleanings it started on its own since becoming due.
+     */
+    private boolean isInService(int unit, long now) {
+        long sinceDue = sinceDue(unit, now);
+        if (sinceDue < 0) {
+            return true;
+        }
+        return cleaningNanos > 0 && sinceDue % cleaningPeriod() >= cleaningNanos;
+    }
+
+    /**
+     * Returns how long ago a unit became due, or -1 if it is not due.
+     */
+    private long sinceDue(int unit, long now) {
+        long since = -1;
+        long due = dueAt.get(unit);
+        if (due != NOT_DUE) {
+            since = now - due;
+        } else if (brews.get(unit) >= brewsBeforeCleaning) {
+            // the brew that made it due has not marked the time yet
+            since = 0;
+        }
+        if (maxNanosBetweenCleanings > 0) {
+            since = Math.max(since, now - lastCleaned.get(unit) - maxNanosBetweenCleanings);
+        }
+        return since;
+    }
+
+    /**
+     * Returns the time from the start of one automatic cleaning of a unit that is never used to the next.
+     */
+    private long cleaningPeriod() {
+        return maxNanosBetweenCleanings > 0 ? maxNanosBetweenCleanings + cleaningNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts the automatic cleanings started but not yet booked.
+     */
+    private long startedCleanings(long now) {
+        if (cleaningNanos == 0) {
+            return 0;
+        }
+        long started = 0;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            long sinceDue = sinceDue(unit, now);
+            if (sinceDue >= 0) {
+                started += sinceDue / cleaningPeriod() + 1;
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Adds the out-of-service time of the units that are due but not booked yet to the booked time.
+     */
+    private long outOfServiceNanos(long now) {
+        long total = outOfServiceNanos;
+        for (int unit = 0; unit < brews.length(); unit++) {
+            long sinceDue = sinceDue(unit, now);
+            if (sinceDue < 0) {
+                continue;
+            }
+            if (cleaningNanos == 0) {
+                total += sinceDue;
+            } else {
+                long period = cleaningPeriod();
+                total += sinceDue / period * cleaningNanos + Math.min(sinceDue % period, cleaningNanos);
+            }
+        }
+        return total;
+    }
+}
@@ -1,5 +1,7 @@
 package machine.menu;
 
+import java.util.Optional;
+
 /**
  * Represents the types of coffee available in the machine,
  * each associated with a numeric code.
@@ -34,6 +36,8 @@ public enum CoffeeOptions {
         return code;
     }
 
+    private static final OptionTable<CoffeeOptions> OPTIONS = new OptionTable<>(values(), CoffeeOptions::getCode);
+
     /**
      * Returns the corresponding CoffeeOptions enum for a given numeric code.
      *
@@ -42,11 +46,17 @@ public enum CoffeeOptions {
      * @throws IllegalArgumentException if the code does not match any option
      */
     public static CoffeeOptions fromCode(String code) {
-        for(CoffeeOptions coffeeOption : CoffeeOptions.values()) {
-            if(coffeeOption.getCode().equalsIgnoreCase(code)) {
-                return coffeeOption;
-            }
-        }
-        throw new IllegalArgumentException("Invalid Coffee Option");
+        return parse(code).orElseThrow(() -> new IllegalArgumentException("Invalid Coffee Option"));
+    }
+
+    /**
+     * Looks up the coffee option for a code, ignoring case, without throwing.
+     * The lookup takes constant time and does not allocate.
+     *
+     * @param code the numeric code or {@code back}; may be null
+     * @return the matching option, or an empty optional if the code names none
+     */
+    public static Optional<CoffeeOptions> parse(String code) {
+        return OPTIONS.find(code);
     }
 }
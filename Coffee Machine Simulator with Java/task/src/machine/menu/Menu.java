@@ -1,12 +1,16 @@
 package machine.menu;
 
 import machine.cashregister.CashRegister;
+import machine.io.Input;
+import machine.io.ScannerInput;
 import machine.messages.PrintMessages;
+import machine.metrics.MachineMetrics;
 import machine.supplycalculator.SupplyCalculator;
 import machine.supplycalculator.SupplyCalculatorDialog;
 import machine.coffees.*;
 
-import java.util.Scanner;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Represents the main menu interface for the Coffee Machine Simulator.
@@ -15,26 +19,82 @@ import java.util.Scanner;
  */
 public class Menu {
 
-    public static Scanner sc = new Scanner(System.in);
+    public static Input sc = new ScannerInput(System.in);
+    private static MachineMetrics metrics;
+    private static long skippedLines;
+
+    /**
+     * Replaces the source the menu reads commands from. Console input is used by default;
+     * output is configured through {@link PrintMessages#setOutput(machine.io.Output)}.
+     *
+     * @param input the new command source
+     */
+    public static void setInput(Input input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input cannot be null");
+        }
+        sc = input;
+    }
+
+    /**
+     * Returns the source the menu currently reads commands from.
+     *
+     * @return the current command source
+     */
+    public static Input getInput() {
+        return sc;
+    }
+
+    /**
+     * Times every sell, fill and take the menu runs into the given metrics.
+     * Pass null to stop timing.
+     *
+     * @param machineMetrics the metrics to record latencies into
+     */
+    public static void setMetrics(MachineMetrics machineMetrics) {
+        metrics = machineMetrics;
+    }
+
+    /**
+     * Returns the number of lines the menu skipped because they named no action or coffee,
+     * or held a fill amount that is not a non-negative number.
+     *
+     * @return the number of skipped lines since the program started
+     */
+    public static long getSkippedLines() {
+        return skippedLines;
+    }
 
     /**
      * Displays the main menu and handles user input to perform different actions
      * such as buy, fill, take, clean, check remaining supplies, or exit.
      */
     public static void showMenu() {
+        showMenu(new SupplyCalculator(400, 540, 120, 9), new CashRegister(550));
+    }
 
-        SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
-        CashRegister cashRegister = new CashRegister(550);
+    /**
+     * Runs the main menu loop against the given machine state until the user exits.
+     *
+     * @param supplyCalculator the supply calculator managing resources
+     * @param cashRegister the cash register handling transactions
+     */
+    public static void showMenu(SupplyCalculator supplyCalculator, CashRegister cashRegister) {
         SupplyCalculatorDialog SDC = new SupplyCalculatorDialog();
         boolean showMenu = true;
 
         while (showMenu) {
             PrintMessages.printAction();
-            MenuOptions option = MenuOptions.fromString(sc.nextLine());
+            Optional<MenuOptions> option = MenuOptions.parse(sc.nextLine());
+            if (option.isEmpty()) {
+                // a mistyped command costs one line, not the session
+                skippedLines++;
+                continue;
+            }
 
-            switch (option) {
+            switch (option.get()) {
                 case BUY -> {
-                    if(SupplyCalculator.isReadyToClean()) {
+                    if(supplyCalculator.isReadyToClean()) {
                         PrintMessages.printReadyToCleanMessage();
                     } else {
                         showBuyMenu(supplyCalculator, cashRegister);
@@ -42,13 +102,13 @@ public class Menu {
                 }
                 case FILL -> {
                     showFillMenu(supplyCalculator);
-                    System.out.println();
+                    PrintMessages.printEmptyLine();
                 }
                 case TAKE -> {
                     showTakeMenu(cashRegister);
                 }
                 case CLEAN -> {
-                    SupplyCalculator.cleanMachine();
+                    supplyCalculator.cleanMachine();
                 }
                 case REMAINING -> {
                     SDC.printCoffeeMachineSupplies(supplyCalculator, cashRegister);
@@ -58,6 +118,7 @@ public class Menu {
                 }
             }
         }
+        PrintMessages.getOutput().flush();
 
     }
 
@@ -69,14 +130,22 @@ public class Menu {
      */
     private static void showBuyMenu(SupplyCalculator supplyCalculator, CashRegister cashRegister) {
         PrintMessages.printWhatCoffeeToBuy();
-        CoffeeOptions coffeeOptions = CoffeeOptions.fromCode(sc.nextLine().trim());
+        Optional<CoffeeOptions> coffeeOptions = CoffeeOptions.parse(sc.nextLine().trim());
+        if (coffeeOptions.isEmpty()) {
+            skippedLines++;
+            return;
+        }
 
-        if(coffeeOptions == CoffeeOptions.BACK) {
+        if(coffeeOptions.get() == CoffeeOptions.BACK) {
             return;
         }
 
-        Coffee coffee = CoffeeFactory.createCoffee(coffeeOptions);
+        Coffee coffee = CoffeeFactory.createCoffee(coffeeOptions.get());
+        long start = metrics != null ? System.nanoTime() : 0;
         supplyCalculator.sellCoffee(coffee, cashRegister);
+        if (metrics != null) {
+            metrics.recordSell(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -86,16 +155,35 @@ public class Menu {
      * @param supplyCalculator the supply calculator to be updated
      */
     public static void showFillMenu(SupplyCalculator supplyCalculator) {
-        PrintMessages.printHowManyWaterToFill();
-        int water = sc.nextInt();
-        PrintMessages.printHowManyMilkToFill();
-        int milk = sc.nextInt();
-        PrintMessages.printHowManyGramsCoffeeToFill();
-        int coffee = sc.nextInt();
-        PrintMessages.printHowManyDisposableCupsToFill();
-        int cups = sc.nextInt();
+        int water = readAmount(PrintMessages::printHowManyWaterToFill);
+        int milk = readAmount(PrintMessages::printHowManyMilkToFill);
+        int coffee = readAmount(PrintMessages::printHowManyGramsCoffeeToFill);
+        int cups = readAmount(PrintMessages::printHowManyDisposableCupsToFill);
         sc.nextLine();
+        long start = metrics != null ? System.nanoTime() : 0;
         supplyCalculator.fillSupplies(water, milk, coffee, cups);
+        if (metrics != null) {
+            metrics.recordFill(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Prompts for one fill amount until a non-negative number is entered.
+     * A mistyped amount costs the rest of its line, which is counted as skipped, and is asked for again.
+     *
+     * @param prompt prints the question for the amount
+     * @return the amount
+     */
+    private static int readAmount(Runnable prompt) {
+        while (true) {
+            prompt.run();
+            OptionalInt amount = sc.tryNextInt();
+            if (amount.isPresent() && amount.getAsInt() >= 0) {
+                return amount.getAsInt();
+            }
+            sc.nextLine();
+            skippedLines++;
+        }
     }
 
     /**
@@ -104,6 +192,10 @@ public class Menu {
      * @param cashRegister the cash register from which to withdraw money
      */
     public static void showTakeMenu(CashRegister cashRegister) {
+        long start = metrics != null ? System.nanoTime() : 0;
         cashRegister.take();
+        if (metrics != null) {
+            metrics.recordTake(System.nanoTime() - start);
+        }
     }
 }
@@ -1,5 +1,7 @@
 package machine.menu;
 
+import java.util.Optional;
+
 /**
  * Enum representing the available menu options in the Coffee Machine Simulator.
  * Each option corresponds to a user command such as buying coffee, filling supplies,
@@ -36,18 +38,27 @@ public enum MenuOptions {
         return value;
     }
 
+    private static final OptionTable<MenuOptions> OPTIONS = new OptionTable<>(values(), MenuOptions::getValue);
+
     /**
      * Converts a string to a corresponding MenuOptions enum constant.
      *
      * @param input the string input (e.g., "buy", "fill", "take")
-     * @return the corresponding MenuOptions enum, or null if no match is found
+     * @return the corresponding MenuOptions enum
+     * @throws IllegalArgumentException if no match is found
      */
     public static MenuOptions fromString(String input) {
-        for (MenuOptions option : MenuOptions.values()) {
-            if (option.getValue().equalsIgnoreCase(input)) {
-                return option;
-            }
-        }
-        throw new IllegalArgumentException("Invalid option");
+        return parse(input).orElseThrow(() -> new IllegalArgumentException("Invalid option"));
+    }
+
+    /**
+     * Looks up the menu option for a string, ignoring case, without throwing.
+     * The lookup takes constant time and does not allocate.
+     *
+     * @param input the string input (e.g., "buy", "fill", "take"); may be null
+     * @return the matching option, or an empty optional if the input names none
+     */
+    public static Optional<MenuOptions> parse(String input) {
+        return OPTIONS.find(input);
     }
 }
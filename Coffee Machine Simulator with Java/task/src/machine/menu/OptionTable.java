@@ -0,0 +1,84 @@
+package machine.menu;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A constant-time, case-insensitive lookup from typed text to an enum constant.
+ * <p>
+ * The keys are hashed after case folding into a small open-addressing table that is built once.
+ * A lookup hashes the input in place and compares it with at most a couple of keys using
+ * {@link String#equalsIgnoreCase(String)}, so it neither copies the enum's {@code values()}
+ * nor lower-cases the input. Results are returned as {@link Optional}s created up front, so
+ * the lookup does not allocate either, not even for a miss.
+ * </p>
+ *
+ * @param <E> the enum type
+ */
+final class OptionTable<E extends Enum<E>> {
+
+    private final String[] keys;
+    private final Optional<E>[] results;
+    private final int mask;
+
+    /**
+     * Builds the table.
+     *
+     * @param options every constant of the enum
+     * @param key the text that selects a constant
+     */
+    @SuppressWarnings("unchecked")
+    OptionTable(E[] options, Function<E, String> key) {
+        int size = Integer.highestOneBit(Math.max(1, options.length * 4 - 1)) << 1;
+        this.keys = new String[size];
+        this.results = (Optional<E>[]) new Optional<?>[size];
+        this.mask = size - 1;
+        for (E option : options) {
+            String text = key.apply(option);
+            int slot = hash(text) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = text;
+            results[slot] = Optional.of(option);
+        }
+    }
+
+    /**
+     * Looks up the constant selected by the given text, ignoring case.
+     *
+     * @param input the typed text; may be null
+     * @return the constant, or an empty optional if the text selects none
+     */
+    Optional<E> find(String input) {
+        if (input == null) {
+            return Optional.empty();
+        }
+        for (int slot = hash(input) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equalsIgnoreCase(input)) {
+                return results[slot];
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Hashes the text the same way for any mix of upper and lower case, folding each character
+     * like {@link String#equalsIgnoreCase(String)} does.
+     */
+    private static int hash(String text) {
+        int hash = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int folded;
+            if (c < 0x80) {
+                // plain ASCII, which is all a command ever is, folds without the Unicode tables
+                folded = c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+            } else {
+                folded = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            hash = 31 * hash + folded;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,33 +1,70 @@
 package machine.messages;
 
+import machine.io.ConsoleOutput;
+import machine.io.Output;
+import machine.supplycalculator.Resource;
+
 public class PrintMessages {
 
+    private static Output output = new ConsoleOutput();
+
+    public static Output getOutput() {
+        return output;
+    }
+
+    public static void setOutput(Output output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Output cannot be null");
+        }
+        PrintMessages.output = output;
+    }
+
     public static void printAction() {
-        System.out.println("Write action (buy, fill, take, clean, remaining, exit):");
+        output.println("Write action (buy, fill, take, clean, remaining, exit):");
     }
 
     public static void printWhatCoffeeToBuy() {
-        System.out.println("What do you want to buy? 1 - espresso, 2 - latte, 3 - cappuccino, back - to main menu:");
+        output.println("What do you want to buy? 1 - espresso, 2 - latte, 3 - cappuccino, back - to main menu:");
     }
 
     public static void printHowManyWaterToFill() {
-        System.out.println("Write how many ml of water you want to add:");
+        output.println("Write how many ml of water you want to add:");
     }
 
     public static void printHowManyMilkToFill() {
-        System.out.println("Write how many ml of milk you want to add:");
+        output.println("Write how many ml of milk you want to add:");
     }
 
     public static void printHowManyGramsCoffeeToFill() {
-        System.out.println("Write how many grams of coffee beans you want to add:");
+        output.println("Write how many grams of coffee beans you want to add:");
     }
 
     public static void printHowManyDisposableCupsToFill() {
-        System.out.println("Write how many disposable cups you want to add:");
+        output.println("Write how many disposable cups you want to add:");
     }
 
     public static void printReadyToCleanMessage() {
-        System.out.println("I need cleaning!");
+        output.println("I need cleaning!");
+    }
+
+    public static void printMakingCoffee() {
+        output.println("I have enough resources, making you a coffee!\n");
+    }
+
+    public static void printNotEnough(Resource resource) {
+        output.println(resource.getShortageMessage());
+    }
+
+    public static void printMoneyTaken(long money) {
+        output.printf("I gave you $%d%n%n", money);
+    }
+
+    public static void printCleaned() {
+        output.println("I have been cleaned!");
+    }
+
+    public static void printEmptyLine() {
+        output.println();
     }
 
 }
@@ -0,0 +1,328 @@
+package machine.metrics;
+
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.io.BufferedOutput;
+import machine.io.Output;
+import machine.supplycalculator.Resource;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and latency histograms for one coffee machine.
+ * <p>
+ * Register it as a listener on the machine's supply calculator and cash register to count
+ * sales and stockouts per recipe, stockouts per resource, revenue and consumed supplies.
+ * Callers that run an operation time it themselves and report the duration through
+ * {@link #recordSell(long)}, {@link #recordFill(long)} and {@link #recordTake(long)}.
+ * Every update is an atomic add into a preallocated slot, so the hot path never allocates.
+ * </p>
+ * The metrics can be printed as text or published over JMX with {@link #registerMBean(String)}.
+ */
+public class MachineMetrics implements MachineListener, MachineMetricsMXBean {
+
+    /**
+     * The number of recipe ids tracked individually; sales of later recipes share one slot.
+     */
+    public static final int TRACKED_RECIPES = 64;
+
+    private static final int OTHER = TRACKED_RECIPES;
+
+    private final RecipeRegistry registry;
+    private final LongSupplier clock;
+    private final long createdAt;
+
+    private final AtomicLongArray sold = new AtomicLongArray(TRACKED_RECIPES + 1);
+    private final AtomicLongArray stockoutsByRecipe = new AtomicLongArray(TRACKED_RECIPES + 1);
+    private final AtomicLongArray stockoutsByResource = new AtomicLongArray(Resource.values().length);
+    private final AtomicLongArray consumed = new AtomicLongArray(Resource.values().length);
+    private final AtomicLong revenue = new AtomicLong();
+
+    private final LatencyHistogram sellLatency = new LatencyHistogram();
+    private final LatencyHistogram fillLatency = new LatencyHistogram();
+    private final LatencyHistogram takeLatency = new LatencyHistogram();
+
+    /**
+     * Creates metrics for a machine brewing the recipes of the default registry.
+     */
+    public MachineMetrics() {
+        this(RecipeRegistry.getDefault(), System::nanoTime);
+    }
+
+    /**
+     * Creates metrics that name recipes after the given registry and compute rates with the given clock.
+     *
+     * @param registry the registry the machine's recipes come from
+     * @param clock the time source in nanoseconds
+     */
+    public MachineMetrics(RecipeRegistry registry, LongSupplier clock) {
+        this.registry = registry;
+        this.clock = clock;
+        this.createdAt = clock.getAsLong();
+    }
+
+    @Override
+    public void coffeeSold(Coffee coffee, int count, long amount) {
+        sold.addAndGet(slotOf(coffee), count);
+        revenue.addAndGet(amount);
+        consumed.addAndGet(Resource.WATER.ordinal(), (long) coffee.getWaterNeeded() * count);
+        consumed.addAndGet(Resource.MILK.ordinal(), (long) coffee.getMilkNeeded() * count);
+        consumed.addAndGet(Resource.COFFEE_BEANS.ordinal(), (long) coffee.getCoffeeBeansNeeded() * count);
+        consumed.addAndGet(Resource.DISPOSABLE_CUPS.ordinal(), (long) coffee.getDisposableCupsNeeded() * count);
+    }
+
+    @Override
+    public void stockout(Coffee coffee, Resource resource) {
+        stockoutsByRecipe.incrementAndGet(slotOf(coffee));
+        stockoutsByResource.incrementAndGet(resource.ordinal());
+    }
+
+    /**
+     * Records how long selling one coffee took.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordSell(long nanos) {
+        sellLatency.record(nanos);
+    }
+
+    /**
+     * Records how long filling the supplies took.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordFill(long nanos) {
+        fillLatency.record(nanos);
+    }
+
+    /**
+     * Records how long taking the money took.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordTake(long nanos) {
+        takeLatency.record(nanos);
+    }
+
+    /**
+     * Returns the number of drinks sold of a recipe.
+     *
+     * @param recipe the recipe
+     * @return the number sold
+     */
+    public long getSold(Recipe recipe) {
+        return sold.get(slotOf(recipe));
+    }
+
+    /**
+     * Returns the number of orders of a recipe refused for lack of supplies.
+     *
+     * @param recipe the recipe
+     * @return the number of stockouts
+     */
+    public long getStockouts(Recipe recipe) {
+        return stockoutsByRecipe.get(slotOf(recipe));
+    }
+
+    /**
+     * Returns the number of orders refused because the given resource ran out.
+     *
+     * @param resource the resource
+     * @return the number of stockouts
+     */
+    public long getStockouts(Resource resource) {
+        return stockoutsByResource.get(resource.ordinal());
+    }
+
+    /**
+     * Returns the total amount of a resource used by sales.
+     *
+     * @param resource the resource
+     * @return the amount used
+     */
+    public long getConsumed(Resource resource) {
+        return consumed.get(resource.ordinal());
+    }
+
+    /**
+     * Returns the latencies of selling a coffee.
+     *
+     * @return the sell histogram
+     */
+    public LatencyHistogram getSellLatency() {
+        return sellLatency;
+    }
+
+    /**
+     * Returns the latencies of filling the supplies.
+     *
+     * @return the fill histogram
+     */
+    public LatencyHistogram getFillLatency() {
+        return fillLatency;
+    }
+
+    /**
+     * Returns the latencies of taking the money.
+     *
+     * @return the take histogram
+     */
+    public LatencyHistogram getTakeLatency() {
+        return takeLatency;
+    }
+
+    @Override
+    public long getCoffeesSold() {
+        return sum(sold);
+    }
+
+    @Override
+    public long getStockouts() {
+        return sum(stockoutsByRecipe);
+    }
+
+    @Override
+    public long getRevenue() {
+        return revenue.get();
+    }
+
+    @Override
+    public double getRevenuePerSecond() {
+        return perSecond(revenue.get());
+    }
+
+    @Override
+    public double getWaterPerSecond() {
+        return perSecond(getConsumed(Resource.WATER));
+    }
+
+    @Override
+    public double getMilkPerSecond() {
+        return perSecond(getConsumed(Resource.MILK));
+    }
+
+    @Override
+    public double getCoffeeBeansPerSecond() {
+        return perSecond(getConsumed(Resource.COFFEE_BEANS));
+    }
+
+    @Override
+    public double getDisposableCupsPerSecond() {
+        return perSecond(getConsumed(Resource.DISPOSABLE_CUPS));
+    }
+
+    @Override
+    public long getSellLatencyP50() {
+        return sellLatency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getSellLatencyP99() {
+        return sellLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getFillLatencyP50() {
+        return fillLatency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getFillLatencyP99() {
+        return fillLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getTakeLatencyP50() {
+        return takeLatency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getTakeLatencyP99() {
+        return takeLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public String getReport() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedOutput output = new BufferedOutput(bytes);
+        print(output);
+        output.flush();
+        return bytes.toString();
+    }
+
+    /**
+     * Prints a text snapshot of every counter, rate and latency percentile.
+     *
+     * @param output where to print the report
+     */
+    public void print(Output output) {
+        output.println("Sales by recipe:");
+        int recipes = Math.min(registry.size(), TRACKED_RECIPES);
+        for (int id = 0; id < recipes; id++) {
+            output.printf("  %-12s %10d sold %8d stockouts%n",
+                    registry.get(id).getName(), sold.get(id), stockoutsByRecipe.get(id));
+        }
+        if (sold.get(OTHER) > 0 || stockoutsByRecipe.get(OTHER) > 0) {
+            output.printf("  %-12s %10d sold %8d stockouts%n", "other", sold.get(OTHER), stockoutsByRecipe.get(OTHER));
+        }
+        output.println("Stockouts by resource:");
+        for (Resource resource : Resource.values()) {
+            output.printf("  %-16s %8d%n", resource.getName(), getStockouts(resource));
+        }
+        output.printf("Revenue: $%d ($%.2f per second)%n", getRevenue(), getRevenuePerSecond());
+        output.printf("Depletion per second: %.2f ml water, %.2f ml milk, %.2f g coffee beans, %.2f cups%n",
+                getWaterPerSecond(), getMilkPerSecond(), getCoffeeBeansPerSecond(), getDisposableCupsPerSecond());
+        printLatency(output, "sell", sellLatency);
+        printLatency(output, "fill", fillLatency);
+        printLatency(output, "take", takeLatency);
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server.
+     *
+     * @param machineName the name used in the object name, e.g. {@code machine.metrics:type=Machine,name=...}
+     * @throws IllegalArgumentException if the name is invalid or already registered
+     */
+    public void registerMBean(String machineName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("machine.metrics:type=Machine,name=" + ObjectName.quote(machineName)));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register metrics for machine " + machineName, e);
+        }
+    }
+
+    private void printLatency(Output output, String operation, LatencyHistogram histogram) {
+        output.printf("Latency of %s: %d calls, p50 %d ns, p99 %d ns, max %d ns%n", operation,
+                histogram.getCount(), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                histogram.getMax());
+    }
+
+    private double perSecond(long amount) {
+        long elapsed = clock.getAsLong() - createdAt;
+        return elapsed <= 0 ? 0 : amount * 1e9 / elapsed;
+    }
+
+    private static int slotOf(Coffee coffee) {
+        if (coffee instanceof Recipe recipe && recipe.getId() < TRACKED_RECIPES) {
+            return recipe.getId();
+        }
+        return OTHER;
+    }
+
+    private static long sum(AtomicLongArray counters) {
+        long total = 0;
+        for (int slot = 0; slot < counters.length(); slot++) {
+            total += counters.get(slot);
+        }
+        return total;
+    }
+}
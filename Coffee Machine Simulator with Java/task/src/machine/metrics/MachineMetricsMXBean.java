@@ -0,0 +1,112 @@
+package machine.metrics;
+
+/**
+ * The JMX view of {@link MachineMetrics}. Latencies are in nanoseconds, rates per second.
+ */
+public interface MachineMetricsMXBean {
+
+    /**
+     * Returns the number of coffees sold.
+     *
+     * @return the number of coffees sold
+     */
+    long getCoffeesSold();
+
+    /**
+     * Returns the number of orders refused because a resource ran out.
+     *
+     * @return the number of stockouts
+     */
+    long getStockouts();
+
+    /**
+     * Returns the money charged for all sales.
+     *
+     * @return the revenue
+     */
+    long getRevenue();
+
+    /**
+     * Returns the revenue earned per second since the metrics were created.
+     *
+     * @return the revenue rate
+     */
+    double getRevenuePerSecond();
+
+    /**
+     * Returns the water used per second since the metrics were created.
+     *
+     * @return the water depletion rate in milliliters per second
+     */
+    double getWaterPerSecond();
+
+    /**
+     * Returns the milk used per second since the metrics were created.
+     *
+     * @return the milk depletion rate in milliliters per second
+     */
+    double getMilkPerSecond();
+
+    /**
+     * Returns the coffee beans used per second since the metrics were created.
+     *
+     * @return the coffee bean depletion rate in grams per second
+     */
+    double getCoffeeBeansPerSecond();
+
+    /**
+     * Returns the cups used per second since the metrics were created.
+     *
+     * @return the cup depletion rate per second
+     */
+    double getDisposableCupsPerSecond();
+
+    /**
+     * Returns the median latency of selling a coffee.
+     *
+     * @return the 50th percentile
+     */
+    long getSellLatencyP50();
+
+    /**
+     * Returns the 99th percentile latency of selling a coffee.
+     *
+     * @return the 99th percentile
+     */
+    long getSellLatencyP99();
+
+    /**
+     * Returns the median latency of filling supplies.
+     *
+     * @return the 50th percentile
+     */
+    long getFillLatencyP50();
+
+    /**
+     * Returns the 99th percentile latency of filling supplies.
+     *
+     * @return the 99th percentile
+     */
+    long getFillLatencyP99();
+
+    /**
+     * Returns the median latency of taking the money.
+     *
+     * @return the 50th percentile
+     */
+    long getTakeLatencyP50();
+
+    /**
+     * Returns the 99th percentile latency of taking the money.
+     *
+     * @return the 99th percentile
+     */
+    long getTakeLatencyP99();
+
+    /**
+     * Returns the text report of {@link MachineMetrics#print(machine.io.Output)}.
+     *
+     * @return the report
+     */
+    String getReport();
+}
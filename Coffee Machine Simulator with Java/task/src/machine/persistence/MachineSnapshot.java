@@ -0,0 +1,190 @@
+package machine.persistence;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable point-in-time copy of a machine: supplies, money, the cleaning counter,
+ * the recipe set and the journal position the copy was taken at. Booting from a snapshot
+ * means reading one small file and replaying only the journal records written after it.
+ * <p>
+ * Binary layout: a magic number and a version, the six state values as {@code long}s,
+ * the journal position, the recipe count followed by each recipe's name (length-prefixed
+ * UTF-8), ingredient amounts and price, and finally a CRC32 of everything before it.
+ * A snapshot whose checksum does not match is rejected instead of half-loaded.
+ * </p>
+ */
+public final class MachineSnapshot {
+
+    private static final int MAGIC = 0x434D5331;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 7 * 8 + 4;
+    private static final int RECIPE_SIZE = 2 + 5 * 4;
+
+    private final MachineState state;
+    private final long journalPosition;
+    private final Recipe[] recipes;
+
+    private MachineSnapshot(MachineState state, long journalPosition, Recipe[] recipes) {
+        this.state = state;
+        this.journalPosition = journalPosition;
+        this.recipes = recipes;
+    }
+
+    /**
+     * Copies the state of a running machine. This only reads a few counters, so it is cheap enough
+     * to call on the thread that owns the machine, which guarantees a consistent copy.
+     * Supplies held for open reservations count as still in stock: the journal only learns about
+     * a hold once it is sold, and a hold does not survive a restart.
+     *
+     * @param supplyCalculator the machine's supplies
+     * @param cashRegister the machine's cash register
+     * @param registry the recipes the machine brews
+     * @param journalPosition the journal position matching the copied state
+     * @return the snapshot
+     */
+    public static MachineSnapshot capture(SupplyCalculator supplyCalculator, CashRegister cashRegister,
+                                          RecipeRegistry registry, long journalPosition) {
+        MachineState state = new MachineState(
+                supplyCalculator.getWaterSupply() + supplyCalculator.getHeld(Resource.WATER),
+                supplyCalculator.getMilkSupply() + supplyCalculator.getHeld(Resource.MILK),
+                supplyCalculator.getGramsCoffeeSupply() + supplyCalculator.getHeld(Resource.COFFEE_BEANS),
+                supplyCalculator.getDisposableCupsSupply() + supplyCalculator.getHeld(Resource.DISPOSABLE_CUPS),
+                cashRegister.getMoney(), supplyCalculator.getMaintenance().getBrewsSinceCleaning());
+        Recipe[] recipes = new Recipe[registry.size()];
+        for (int id = 0; id < recipes.length; id++) {
+            recipes[id] = registry.get(id);
+        }
+        return new MachineSnapshot(state, journalPosition, recipes);
+    }
+
+    /**
+     * Loads a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return the snapshot, or null if the file does not exist
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static MachineSnapshot load(Path file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (bytes.length < HEADER_SIZE + 8) {
+            throw new IllegalArgumentException("Snapshot is truncated: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (buffer.getLong(bytes.length - 8) != crc.getValue()) {
+            throw new IllegalArgumentException("Snapshot checksum mismatch: " + file);
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not a snapshot of a known version: " + file);
+        }
+
+        MachineState state = new MachineState(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getLong(), buffer.getLong());
+        long journalPosition = buffer.getLong();
+        Recipe[] recipes = new Recipe[buffer.getInt()];
+        RecipeRegistry registry = RecipeRegistry.withDefaults();
+        for (int id = 0; id < recipes.length; id++) {
+            byte[] nameBytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            int waterNeeded = buffer.getInt();
+            int milkNeeded = buffer.getInt();
+            int coffeeBeansNeeded = buffer.getInt();
+            int disposableCupsNeeded = buffer.getInt();
+            int price = buffer.getInt();
+            Recipe recipe = registry.find(name);
+            recipes[id] = recipe != null ? recipe : registry.register(name, waterNeeded, milkNeeded,
+                    coffeeBeansNeeded, disposableCupsNeeded, price);
+        }
+        return new MachineSnapshot(state, journalPosition, recipes);
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and moves it into place
+     * atomically, so a crash mid-write leaves the previous snapshot intact.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        byte[][] names = new byte[recipes.length][];
+        int size = HEADER_SIZE + 8;
+        for (int id = 0; id < recipes.length; id++) {
+            names[id] = recipes[id].getName().getBytes(StandardCharsets.UTF_8);
+            size += RECIPE_SIZE + names[id].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(state.getWater()).putLong(state.getMilk()).putLong(state.getCoffeeBeans())
+                .putLong(state.getDisposableCups()).putLong(state.getMoney()).putLong(state.getCoffeesSinceCleaning())
+                .putLong(journalPosition)
+                .putInt(recipes.length);
+        for (int id = 0; id < recipes.length; id++) {
+            Recipe recipe = recipes[id];
+            buffer.putShort((short) names[id].length).put(names[id])
+                    .putInt(recipe.getWaterNeeded()).putInt(recipe.getMilkNeeded())
+                    .putInt(recipe.getCoffeeBeansNeeded()).putInt(recipe.getDisposableCupsNeeded())
+                    .putInt(recipe.getPrice());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, buffer.array());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Registers every snapshotted recipe the registry does not know yet, by name.
+     *
+     * @param registry the registry to complete
+     */
+    public void restoreRecipes(RecipeRegistry registry) {
+        for (Recipe recipe : recipes) {
+            if (registry.find(recipe.getName()) == null) {
+                registry.register(recipe.getName(), recipe);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the snapshotted state, to be brought up to date from the journal.
+     *
+     * @return a new machine state
+     */
+    public MachineState toState() {
+        return new MachineState(state.getWater(), state.getMilk(), state.getCoffeeBeans(),
+                state.getDisposableCups(), state.getMoney(), state.getCoffeesSinceCleaning());
+    }
+
+    /**
+     * Returns the journal position the snapshot was taken at.
+     *
+     * @return the byte offset of the first journal record not contained in the snapshot
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+}
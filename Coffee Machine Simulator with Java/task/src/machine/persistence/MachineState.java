@@ -0,0 +1,149 @@
+package machine.persistence;
+
+import machine.cashregister.CashRegister;
+import machine.supplycalculator.PlainInventory;
+import machine.supplycalculator.SupplyCalculator;
+
+/**
+ * The durable state of one coffee machine: its supplies, its money and the number
+ * of coffees made since the last cleaning. Recovery starts from a base state and
+ * applies the journalled changes to it.
+ */
+public class MachineState {
+
+    private long water;
+    private long milk;
+    private long coffeeBeans;
+    private long disposableCups;
+    private long money;
+    private long coffeesSinceCleaning;
+
+    /**
+     * Creates a machine state.
+     *
+     * @param water the amount of water in milliliters
+     * @param milk the amount of milk in milliliters
+     * @param coffeeBeans the amount of coffee beans in grams
+     * @param disposableCups the number of disposable cups
+     * @param money the money in the cash register
+     * @param coffeesSinceCleaning the number of coffees made since the last cleaning
+     */
+    public MachineState(long water, long milk, long coffeeBeans, long disposableCups,
+                        long money, long coffeesSinceCleaning) {
+        this.water = water;
+        this.milk = milk;
+        this.coffeeBeans = coffeeBeans;
+        this.disposableCups = disposableCups;
+        this.money = money;
+        this.coffeesSinceCleaning = coffeesSinceCleaning;
+    }
+
+    /**
+     * Returns the state of a machine that was just stocked with the default supplies:
+     * 400 ml water, 540 ml milk, 120 g coffee beans, 9 cups and $550.
+     *
+     * @return the factory state
+     */
+    public static MachineState factoryDefaults() {
+        return new MachineState(400, 540, 120, 9, 550, 0);
+    }
+
+    /**
+     * Builds a supply calculator holding this state's supplies and cleaning counter.
+     *
+     * @return a new supply calculator
+     * @throws IllegalArgumentException if a supply is negative or does not fit an {@code int}
+     */
+    public SupplyCalculator toSupplyCalculator() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(new PlainInventory(
+                toInt(water), toInt(milk), toInt(coffeeBeans), toInt(disposableCups)));
+        supplyCalculator.getMaintenance().recordBrews(toInt(coffeesSinceCleaning));
+        return supplyCalculator;
+    }
+
+    /**
+     * Builds a cash register holding this state's money.
+     *
+     * @return a new cash register
+     */
+    public CashRegister toCashRegister() {
+        return new CashRegister(money);
+    }
+
+    void add(long water, long milk, long coffeeBeans, long disposableCups, long money) {
+        this.water += water;
+        this.milk += milk;
+        this.coffeeBeans += coffeeBeans;
+        this.disposableCups += disposableCups;
+        this.money += money;
+    }
+
+    void recordCoffees(long count) {
+        coffeesSinceCleaning += count;
+    }
+
+    void clean() {
+        coffeesSinceCleaning = 0;
+    }
+
+    /**
+     * Returns the amount of water.
+     *
+     * @return the amount of water in milliliters
+     */
+    public long getWater() {
+        return water;
+    }
+
+    /**
+     * Returns the amount of milk.
+     *
+     * @return the amount of milk in milliliters
+     */
+    public long getMilk() {
+        return milk;
+    }
+
+    /**
+     * Returns the amount of coffee beans.
+     *
+     * @return the amount of coffee beans in grams
+     */
+    public long getCoffeeBeans() {
+        return coffeeBeans;
+    }
+
+    /**
+     * Returns the number of disposable cups.
+     *
+     * @return the number of disposable cups
+     */
+    public long getDisposableCups() {
+        return disposableCups;
+    }
+
+    /**
+     * Returns the money in the cash register.
+     *
+     * @return the money in the cash register
+     */
+    public long getMoney() {
+        return money;
+    }
+
+    /**
+     * Returns the number of coffees made since the last cleaning.
+     *
+     * @return the number of coffees made since the last cleaning
+     */
+    public long getCoffeesSinceCleaning() {
+        return coffeesSinceCleaning;
+    }
+
+    private static int toInt(long amount) {
+        if (amount < 0 || amount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Recovered amount out of range: " + amount);
+        }
+        return (int) amount;
+    }
+}
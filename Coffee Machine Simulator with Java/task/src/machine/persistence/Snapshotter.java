@@ -0,0 +1,133 @@
+package machine.persistence;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Takes a {@link MachineSnapshot} every few machine events and writes it in the background.
+ * <p>
+ * The snapshot is captured on the thread that reported the event, right after the journal
+ * recorded it, so state and journal position always match. Only the file write happens on
+ * the background thread. When snapshots are taken faster than they can be written, the
+ * pending one is replaced by the newest, so the sell path never waits on the disk.
+ * </p>
+ * Register it on the supply calculator and the cash register after the journal.
+ */
+public class Snapshotter implements MachineListener, Closeable {
+
+    private final Path file;
+    private final SupplyCalculator supplyCalculator;
+    private final CashRegister cashRegister;
+    private final RecipeRegistry registry;
+    private final TransactionJournal journal;
+    private final int eventsPerSnapshot;
+    private final AtomicReference<MachineSnapshot> pending = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int events;
+
+    /**
+     * Creates a snapshotter for one machine.
+     *
+     * @param file the snapshot file
+     * @param supplyCalculator the machine's supplies
+     * @param cashRegister the machine's cash register
+     * @param registry the recipes the machine brews
+     * @param journal the machine's journal
+     * @param eventsPerSnapshot how many events pass between two snapshots
+     * @throws IllegalArgumentException if eventsPerSnapshot is not positive
+     */
+    public Snapshotter(Path file, SupplyCalculator supplyCalculator, CashRegister cashRegister,
+                       RecipeRegistry registry, TransactionJournal journal, int eventsPerSnapshot) {
+        if (eventsPerSnapshot <= 0) {
+            throw new IllegalArgumentException("Events per snapshot must be positive");
+        }
+        this.file = file;
+        this.supplyCalculator = supplyCalculator;
+        this.cashRegister = cashRegister;
+        this.registry = registry;
+        this.journal = journal;
+        this.eventsPerSnapshot = eventsPerSnapshot;
+    }
+
+    @Override
+    public void coffeeSold(Coffee coffee, int count, long amount) {
+        onEvent();
+    }
+
+    @Override
+    public void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        onEvent();
+    }
+
+    @Override
+    public void moneyTaken(long amount) {
+        onEvent();
+    }
+
+    @Override
+    public void machineCleaned() {
+        onEvent();
+    }
+
+    /**
+     * Captures a snapshot now and queues it for writing.
+     */
+    public void snapshot() {
+        if (pending.getAndSet(capture()) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Writes a final snapshot and waits for every queued write to finish.
+     *
+     * @throws IOException if the final snapshot cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        capture().write(file);
+    }
+
+    private synchronized void onEvent() {
+        if (++events == eventsPerSnapshot) {
+            events = 0;
+            snapshot();
+        }
+    }
+
+    private MachineSnapshot capture() {
+        return MachineSnapshot.capture(supplyCalculator, cashRegister, registry, journal.getPosition());
+    }
+
+    private void writePending() {
+        MachineSnapshot snapshot = pending.getAndSet(null);
+        try {
+            snapshot.write(file);
+        } catch (IOException e) {
+            // the journal still holds every change, so a failed snapshot only costs startup time
+            throw new UncheckedIOException(e);
+        }
+    }
+}
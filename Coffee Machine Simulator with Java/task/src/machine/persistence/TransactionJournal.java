@@ -0,0 +1,219 @@
+package machine.persistence;
+
+import machine.coffees.Coffee;
+import machine.events.MachineListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of every sale, refill, cleaning and money withdrawal of one machine,
+ * written to a memory-mapped file as fixed-size binary records.
+ * <p>
+ * Appending only copies a record into the mapped page cache, so it survives a crash of
+ * the process right away. Flushing to disk is group-committed: a background thread forces
+ * the written pages at a fixed interval, covering every record appended since the last flush
+ * with a single {@code force}. {@link #close()} forces whatever is left.
+ * </p>
+ * <p>
+ * Record layout, {@value #RECORD_SIZE} bytes each: a type byte, three bytes of padding,
+ * the water, milk, coffee bean and cup deltas as {@code int}s, the number of coffees as
+ * an {@code int} and the money delta as a {@code long}. The type byte is written last,
+ * so a record torn by a crash is never replayed. A zero type byte marks the end of the log.
+ * </p>
+ */
+public class TransactionJournal implements MachineListener, Closeable {
+
+    static final int RECORD_SIZE = 32;
+    static final long SEGMENT_SIZE = RECORD_SIZE * (1L << 21);
+
+    private static final byte END = 0;
+    private static final byte SALE = 1;
+    private static final byte FILL = 2;
+    private static final byte TAKE = 3;
+    private static final byte CLEAN = 4;
+
+    private final FileChannel channel;
+    private final ScheduledExecutorService flusher;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long position;
+    private long flushedPosition;
+
+    private TransactionJournal(FileChannel channel, long position, long flushIntervalMillis) throws IOException {
+        this.channel = channel;
+        this.position = position;
+        this.flushedPosition = position;
+        mapSegment(position - position % SEGMENT_SIZE);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a journal, replays every record from the given position onto the state and
+     * positions the journal to append after the last record.
+     *
+     * @param file the journal file; created if it does not exist
+     * @param fromPosition the byte offset of the first record not yet contained in the state
+     * @param state the state to bring up to date
+     * @param flushIntervalMillis how often written records are forced to disk
+     * @return the journal, ready to be registered as a listener
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the position is not at a record boundary
+     */
+    public static TransactionJournal open(Path file, long fromPosition, MachineState state,
+                                          long flushIntervalMillis) throws IOException {
+        if (fromPosition < 0 || fromPosition % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Journal position must be at a record boundary");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = replay(channel, fromPosition, state);
+            return new TransactionJournal(channel, end, flushIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies every record from the given position onto the state.
+     *
+     * @return the position after the last record
+     */
+    private static long replay(FileChannel channel, long position, MachineState state) throws IOException {
+        long size = channel.size();
+        while (position + RECORD_SIZE <= size) {
+            long segmentStart = position - position % SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE, size - segmentStart);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, length);
+            for (int offset = (int) (position - segmentStart); offset + RECORD_SIZE <= length; offset += RECORD_SIZE) {
+                byte type = buffer.get(offset);
+                if (type == END) {
+                    return position;
+                }
+                apply(type, buffer, offset, state);
+                position += RECORD_SIZE;
+            }
+        }
+        return position;
+    }
+
+    private static void apply(byte type, MappedByteBuffer buffer, int offset, MachineState state) {
+        state.add(buffer.getInt(offset + 4), buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                buffer.getInt(offset + 16), buffer.getLong(offset + 24));
+        if (type == SALE) {
+            state.recordCoffees(buffer.getInt(offset + 20));
+        } else if (type == CLEAN) {
+            state.clean();
+        }
+    }
+
+    @Override
+    public void coffeeSold(Coffee coffee, int count, long amount) {
+        append(SALE, -coffee.getWaterNeeded() * count, -coffee.getMilkNeeded() * count,
+                -coffee.getCoffeeBeansNeeded() * count, -coffee.getDisposableCupsNeeded() * count, count, amount);
+    }
+
+    @Override
+    public void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        append(FILL, water, milk, coffeeBeans, disposableCups, 0, 0);
+    }
+
+    @Override
+    public void moneyTaken(long amount) {
+        append(TAKE, 0, 0, 0, 0, 0, -amount);
+    }
+
+    @Override
+    public void machineCleaned() {
+        append(CLEAN, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Returns the byte offset the next record will be written at. A snapshot taken
+     * together with this position is completed by replaying the journal from here.
+     *
+     * @return the current end of the journal
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public void flush() {
+        MappedByteBuffer dirty;
+        long target;
+        synchronized (this) {
+            if (flushedPosition == position) {
+                return;
+            }
+            dirty = segment;
+            target = position;
+        }
+        // forcing happens outside the lock so sales keep appending meanwhile
+        dirty.force();
+        synchronized (this) {
+            flushedPosition = Math.max(flushedPosition, target);
+        }
+    }
+
+    /**
+     * Forces the remaining records to disk and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (this) {
+            segment.force();
+            channel.close();
+        }
+    }
+
+    private synchronized void append(byte type, int water, int milk, int coffeeBeans, int disposableCups,
+                                     int coffees, long money) {
+        if (position - segmentStart == SEGMENT_SIZE) {
+            // the full segment's pages are forced before moving on, so no flush is lost
+            segment.force();
+            mapSegment(position);
+        }
+        int offset = (int) (position - segmentStart);
+        segment.putInt(offset + 4, water);
+        segment.putInt(offset + 8, milk);
+        segment.putInt(offset + 12, coffeeBeans);
+        segment.putInt(offset + 16, disposableCups);
+        segment.putInt(offset + 20, coffees);
+        segment.putLong(offset + 24, money);
+        segment.put(offset, type);
+        position += RECORD_SIZE;
+    }
+
+    private void mapSegment(long start) {
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, start, SEGMENT_SIZE);
+            segmentStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
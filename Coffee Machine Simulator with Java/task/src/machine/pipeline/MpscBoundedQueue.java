@@ -0,0 +1,92 @@
+package machine.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producers and exactly one consumer.
+ * <p>
+ * Each slot carries a sequence number telling whose turn it is. A producer claims the next
+ * slot with one CAS on the tail and publishes its element by advancing the slot's sequence;
+ * the single consumer reads slots in order without any CAS and hands a slot back by
+ * advancing its sequence one lap further. A full queue is detected without blocking, which
+ * is what lets callers apply backpressure.
+ * </p>
+ *
+ * @param <E> the element type
+ */
+final class MpscBoundedQueue<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity the minimum capacity; rounded up to a power of two
+     */
+    MpscBoundedQueue(int capacity) {
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int slot = 0; slot < size; slot++) {
+            sequences.set(slot, slot);
+        }
+    }
+
+    /**
+     * Appends an element unless the queue is full. Safe to call from any thread.
+     *
+     * @param element the element to add
+     * @return true if the element was added, false if the queue is full
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long turn = sequences.get(slot) - position;
+            if (turn == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    // a full write, so a consumer about to park sees it or gets unparked
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (turn < 0) {
+                // the consumer has not freed this slot from the previous lap yet
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element. Only the consumer thread may call this.
+     *
+     * @return the element, or null if no element is published yet
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[slot];
+        elements[slot] = null;
+        sequences.lazySet(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Returns the number of slots.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return elements.length;
+    }
+}
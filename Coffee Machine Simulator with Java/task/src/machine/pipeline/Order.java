@@ -0,0 +1,75 @@
+package machine.pipeline;
+
+import machine.coffees.Coffee;
+import machine.supplycalculator.Resource;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One coffee order travelling through an {@link OrderPipeline}. It completes once the cup
+ * is handed out or the order is refused for lack of supplies.
+ */
+public class Order {
+
+    private final Coffee coffee;
+    private final long acceptedAt;
+    private final CompletableFuture<Order> completion = new CompletableFuture<>();
+    private volatile Resource shortage;
+    private volatile long completedAt;
+
+    Order(Coffee coffee, long acceptedAt) {
+        this.coffee = coffee;
+        this.acceptedAt = acceptedAt;
+    }
+
+    /**
+     * Returns the ordered coffee.
+     *
+     * @return the coffee
+     */
+    public Coffee getCoffee() {
+        return coffee;
+    }
+
+    /**
+     * Returns a future completed with this order once it is served or refused.
+     *
+     * @return the completion of the order
+     */
+    public CompletableFuture<Order> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Checks whether the cup was handed out. Only meaningful once the order completed.
+     *
+     * @return true if the order was served
+     */
+    public boolean isServed() {
+        return completion.isDone() && shortage == null;
+    }
+
+    /**
+     * Returns the resource that ran out when the order was dispatched.
+     *
+     * @return the missing resource, or null if the order was served or is still pending
+     */
+    public Resource getShortage() {
+        return shortage;
+    }
+
+    /**
+     * Returns the time from accepting the order to handing out the cup or refusing it.
+     *
+     * @return the latency in nanoseconds, or -1 if the order has not completed
+     */
+    public long getLatencyNanos() {
+        return completion.isDone() ? completedAt - acceptedAt : -1;
+    }
+
+    void complete(Resource missing, long now) {
+        shortage = missing;
+        completedAt = now;
+        completion.complete(this);
+    }
+}
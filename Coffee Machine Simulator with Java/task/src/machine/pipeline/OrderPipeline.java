@@ -0,0 +1,252 @@
+package machine.pipeline;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.maintenance.MaintenanceScheduler;
+import machine.metrics.LatencyHistogram;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
+
+/**
+ * Accepts coffee orders from any number of terminals and brews them on several brew units at once.
+ * <p>
+ * Orders wait in a bounded lock-free queue. A single dispatcher thread takes them in order,
+ * waits for a free brew unit and reserves the ingredients right then by selling the coffee
+ * on the supply calculator, so two units can never brew from the same milk. An order that
+ * finds a resource missing completes at once; the others occupy their brew unit for the
+ * recipe's brew duration and complete when the cup is handed out.
+ * </p>
+ * <p>
+ * When the queue is full, {@link #trySubmit(Coffee)} refuses the order and {@link #submit(Coffee)}
+ * waits for room, which slows terminals down to the pace of the brew units instead of letting
+ * orders pile up without bound. Order-to-cup latency is recorded in {@link #getLatency()}.
+ * </p>
+ */
+public class OrderPipeline implements Closeable {
+
+    private static final long FULL_QUEUE_BACKOFF_NANOS = 10_000;
+    private static final long CLEANING_POLL_NANOS = 100_000;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final SupplyCalculator supplyCalculator;
+    private final CashRegister cashRegister;
+    private final ToLongFunction<Coffee> brewNanos;
+    private final MpscBoundedQueue<Order> queue;
+    private final Semaphore freeUnits;
+    private final ExecutorService brewUnits;
+    private final Thread dispatcher;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private volatile boolean accepting = true;
+    private volatile boolean dispatcherWaiting;
+
+    /**
+     * Creates a pipeline and starts its dispatcher.
+     *
+     * @param supplyCalculator the shared supplies the brew units draw from
+     * @param cashRegister the register orders are charged to
+     * @param brewUnits the number of coffees that can brew at the same time
+     * @param queueCapacity the number of orders that can wait; rounded up to a power of two
+     * @param brewNanos the brew duration of each coffee in nanoseconds
+     * @throws IllegalArgumentException if the unit count or the queue capacity is not positive
+     */
+    public OrderPipeline(SupplyCalculator supplyCalculator, CashRegister cashRegister, int brewUnits,
+                         int queueCapacity, ToLongFunction<Coffee> brewNanos) {
+        if (brewUnits <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Brew units and queue capacity must be positive");
+        }
+        this.supplyCalculator = supplyCalculator;
+        this.cashRegister = cashRegister;
+        this.brewNanos = brewNanos;
+        this.queue = new MpscBoundedQueue<>(queueCapacity);
+        this.freeUnits = new Semaphore(brewUnits);
+        AtomicInteger unitNumber = new AtomicInteger();
+        this.brewUnits = Executors.newFixedThreadPool(brewUnits, runnable -> {
+            Thread thread = new Thread(runnable, "brew-unit-" + unitNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchOrders, "order-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues an order unless the queue is full.
+     *
+     * @param coffee the coffee to brew
+     * @return the accepted order, or null if the queue is full
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public Order trySubmit(Coffee coffee) {
+        if (!accepting) {
+            throw new IllegalStateException("The order pipeline is closed");
+        }
+        Order order = new Order(coffee, System.nanoTime());
+        if (!queue.offer(order)) {
+            return null;
+        }
+        if (dispatcherWaiting) {
+            LockSupport.unpark(dispatcher);
+        }
+        return order;
+    }
+
+    /**
+     * Queues an order, waiting for room while the queue is full.
+     *
+     * @param coffee the coffee to brew
+     * @return the accepted order
+     * @throws InterruptedException if interrupted while waiting for room
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public Order submit(Coffee coffee) throws InterruptedException {
+        Order order;
+        while ((order = trySubmit(coffee)) == null) {
+            LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns the order-to-cup latencies of completed orders, refused ones included.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of orders handed out.
+     *
+     * @return the number of served orders
+     */
+    public long getServed() {
+        return served.get();
+    }
+
+    /**
+     * Returns the number of orders refused because a resource ran out.
+     *
+     * @return the number of refused orders
+     */
+    public long getRefused() {
+        return refused.get();
+    }
+
+    /**
+     * Returns the number of orders that can wait in the queue.
+     *
+     * @return the queue capacity
+     */
+    public int getQueueCapacity() {
+        return queue.capacity();
+    }
+
+    /**
+     * Stops accepting orders, then waits until every queued order is brewed.
+     * Terminals have to stop submitting first; an order racing with the close may never complete.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        LockSupport.unpark(dispatcher);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                dispatcher.join();
+                brewUnits.shutdown();
+                brewUnits.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchOrders() {
+        while (true) {
+            Order order = queue.poll();
+            if (order == null) {
+                if (!accepting) {
+                    // a terminal may have slipped one in right before closing
+                    order = queue.poll();
+                    if (order == null) {
+                        return;
+                    }
+                } else {
+                    dispatcherWaiting = true;
+                    order = queue.poll();
+                    if (order == null) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    dispatcherWaiting = false;
+                    if (order == null) {
+                        continue;
+                    }
+                }
+            }
+            dispatch(order);
+        }
+    }
+
+    private void dispatch(Order order) {
+        freeUnits.acquireUninterruptibly();
+        MaintenanceScheduler maintenance = supplyCalculator.getMaintenance();
+        if (maintenance.isReadyToClean()) {
+            if (maintenance.cleansAutomatically()) {
+                while (maintenance.isReadyToClean()) {
+                    LockSupport.parkNanos(CLEANING_POLL_NANOS);
+                }
+            } else {
+                // nobody stands at a pipelined machine, so it cleans itself when due
+                maintenance.cleanAll();
+            }
+        }
+        Resource shortage = supplyCalculator.trySellCoffee(order.getCoffee(), cashRegister);
+        if (shortage != null) {
+            freeUnits.release();
+            complete(order, shortage);
+            return;
+        }
+        brewUnits.execute(() -> brew(order));
+    }
+
+    private void brew(Order order) {
+        long duration = brewNanos.applyAsLong(order.getCoffee());
+        long end = System.nanoTime() + duration;
+        for (long left = duration; left > 0; left = end - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+        freeUnits.release();
+        complete(order, null);
+    }
+
+    private void complete(Order order, Resource shortage) {
+        order.complete(shortage, System.nanoTime());
+        latency.record(order.getLatencyNanos());
+        if (shortage == null) {
+            served.incrementAndGet();
+        } else {
+            refused.incrementAndGet();
+        }
+    }
+}
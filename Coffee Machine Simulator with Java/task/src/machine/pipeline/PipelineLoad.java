@@ -0,0 +1,87 @@
+package machine.pipeline;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.io.Output;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives an {@link OrderPipeline} with several terminals ordering random drinks as fast
+ * as the pipeline lets them, and reports throughput and order-to-cup latency.
+ */
+public class PipelineLoad {
+
+    private final int brewUnits;
+    private final int queueCapacity;
+    private final long brewNanos;
+
+    /**
+     * Creates a load run.
+     *
+     * @param brewUnits the number of brew units
+     * @param queueCapacity the number of orders that can wait
+     * @param brewNanos the brew duration of every drink in nanoseconds
+     */
+    public PipelineLoad(int brewUnits, int queueCapacity, long brewNanos) {
+        this.brewUnits = brewUnits;
+        this.queueCapacity = queueCapacity;
+        this.brewNanos = brewNanos;
+    }
+
+    /**
+     * Places the given number of orders from several terminals and waits for all of them.
+     *
+     * @param orders the total number of orders
+     * @param terminals the number of threads placing orders
+     * @param output where to print the report
+     * @throws InterruptedException if interrupted while waiting for the orders
+     */
+    public void run(int orders, int terminals, Output output) throws InterruptedException {
+        // plenty of supplies, so the run measures brewing rather than stockouts
+        SupplyCalculator supplyCalculator = new SupplyCalculator(1 << 30, 1 << 30, 1 << 30, 1 << 30);
+        CashRegister cashRegister = new CashRegister(0);
+        RecipeRegistry registry = RecipeRegistry.getDefault();
+        Order[] placed = new Order[orders];
+
+        long start = System.nanoTime();
+        try (OrderPipeline pipeline = new OrderPipeline(supplyCalculator, cashRegister, brewUnits,
+                queueCapacity, coffee -> brewNanos)) {
+            Thread[] threads = new Thread[terminals];
+            for (int terminal = 0; terminal < terminals; terminal++) {
+                int first = terminal;
+                threads[terminal] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        for (int order = first; order < orders; order += terminals) {
+                            Coffee coffee = registry.get(random.nextInt(registry.size()));
+                            placed[order] = pipeline.submit(coffee);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "terminal-" + terminal);
+                threads[terminal].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            CompletableFuture.allOf(Arrays.stream(placed)
+                    .map(Order::getCompletion).toArray(CompletableFuture[]::new)).join();
+            long elapsed = System.nanoTime() - start;
+
+            output.printf("%d orders from %d terminals on %d brew units, queue of %d%n",
+                    orders, terminals, brewUnits, pipeline.getQueueCapacity());
+            output.printf("Served %d, refused %d in %.3f s (%.0f orders/s)%n", pipeline.getServed(),
+                    pipeline.getRefused(), elapsed / 1e9, orders * 1e9 / elapsed);
+            output.printf("Order-to-cup latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    pipeline.getLatency().getValueAtPercentile(50) / 1e6,
+                    pipeline.getLatency().getValueAtPercentile(99) / 1e6,
+                    pipeline.getLatency().getMax() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package machine.pricing;
+
+import machine.coffees.Coffee;
+
+/**
+ * Decides what a coffee costs at the moment it is sold. A {@link machine.supplycalculator.SupplyCalculator}
+ * asks its price list on every sale, so implementations have to answer in constant time without allocating.
+ */
+public interface PriceList {
+
+    /**
+     * Charges every coffee its fixed recipe price.
+     */
+    PriceList FIXED = Coffee::getPrice;
+
+    /**
+     * Returns the price of one coffee right now.
+     *
+     * @param coffee the coffee being sold
+     * @return the price to charge
+     */
+    long priceOf(Coffee coffee);
+}
@@ -0,0 +1,279 @@
+package machine.pricing;
+
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.persistence.MachineState;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Prices every recipe by how scarce its ingredients are and how fast it sells, so the last
+ * of the milk earns more than the first.
+ * <p>
+ * Two pressures push a recipe's price above its base price, each measured in
+ * {@value #STEPS} steps:
+ * </p>
+ * <ul>
+ *     <li>Scarcity: once a resource drops below a quarter of its capacity, every recipe that
+ *     needs it climbs one step per sixteenth of that quarter used up, reaching the top step
+ *     when the resource is empty. A recipe follows its scarcest ingredient.</li>
+ *     <li>Demand: a recipe that sells faster than the normal rate climbs one step per sixteenth
+ *     above it, reaching the top step at twice the normal rate. The rate is exponentially
+ *     smoothed per recipe, as in {@link machine.refill.RefillPlanner}.</li>
+ * </ul>
+ * The steps of both pressures add up, capped at the top step, which charges the maximum surcharge.
+ * <p>
+ * Registered as a listener on the supply calculator, the engine updates the pressures after
+ * every sale and refill, and the scarcity after every hold and release, and keeps the
+ * resulting price of every recipe in a table. Only the recipes whose step actually changed
+ * are repriced, which is rare next to the number of sales.
+ * {@link #priceOf(Coffee)} is a single table read, so pricing a sale is constant time and
+ * never allocates. A recipe's demand is only updated when it sells, so after a quiet spell
+ * its first sale is still priced at the rate it sold at before. A recipe registered after
+ * the engine was created sells at its base price.
+ * </p>
+ */
+public class PricingEngine implements PriceList, MachineListener {
+
+    /**
+     * The number of steps between the base price and the maximum surcharge.
+     */
+    public static final int STEPS = 16;
+
+    private static final Resource[] RESOURCE_VALUES = Resource.values();
+    private static final int RESOURCES = RESOURCE_VALUES.length;
+    private static final int SCARCE_BELOW_DIVISOR = 4;
+    private static final double WARM_UP_CONSTANTS = 40;
+
+    private final SupplyCalculator supplyCalculator;
+    private final Recipe[] recipes;
+    private final long[] scarceBelow;
+    private final int maxSurchargePercent;
+    private final double normalRatePerNano;
+    private final double smoothingNanos;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final AtomicLongArray prices;
+
+    private final int[] scarcitySteps = new int[RESOURCES];
+    private final int[] demandSteps;
+    private final double[] smoothedSales;
+    private final long[] lastSale;
+
+    /**
+     * Creates an engine pricing the recipes currently in the registry and prices them for the current supplies.
+     *
+     * @param supplyCalculator the machine whose supplies drive the scarcity surcharge
+     * @param registry the recipes to price
+     * @param capacity the full supplies of the machine; money and cleaning counter are ignored
+     * @param maxSurchargePercent the surcharge at the top step, in percent of the base price
+     * @param normalCupsPerHour the sales rate of one recipe that carries no demand surcharge
+     * @param smoothingNanos the time constant of the sales rate smoothing
+     * @param clock the time source in nanoseconds
+     * @throws IllegalArgumentException if the surcharge or a capacity is negative,
+     *                                  or the rate or smoothing is not positive
+     */
+    public PricingEngine(SupplyCalculator supplyCalculator, RecipeRegistry registry, MachineState capacity,
+                         int maxSurchargePercent, double normalCupsPerHour, long smoothingNanos, LongSupplier clock) {
+        if (maxSurchargePercent < 0 || capacity.getWater() < 0 || capacity.getMilk() < 0
+                || capacity.getCoffeeBeans() < 0 || capacity.getDisposableCups() < 0) {
+            throw new IllegalArgumentException("Surcharge and capacities can't be negative");
+        }
+        if (normalCupsPerHour <= 0 || smoothingNanos <= 0) {
+            throw new IllegalArgumentException("Normal sales rate and smoothing must be positive");
+        }
+        this.supplyCalculator = supplyCalculator;
+        this.scarceBelow = new long[] {
+                capacity.getWater() / SCARCE_BELOW_DIVISOR,
+                capacity.getMilk() / SCARCE_BELOW_DIVISOR,
+                capacity.getCoffeeBeans() / SCARCE_BELOW_DIVISOR,
+                capacity.getDisposableCups() / SCARCE_BELOW_DIVISOR
+        };
+        this.maxSurchargePercent = maxSurchargePercent;
+        this.normalRatePerNano = normalCupsPerHour / 3_600e9;
+        this.smoothingNanos = smoothingNanos;
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+
+        this.recipes = new Recipe[registry.size()];
+        for (int id = 0; id < recipes.length; id++) {
+            recipes[id] = registry.get(id);
+        }
+        this.prices = new AtomicLongArray(recipes.length);
+        this.demandSteps = new int[recipes.length];
+        this.smoothedSales = new double[recipes.length];
+        this.lastSale = new long[recipes.length];
+        for (int resource = 0; resource < RESOURCES; resource++) {
+            scarcitySteps[resource] = scarcityStep(resource);
+        }
+        for (int id = 0; id < recipes.length; id++) {
+            reprice(id);
+        }
+    }
+
+    @Override
+    public long priceOf(Coffee coffee) {
+        int id = idOf(coffee);
+        return id >= 0 ? prices.get(id) : coffee.getPrice();
+    }
+
+    /**
+     * Returns the current price of a recipe.
+     *
+     * @param id the recipe id
+     * @return the price
+     * @throws IllegalArgumentException if the engine does not price that recipe
+     */
+    public long getPrice(int id) {
+        checkId(id);
+        return prices.get(id);
+    }
+
+    /**
+     * Returns how many steps above its base price a recipe currently is.
+     *
+     * @param id the recipe id
+     * @return the step, between 0 and {@value #STEPS}
+     * @throws IllegalArgumentException if the engine does not price that recipe
+     */
+    public synchronized int getStep(int id) {
+        checkId(id);
+        return step(id);
+    }
+
+    @Override
+    public synchronized void coffeeSold(Coffee coffee, int count, long amount) {
+        updateScarcity();
+        int id = idOf(coffee);
+        if (id >= 0) {
+            long now = clock.getAsLong();
+            if (smoothedSales[id] > 0) {
+                smoothedSales[id] *= Math.exp(-(now - lastSale[id]) / smoothingNanos);
+            }
+            smoothedSales[id] += count;
+            lastSale[id] = now;
+            int demandStep = demandStep(smoothedSales[id] * rateScale(now));
+            if (demandStep != demandSteps[id]) {
+                demandSteps[id] = demandStep;
+                reprice(id);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        updateScarcity();
+    }
+
+    @Override
+    public synchronized void suppliesHeld(Coffee coffee) {
+        // held supplies are already debited, so a hold makes them as scarce as a sale would
+        updateScarcity();
+    }
+
+    @Override
+    public synchronized void holdReleased(Coffee coffee) {
+        updateScarcity();
+    }
+
+    /**
+     * Recomputes the scarcity step of every resource and reprices the recipes needing a resource whose step moved.
+     */
+    private void updateScarcity() {
+        for (int resource = 0; resource < RESOURCES; resource++) {
+            int step = scarcityStep(resource);
+            if (step != scarcitySteps[resource]) {
+                scarcitySteps[resource] = step;
+                for (int id = 0; id < recipes.length; id++) {
+                    if (needs(recipes[id], resource) > 0) {
+                        reprice(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private void reprice(int id) {
+        long base = recipes[id].getPrice();
+        // rounded half up, in whole currency units like the base prices
+        long surcharge = (base * maxSurchargePercent * step(id) + 50L * STEPS) / (100L * STEPS);
+        prices.set(id, base + surcharge);
+    }
+
+    private int step(int id) {
+        int scarcity = 0;
+        for (int resource = 0; resource < RESOURCES; resource++) {
+            if (needs(recipes[id], resource) > 0) {
+                scarcity = Math.max(scarcity, scarcitySteps[resource]);
+            }
+        }
+        return Math.min(STEPS, scarcity + demandSteps[id]);
+    }
+
+    private int scarcityStep(int resource) {
+        long threshold = scarceBelow[resource];
+        long missing = threshold - supplyOf(resource);
+        if (threshold <= 0 || missing <= 0) {
+            return 0;
+        }
+        return (int) Math.min(STEPS, (missing * STEPS + threshold - 1) / threshold);
+    }
+
+    private int demandStep(double ratePerNano) {
+        double excess = ratePerNano / normalRatePerNano - 1;
+        return excess <= 0 ? 0 : (int) Math.min(STEPS, excess * STEPS);
+    }
+
+    /**
+     * Returns the factor turning a smoothed sale count into a rate per nanosecond, see
+     * {@link machine.refill.RefillPlanner}. Sales are smoothed right at the sale, so no decay is left to apply.
+     */
+    private double rateScale(long now) {
+        double observed = (now - startedAt) / smoothingNanos;
+        double weight = observed >= WARM_UP_CONSTANTS ? smoothingNanos : smoothingNanos * -Math.expm1(-observed);
+        // the first sales after start would otherwise look like an infinite rate
+        return 1 / Math.max(weight, 1 / normalRatePerNano);
+    }
+
+    private int supplyOf(int resource) {
+        return switch (RESOURCE_VALUES[resource]) {
+            case WATER -> supplyCalculator.getWaterSupply();
+            case MILK -> supplyCalculator.getMilkSupply();
+            case COFFEE_BEANS -> supplyCalculator.getGramsCoffeeSupply();
+            case DISPOSABLE_CUPS -> supplyCalculator.getDisposableCupsSupply();
+        };
+    }
+
+    /**
+     * Returns the table index of a coffee, or -1 if it is not one of the recipes the engine prices.
+     */
+    private int idOf(Coffee coffee) {
+        if (coffee instanceof Recipe recipe) {
+            int id = recipe.getId();
+            if (id < recipes.length && recipes[id] == recipe) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= recipes.length) {
+            throw new IllegalArgumentException("Unknown recipe id: " + id);
+        }
+    }
+
+    private static int needs(Coffee coffee, int resource) {
+        return switch (RESOURCE_VALUES[resource]) {
+            case WATER -> coffee.getWaterNeeded();
+            case MILK -> coffee.getMilkNeeded();
+            case COFFEE_BEANS -> coffee.getCoffeeBeansNeeded();
+            case DISPOSABLE_CUPS -> coffee.getDisposableCupsNeeded();
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package machine.refill;
+
+import machine.supplycalculator.Resource;
+
+/**
+ * A request to top up one machine, covering every resource in a single visit.
+ * The amounts bring each resource back to the machine's capacity as forecast for the
+ * moment the order was placed.
+ */
+public class RefillOrder {
+
+    private final int water;
+    private final int milk;
+    private final int coffeeBeans;
+    private final int disposableCups;
+    private final Resource bottleneck;
+    private final long nanosToStockout;
+
+    /**
+     * Creates a refill order.
+     *
+     * @param water the amount of water to add in milliliters
+     * @param milk the amount of milk to add in milliliters
+     * @param coffeeBeans the amount of coffee beans to add in grams
+     * @param disposableCups the number of disposable cups to add
+     * @param bottleneck the resource predicted to run out first
+     * @param nanosToStockout the predicted time until that resource runs out
+     */
+    public RefillOrder(int water, int milk, int coffeeBeans, int disposableCups,
+                       Resource bottleneck, long nanosToStockout) {
+        this.water = water;
+        this.milk = milk;
+        this.coffeeBeans = coffeeBeans;
+        this.disposableCups = disposableCups;
+        this.bottleneck = bottleneck;
+        this.nanosToStockout = nanosToStockout;
+    }
+
+    /**
+     * Returns the amount of water to add.
+     *
+     * @return the amount of water in milliliters
+     */
+    public int getWater() {
+        return water;
+    }
+
+    /**
+     * Returns the amount of milk to add.
+     *
+     * @return the amount of milk in milliliters
+     */
+    public int getMilk() {
+        return milk;
+    }
+
+    /**
+     * Returns the amount of coffee beans to add.
+     *
+     * @return the amount of coffee beans in grams
+     */
+    public int getCoffeeBeans() {
+        return coffeeBeans;
+    }
+
+    /**
+     * Returns the number of disposable cups to add.
+     *
+     * @return the number of disposable cups
+     */
+    public int getDisposableCups() {
+        return disposableCups;
+    }
+
+    /**
+     * Returns the resource predicted to run out first, which triggered the order.
+     *
+     * @return the bottleneck resource
+     */
+    public Resource getBottleneck() {
+        return bottleneck;
+    }
+
+    /**
+     * Returns the predicted time until the bottleneck runs out, as of the order.
+     *
+     * @return the time to stockout in nanoseconds
+     */
+    public long getNanosToStockout() {
+        return nanosToStockout;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Refill %d ml water, %d ml milk, %d g coffee beans, %d cups (%s out in %.1f s)",
+                water, milk, coffeeBeans, disposableCups, bottleneck.getName(), nanosToStockout / 1e9);
+    }
+}
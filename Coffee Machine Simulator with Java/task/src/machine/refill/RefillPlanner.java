@@ -0,0 +1,234 @@
+package machine.refill;
+
+import machine.coffees.Coffee;
+import machine.events.MachineListener;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Forecasts when a machine runs out of each resource and orders refills ahead of time.
+ * <p>
+ * Registered as a listener on the machine's supply calculator, the planner keeps an
+ * exponentially smoothed consumption rate per resource: every sale decays the running
+ * totals by {@code exp(-elapsed / smoothing)} and adds the amounts used, so a sale costs
+ * the same constant work no matter how long the history is. Dividing the current supply
+ * by the smoothed rate gives the time to stockout.
+ * </p>
+ * <p>
+ * As soon as any resource is forecast to run out within the refill lead time, one order
+ * topping up every resource to capacity is handed to the order consumer. Bundling all
+ * resources into one visit avoids a second stop shortly after for the next resource to
+ * run low. No further order is placed until the machine is filled.
+ * </p>
+ */
+public class RefillPlanner implements MachineListener {
+
+    private static final int RESOURCES = Resource.values().length;
+    private static final Resource[] RESOURCE_VALUES = Resource.values();
+
+    /**
+     * After this many time constants {@code 1 - exp(-t)} rounds to exactly 1 in double precision.
+     */
+    private static final double WARM_UP_CONSTANTS = 40;
+
+    private final SupplyCalculator supplyCalculator;
+    private final int[] capacity;
+    private final double smoothingNanos;
+    private final long leadTimeNanos;
+    private final LongSupplier clock;
+    private final Consumer<RefillOrder> orders;
+    private final long startedAt;
+
+    private final double[] smoothedUse = new double[RESOURCES];
+    private long lastSale;
+    private boolean hasSales;
+    private boolean orderOutstanding;
+
+    /**
+     * Creates a planner for one machine.
+     *
+     * @param supplyCalculator the machine whose supplies are forecast
+     * @param water the water capacity in milliliters
+     * @param milk the milk capacity in milliliters
+     * @param coffeeBeans the coffee bean capacity in grams
+     * @param disposableCups the cup capacity
+     * @param smoothingNanos the time constant of the smoothing; recent sales dominate the forecast over this horizon
+     * @param leadTimeNanos how long a refill takes to arrive
+     * @param clock the time source in nanoseconds
+     * @param orders receives each refill order
+     * @throws IllegalArgumentException if a capacity is negative or the smoothing or lead time is not positive
+     */
+    public RefillPlanner(SupplyCalculator supplyCalculator, int water, int milk, int coffeeBeans, int disposableCups,
+                         long smoothingNanos, long leadTimeNanos, LongSupplier clock, Consumer<RefillOrder> orders) {
+        if (water < 0 || milk < 0 || coffeeBeans < 0 || disposableCups < 0) {
+            throw new IllegalArgumentException("Capacities can't be negative.");
+        }
+        if (smoothingNanos <= 0 || leadTimeNanos <= 0) {
+            throw new IllegalArgumentException("Smoothing and lead time must be positive");
+        }
+        this.supplyCalculator = supplyCalculator;
+        this.capacity = new int[] {water, milk, coffeeBeans, disposableCups};
+        this.smoothingNanos = smoothingNanos;
+        this.leadTimeNanos = leadTimeNanos;
+        this.clock = clock;
+        this.orders = orders;
+        this.startedAt = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized void coffeeSold(Coffee coffee, int count, long amount) {
+        long now = clock.getAsLong();
+        if (hasSales) {
+            double decay = Math.exp(-(now - lastSale) / smoothingNanos);
+            for (int resource = 0; resource < RESOURCES; resource++) {
+                smoothedUse[resource] *= decay;
+            }
+        }
+        smoothedUse[Resource.WATER.ordinal()] += (double) coffee.getWaterNeeded() * count;
+        smoothedUse[Resource.MILK.ordinal()] += (double) coffee.getMilkNeeded() * count;
+        smoothedUse[Resource.COFFEE_BEANS.ordinal()] += (double) coffee.getCoffeeBeansNeeded() * count;
+        smoothedUse[Resource.DISPOSABLE_CUPS.ordinal()] += (double) coffee.getDisposableCupsNeeded() * count;
+        lastSale = now;
+        hasSales = true;
+
+        if (!orderOutstanding && earliestStockout(now) <= leadTimeNanos) {
+            orderOutstanding = true;
+            orders.accept(plan(now));
+        }
+    }
+
+    @Override
+    public synchronized void stockout(Coffee coffee, Resource resource) {
+        // a stockout before any forecast, e.g. right after start, still needs a refill
+        if (!orderOutstanding) {
+            orderOutstanding = true;
+            orders.accept(plan(clock.getAsLong()));
+        }
+    }
+
+    @Override
+    public synchronized void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+        orderOutstanding = false;
+    }
+
+    /**
+     * Returns the current consumption rate of a resource.
+     *
+     * @param resource the resource
+     * @return the smoothed rate in units per second
+     */
+    public synchronized double getRatePerSecond(Resource resource) {
+        return rate(resource.ordinal(), clock.getAsLong()) * 1e9;
+    }
+
+    /**
+     * Predicts how long the current supply of a resource lasts at the current rate.
+     *
+     * @param resource the resource
+     * @return the time to stockout in nanoseconds, or {@link Long#MAX_VALUE} if it is not being used
+     */
+    public synchronized long getNanosToStockout(Resource resource) {
+        return nanosToStockout(resource.ordinal(), clock.getAsLong());
+    }
+
+    /**
+     * Builds the refill order the planner would place right now, whether or not one is due.
+     *
+     * @return the refill order
+     */
+    public synchronized RefillOrder plan() {
+        return plan(clock.getAsLong());
+    }
+
+    /**
+     * Checks whether an order was placed and the machine has not been filled since.
+     *
+     * @return true if a refill is on its way
+     */
+    public synchronized boolean isOrderOutstanding() {
+        return orderOutstanding;
+    }
+
+    private RefillOrder plan(long now) {
+        int[] supply = {
+                supplyCalculator.getWaterSupply(),
+                supplyCalculator.getMilkSupply(),
+                supplyCalculator.getGramsCoffeeSupply(),
+                supplyCalculator.getDisposableCupsSupply()
+        };
+        double scale = rateScale(now);
+        int bottleneck = 0;
+        long earliest = Long.MAX_VALUE;
+        int[] amounts = new int[RESOURCES];
+        for (int resource = 0; resource < RESOURCES; resource++) {
+            long nanos = nanosToStockout(smoothedUse[resource] * scale, supply[resource]);
+            if (nanos < earliest) {
+                earliest = nanos;
+                bottleneck = resource;
+            }
+            // top up to what will be missing from capacity once the refill arrives
+            double usedDuringLead = smoothedUse[resource] * scale * leadTimeNanos;
+            double missing = capacity[resource] - Math.max(0, supply[resource] - usedDuringLead);
+            amounts[resource] = (int) Math.max(0, Math.min(capacity[resource], Math.ceil(missing)));
+        }
+        return new RefillOrder(amounts[0], amounts[1], amounts[2], amounts[3], RESOURCE_VALUES[bottleneck], earliest);
+    }
+
+    private long earliestStockout(long now) {
+        double scale = rateScale(now);
+        long earliest = Long.MAX_VALUE;
+        for (int resource = 0; resource < RESOURCES; resource++) {
+            earliest = Math.min(earliest, nanosToStockout(smoothedUse[resource] * scale, supplyOf(resource)));
+        }
+        return earliest;
+    }
+
+    private long nanosToStockout(int resource, long now) {
+        return nanosToStockout(smoothedUse[resource] * rateScale(now), supplyOf(resource));
+    }
+
+    private int supplyOf(int resource) {
+        return switch (RESOURCE_VALUES[resource]) {
+            case WATER -> supplyCalculator.getWaterSupply();
+            case MILK -> supplyCalculator.getMilkSupply();
+            case COFFEE_BEANS -> supplyCalculator.getGramsCoffeeSupply();
+            case DISPOSABLE_CUPS -> supplyCalculator.getDisposableCupsSupply();
+        };
+    }
+
+    private static long nanosToStockout(double rate, int supply) {
+        if (rate <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double nanos = supply / rate;
+        return nanos >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) nanos;
+    }
+
+    private double rate(int resource, long now) {
+        return smoothedUse[resource] * rateScale(now);
+    }
+
+    /**
+     * Returns the factor turning a smoothed total into a rate in units per nanosecond at the given time.
+     * The decayed total of an exponentially weighted stream divided by the total weight of the
+     * window observed so far estimates the rate of the stream. Over long runs the weight tends
+     * to the time constant; early on it is smaller, which keeps the first forecasts unbiased.
+     * Both exponentials are skipped where they are exactly 1, which is the case on every sale
+     * once the planner has warmed up.
+     */
+    private double rateScale(long now) {
+        if (!hasSales) {
+            return 0;
+        }
+        double observed = (now - startedAt) / smoothingNanos;
+        double weight = observed >= WARM_UP_CONSTANTS ? smoothingNanos : smoothingNanos * -Math.expm1(-observed);
+        if (weight <= 0) {
+            return 0;
+        }
+        double decay = now == lastSale ? 1 : Math.exp(-(now - lastSale) / smoothingNanos);
+        return decay / weight;
+    }
+}
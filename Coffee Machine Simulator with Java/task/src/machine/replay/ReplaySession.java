@@ -0,0 +1,139 @@
+package machine.replay;
+
+import machine.cashregister.CashRegister;
+import machine.io.BufferedOutput;
+import machine.io.FastInput;
+import machine.io.Input;
+import machine.io.Output;
+import machine.menu.Menu;
+import machine.messages.PrintMessages;
+import machine.supplycalculator.SupplyCalculator;
+import machine.supplycalculator.SupplyCalculatorDialog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+
+/**
+ * Replays a recorded command log (buy, fill, take, clean, remaining) through the
+ * same menu state machine the interactive mode uses, without a terminal.
+ * <p>
+ * The log is streamed, so memory use does not depend on its length. Standard output
+ * receives exactly what the interactive session would have printed for the same input;
+ * the throughput and the final machine state are reported on standard error.
+ * The session ends at {@code exit} or at the end of the log.
+ * </p>
+ */
+public class ReplaySession {
+
+    private final Path commandLog;
+
+    /**
+     * Creates a replay session for a command log.
+     *
+     * @param commandLog the file holding one command or amount per line
+     */
+    public ReplaySession(Path commandLog) {
+        this.commandLog = commandLog;
+    }
+
+    /**
+     * Replays the whole command log against a freshly stocked machine.
+     *
+     * @throws IOException if the command log cannot be read
+     */
+    public void run() throws IOException {
+        run(new SupplyCalculator(400, 540, 120, 9), new CashRegister(550));
+    }
+
+    /**
+     * Replays the whole command log against the given machine state.
+     *
+     * @param supplyCalculator the supply calculator managing resources
+     * @param cashRegister the cash register handling transactions
+     * @throws IOException if the command log cannot be read
+     */
+    public void run(SupplyCalculator supplyCalculator, CashRegister cashRegister) throws IOException {
+        Output output = new BufferedOutput(System.out);
+        Output previousOutput = PrintMessages.getOutput();
+        Input previousInput = Menu.getInput();
+        PrintMessages.setOutput(output);
+
+        long start = System.nanoTime();
+        long skippedBefore = Menu.getSkippedLines();
+        long inputs;
+        try (InputStream in = Files.newInputStream(commandLog)) {
+            CountingInput input = new CountingInput(new FastInput(in));
+            Menu.setInput(input);
+            try {
+                Menu.showMenu(supplyCalculator, cashRegister);
+            } catch (NoSuchElementException endOfLog) {
+                // the log ended without an exit command
+            }
+            inputs = input.count;
+        } finally {
+            output.flush();
+            PrintMessages.setOutput(previousOutput);
+            Menu.setInput(previousInput);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        printSummary(inputs, Menu.getSkippedLines() - skippedBefore, elapsed, supplyCalculator, cashRegister);
+    }
+
+    /**
+     * Prints throughput and the final machine state to standard error.
+     */
+    private static void printSummary(long inputs, long skippedLines, long elapsedNanos,
+                                     SupplyCalculator supplyCalculator, CashRegister cashRegister) {
+        Output report = new BufferedOutput(System.err);
+        Output previousOutput = PrintMessages.getOutput();
+        PrintMessages.setOutput(report);
+        try {
+            double seconds = elapsedNanos / 1e9;
+            report.printf("Replayed %d inputs in %.3f s (%.0f inputs/s), skipped %d bad lines%n",
+                    inputs, seconds, seconds > 0 ? inputs / seconds : 0, skippedLines);
+            new SupplyCalculatorDialog().printCoffeeMachineSupplies(supplyCalculator, cashRegister);
+        } finally {
+            report.flush();
+            PrintMessages.setOutput(previousOutput);
+        }
+    }
+
+    /**
+     * Counts every command, choice and amount the menu reads from the log.
+     */
+    private static class CountingInput implements Input {
+
+        private final Input delegate;
+        private long count;
+
+        CountingInput(Input delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String nextLine() {
+            String line = delegate.nextLine();
+            count++;
+            return line;
+        }
+
+        @Override
+        public int nextInt() {
+            int value = delegate.nextInt();
+            count++;
+            return value;
+        }
+
+        @Override
+        public OptionalInt tryNextInt() {
+            OptionalInt value = delegate.tryNextInt();
+            count++;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package machine.reservation;
+
+import machine.coffees.Coffee;
+import machine.supplycalculator.HoldResult;
+
+/**
+ * The supplies of one coffee held for a customer who has chosen but not yet paid,
+ * handed out by a {@link ReservationBook}.
+ * <p>
+ * A reservation starts {@link State#OPEN open} and ends exactly once: committed when the
+ * customer pays, released when they walk away, or expired when nobody did either in time.
+ * The price is quoted when the reservation is made, so the customer pays what they were shown.
+ * A reservation the machine could not hold is {@link State#REFUSED refused} from the start,
+ * and {@link #getHoldResult()} tells why.
+ * </p>
+ */
+public final class Reservation {
+
+    /**
+     * The life cycle of a reservation.
+     */
+    public enum State {
+        OPEN,
+        COMMITTED,
+        RELEASED,
+        EXPIRED,
+        REFUSED
+    }
+
+    private final Coffee coffee;
+    private final long deadline;
+    private final long price;
+    private final HoldResult holdResult;
+    private volatile State state;
+
+    // links of the timer wheel slot the reservation waits in, guarded by the book
+    Reservation previous;
+    Reservation next;
+    int slot;
+    long rounds;
+
+    Reservation(Coffee coffee, long deadline, long price, HoldResult holdResult) {
+        this.coffee = coffee;
+        this.deadline = deadline;
+        this.price = price;
+        this.holdResult = holdResult;
+        this.state = holdResult == HoldResult.HELD ? State.OPEN : State.REFUSED;
+    }
+
+    /**
+     * Returns the coffee whose supplies are held.
+     *
+     * @return the reserved coffee
+     */
+    public Coffee getCoffee() {
+        return coffee;
+    }
+
+    /**
+     * Returns the time the reservation expires at, on the clock of its book.
+     *
+     * @return the deadline in nanoseconds
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns the price quoted when the reservation was made, which is what committing it charges.
+     *
+     * @return the quoted price
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * Returns whether the supplies were held, or why the machine refused to hold them.
+     *
+     * @return {@link HoldResult#HELD} for a reservation that was opened, otherwise the reason it was refused
+     */
+    public HoldResult getHoldResult() {
+        return holdResult;
+    }
+
+    /**
+     * Returns where the reservation is in its life cycle.
+     *
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,187 @@
+package machine.reservation;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.supplycalculator.HoldResult;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Two-phase sales for kiosks where the customer pays after choosing the drink.
+ * <p>
+ * {@link #reserve(Coffee)} holds the water, milk, coffee beans and cup of a recipe on the
+ * {@link SupplyCalculator} for a fixed time to live. Held supplies are debited right away,
+ * so capacity checks see them as gone and a hold can never be sold twice. The customer then
+ * pays and the reservation is {@link #commit(Reservation) committed}, which charges the cash
+ * register the price quoted at reserve time, or walks away and it is
+ * {@link #release(Reservation) released}. Like every other sale, a reservation is refused
+ * while the machine needs cleaning, see {@link SupplyCalculator#tryHold(Coffee)}.
+ * </p>
+ * <p>
+ * Reservations nobody committed or released in time expire and give their supplies back.
+ * Open reservations wait in a {@link TimerWheel}, so expiring them only touches the due ones
+ * no matter how many are open. Every call sweeps the wheel first; a kiosk that may sit idle
+ * calls {@link #expireDue()} from a timer to return abandoned supplies promptly.
+ * Times come from the supplied clock in nanoseconds, so simulations can use a virtual clock.
+ * </p>
+ * All methods are thread-safe.
+ */
+public class ReservationBook {
+
+    private static final int WHEEL_SLOTS = 512;
+    // the time to live spans a quarter of the wheel, so a fresh reservation never waits out a turn
+    private static final int TICKS_PER_TTL = WHEEL_SLOTS / 4;
+
+    private final SupplyCalculator supplyCalculator;
+    private final CashRegister cashRegister;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final TimerWheel wheel;
+    private long committed;
+    private long released;
+    private long expired;
+
+    /**
+     * Creates a reservation book for one machine.
+     *
+     * @param supplyCalculator the supplies reservations hold
+     * @param cashRegister the register committed reservations are charged to
+     * @param ttlNanos how long a reservation stays open
+     * @param clock the time source in nanoseconds
+     * @throws IllegalArgumentException if the time to live is not positive
+     */
+    public ReservationBook(SupplyCalculator supplyCalculator, CashRegister cashRegister, long ttlNanos,
+                           LongSupplier clock) {
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("Reservation time to live must be positive");
+        }
+        this.supplyCalculator = supplyCalculator;
+        this.cashRegister = cashRegister;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.wheel = new TimerWheel(WHEEL_SLOTS, Math.max(1, ttlNanos / TICKS_PER_TTL), clock.getAsLong());
+    }
+
+    /**
+     * Holds the supplies of a coffee until the reservation is committed, released or expires.
+     *
+     * @param coffee the chosen coffee
+     * @return the open reservation, or a {@link Reservation.State#REFUSED refused} one whose
+     *         {@link Reservation#getHoldResult() hold result} tells whether the machine needs
+     *         cleaning or which resource ran out
+     */
+    public synchronized Reservation reserve(Coffee coffee) {
+        long now = clock.getAsLong();
+        expire(now);
+        // quote before holding, since holding may make the recipe scarce and reprice it
+        long price = supplyCalculator.quote(coffee);
+        HoldResult result = supplyCalculator.tryHold(coffee);
+        Reservation reservation = new Reservation(coffee, now + ttlNanos, price, result);
+        if (result == HoldResult.HELD) {
+            wheel.schedule(reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Sells the reserved coffee: charges the cash register the price quoted by {@link #reserve(Coffee)}.
+     *
+     * @param reservation the reservation the customer paid for
+     * @return true if the coffee was sold, false if the reservation was no longer open
+     */
+    public synchronized boolean commit(Reservation reservation) {
+        expire(clock.getAsLong());
+        if (!close(reservation, Reservation.State.COMMITTED)) {
+            return false;
+        }
+        supplyCalculator.commitHold(reservation.getCoffee(), reservation.getPrice(), cashRegister);
+        committed++;
+        return true;
+    }
+
+    /**
+     * Gives the held supplies back without selling anything.
+     *
+     * @param reservation the reservation to cancel
+     * @return true if the supplies were given back, false if the reservation was no longer open
+     */
+    public synchronized boolean release(Reservation reservation) {
+        expire(clock.getAsLong());
+        if (!close(reservation, Reservation.State.RELEASED)) {
+            return false;
+        }
+        supplyCalculator.releaseHold(reservation.getCoffee());
+        released++;
+        return true;
+    }
+
+    /**
+     * Expires every reservation whose deadline has passed and gives its supplies back.
+     *
+     * @return the number of reservations that expired
+     */
+    public synchronized int expireDue() {
+        return expire(clock.getAsLong());
+    }
+
+    /**
+     * Returns the number of reservations currently holding supplies.
+     *
+     * @return the number of open reservations
+     */
+    public synchronized int getOpen() {
+        return wheel.size();
+    }
+
+    /**
+     * Returns the number of reservations committed so far.
+     *
+     * @return the committed count
+     */
+    public synchronized long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * Returns the number of reservations released so far.
+     *
+     * @return the released count
+     */
+    public synchronized long getReleased() {
+        return released;
+    }
+
+    /**
+     * Returns the number of reservations that expired so far.
+     *
+     * @return the expired count
+     */
+    public synchronized long getExpired() {
+        return expired;
+    }
+
+    private boolean close(Reservation reservation, Reservation.State state) {
+        if (reservation.getState() != Reservation.State.OPEN) {
+            return false;
+        }
+        wheel.cancel(reservation);
+        reservation.setState(state);
+        return true;
+    }
+
+    private int expire(long now) {
+        int count = 0;
+        Reservation due = wheel.advance(now);
+        while (due != null) {
+            Reservation following = due.next;
+            due.next = null;
+            due.setState(Reservation.State.EXPIRED);
+            supplyCalculator.releaseHold(due.getCoffee());
+            count++;
+            due = following;
+        }
+        expired += count;
+        return count;
+    }
+}
@@ -0,0 +1,122 @@
+package machine.reservation;
+
+/**
+ * A hashed timer wheel holding open {@link Reservation}s by deadline.
+ * <p>
+ * Time is cut into ticks and every tick maps to one of a power-of-two number of slots,
+ * each a doubly linked list threaded through the reservations themselves. Scheduling and
+ * cancelling are constant time; advancing the clock only visits the slots of the ticks
+ * that passed, so sweeping never scans the reservations that are not due. A deadline
+ * more than one turn of the wheel away waits out the extra turns in {@code rounds}.
+ * A reservation expires on the first tick at or after its deadline.
+ * </p>
+ * Not thread-safe; the {@link ReservationBook} guards it.
+ */
+final class TimerWheel {
+
+    private final Reservation[] slots;
+    private final int mask;
+    private final int shift;
+    private final long tickNanos;
+    private final long origin;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param slots the number of slots, a power of two
+     * @param tickNanos the length of one tick in nanoseconds
+     * @param origin the time of tick zero
+     */
+    TimerWheel(int slots, long tickNanos, long origin) {
+        this.slots = new Reservation[slots];
+        this.mask = slots - 1;
+        this.shift = Integer.numberOfTrailingZeros(slots);
+        this.tickNanos = tickNanos;
+        this.origin = origin;
+    }
+
+    /**
+     * Adds a reservation to the slot of the tick its deadline falls on.
+     *
+     * @param reservation the reservation to schedule
+     */
+    void schedule(Reservation reservation) {
+        long tick = Math.max(currentTick + 1, ceilDiv(reservation.getDeadline() - origin, tickNanos));
+        // the slot comes round every slots.length ticks before the deadline tick
+        reservation.rounds = (tick - currentTick - 1) >>> shift;
+        reservation.slot = (int) (tick & mask);
+        reservation.previous = null;
+        reservation.next = slots[reservation.slot];
+        if (reservation.next != null) {
+            reservation.next.previous = reservation;
+        }
+        slots[reservation.slot] = reservation;
+        size++;
+    }
+
+    /**
+     * Removes a scheduled reservation.
+     *
+     * @param reservation the reservation to remove
+     */
+    void cancel(Reservation reservation) {
+        if (reservation.previous != null) {
+            reservation.previous.next = reservation.next;
+        } else {
+            slots[reservation.slot] = reservation.next;
+        }
+        if (reservation.next != null) {
+            reservation.next.previous = reservation.previous;
+        }
+        reservation.previous = null;
+        reservation.next = null;
+        size--;
+    }
+
+    /**
+     * Moves the wheel to the given time and unlinks every reservation that is due.
+     *
+     * @param now the current time in nanoseconds
+     * @return the due reservations chained through {@code next}, or null if none is due
+     */
+    Reservation advance(long now) {
+        long targetTick = Math.floorDiv(now - origin, tickNanos);
+        Reservation due = null;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                // nothing to visit, jump straight to the target
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            Reservation reservation = slots[(int) (currentTick & mask)];
+            while (reservation != null) {
+                Reservation following = reservation.next;
+                if (reservation.rounds > 0) {
+                    reservation.rounds--;
+                } else {
+                    cancel(reservation);
+                    reservation.next = due;
+                    due = reservation;
+                }
+                reservation = following;
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Returns the number of scheduled reservations.
+     *
+     * @return the size of the wheel
+     */
+    int size() {
+        return size;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
@@ -0,0 +1,139 @@
+package machine.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The buffers of one client of the {@link OrderServer}.
+ * <p>
+ * Every complete request in the receive buffer is executed before anything is sent,
+ * so a client that pipelines requests gets all their responses back in one write.
+ * While responses are waiting to be sent the connection stops reading: requests
+ * that would not fit the send buffer stay unparsed until the client catches up.
+ * </p>
+ */
+final class Connection {
+
+    private static final byte[] LINE_TOO_LONG = "ERR line too long\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final SocketChannel channel;
+    private final ByteBuffer in;
+    private final ByteBuffer out;
+    private final int maxLineLength;
+    private boolean closing;
+
+    /**
+     * Creates the buffers for a client.
+     *
+     * @param channel the non-blocking client channel
+     * @param maxLineLength the longest request accepted, terminator included
+     * @param sendBufferSize the number of response bytes that can wait to be sent
+     */
+    Connection(SocketChannel channel, int maxLineLength, int sendBufferSize) {
+        this.channel = channel;
+        this.maxLineLength = maxLineLength;
+        this.in = ByteBuffer.allocate(Math.max(maxLineLength, sendBufferSize / 4));
+        this.out = ByteBuffer.allocateDirect(sendBufferSize);
+    }
+
+    /**
+     * Reads what the client sent, executes the complete requests and sends the responses.
+     *
+     * @param key the selection key of the channel
+     * @param handler the handler executing the requests
+     * @return the number of requests executed
+     * @throws IOException if the channel fails
+     */
+    int onReadable(SelectionKey key, RequestHandler handler) throws IOException {
+        if (channel.read(in) < 0) {
+            // answer what already arrived, then hang up
+            closing = true;
+        }
+        return handleRequests(handler) + onWritable(key, handler);
+    }
+
+    /**
+     * Sends waiting responses and executes the requests that waited for room in the send buffer.
+     *
+     * @param key the selection key of the channel
+     * @param handler the handler executing the requests
+     * @return the number of requests executed
+     * @throws IOException if the channel fails
+     */
+    int onWritable(SelectionKey key, RequestHandler handler) throws IOException {
+        int handled = 0;
+        while (true) {
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+                if (out.position() > 0) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return handled;
+                }
+            }
+            int batch = handleRequests(handler);
+            if (batch == 0) {
+                break;
+            }
+            handled += batch;
+        }
+        if (closing) {
+            key.cancel();
+            close();
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        return handled;
+    }
+
+    /**
+     * Closes the client channel.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // the client is gone either way
+        }
+    }
+
+    /**
+     * Executes complete requests while their responses fit the send buffer.
+     * An overlong request is answered with an error and ends the connection.
+     *
+     * @return the number of requests executed
+     */
+    private int handleRequests(RequestHandler handler) {
+        byte[] bytes = in.array();
+        int consumed = 0;
+        int limit = in.position();
+        int handled = 0;
+        int i = 0;
+        for (; i < limit && out.remaining() >= RequestHandler.MAX_RESPONSE; i++) {
+            if (i - consumed >= maxLineLength) {
+                break;
+            }
+            if (bytes[i] == '\n') {
+                handler.handle(bytes, consumed, i, out);
+                consumed = i + 1;
+                handled++;
+            }
+        }
+        if (i - consumed >= maxLineLength && out.remaining() >= RequestHandler.MAX_RESPONSE) {
+            out.put(LINE_TOO_LONG);
+            closing = true;
+            // drop the rest, the client is not speaking the protocol
+            in.clear();
+            return handled;
+        }
+        if (consumed > 0) {
+            in.flip().position(consumed);
+            in.compact();
+        }
+        return handled;
+    }
+}
@@ -0,0 +1,218 @@
+package machine.server;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.RecipeRegistry;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Lets point-of-sale terminals operate a coffee machine over TCP.
+ * <p>
+ * The protocol is line based ASCII, one request per line, answered by one response line
+ * in the same order:
+ * </p>
+ * <ul>
+ *     <li>{@code buy <number|name>} answers {@code OK <price>}, {@code ERR not enough <resource>},
+ *     {@code ERR needs cleaning} or {@code ERR unknown drink}. Numbers are the menu numbers,
+ *     starting at 1 for espresso.</li>
+ *     <li>{@code fill <water> <milk> <coffee beans> <cups>} answers {@code OK}.</li>
+ *     <li>{@code take} answers {@code OK <money taken>}.</li>
+ *     <li>{@code clean} answers {@code OK}.</li>
+ *     <li>{@code remaining} answers {@code OK <water> <milk> <coffee beans> <cups> <money>}.</li>
+ * </ul>
+ * Anything else answers {@code ERR bad request}, and a request that fails unexpectedly answers
+ * {@code ERR internal error}. A line longer than 256 bytes closes the connection.
+ * <p>
+ * Terminals may pipeline: send many requests without waiting for the answers. A single
+ * thread multiplexes every connection with a {@link Selector} and is the only thread that
+ * touches the machine, so requests from different terminals are executed one at a time in
+ * arrival order, exactly as the {@link machine.menu.Menu menu} would execute them. All requests
+ * that arrived together are executed before their responses go out in one write.
+ * </p>
+ * <p>
+ * If the event loop itself fails, it prints the error to standard error and closes every
+ * connection, and {@link #getRequests()} and {@link #close()} throw it from then on.
+ * </p>
+ */
+public class OrderServer implements Closeable {
+
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int SEND_BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private final RequestHandler handler;
+    private final Thread eventLoop;
+    private volatile boolean running = true;
+    private volatile long requests;
+    private volatile long connections;
+    private volatile Throwable failure;
+
+    /**
+     * Binds the server and starts its event loop.
+     *
+     * @param supplyCalculator the supplies requests draw from; only touched by the server thread
+     * @param cashRegister the register sales are charged to; only touched by the server thread
+     * @param registry the drinks terminals can order
+     * @param address the address to listen on, port 0 for any free port
+     * @throws IOException if the address cannot be bound
+     */
+    public OrderServer(SupplyCalculator supplyCalculator, CashRegister cashRegister, RecipeRegistry registry,
+                       InetSocketAddress address) throws IOException {
+        this.handler = new RequestHandler(supplyCalculator, cashRegister, registry);
+        this.selector = Selector.open();
+        try {
+            this.acceptor = ServerSocketChannel.open();
+            acceptor.bind(address);
+            acceptor.configureBlocking(false);
+            acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        this.eventLoop = new Thread(this::serve, "order-server");
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    /**
+     * Returns the address the server listens on, with the actual port if port 0 was requested.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) acceptor.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of requests executed so far.
+     *
+     * @return the request count
+     * @throws IllegalStateException if the event loop failed
+     */
+    public long getRequests() {
+        checkNotFailed();
+        return requests;
+    }
+
+    /**
+     * Returns the number of connections accepted so far.
+     *
+     * @return the connection count
+     */
+    public long getConnections() {
+        return connections;
+    }
+
+    /**
+     * Stops the event loop and closes every connection. Responses not yet sent are dropped.
+     *
+     * @throws IllegalStateException if the event loop had failed before it was stopped
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                eventLoop.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkNotFailed();
+    }
+
+    private void checkNotFailed() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Order server stopped after an error", cause);
+        }
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select(this::onReady);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // requests answer their own failures, so this is the loop itself or an error the JVM raised
+            failure = e;
+            System.err.println("Order server stopped after an error, closing every connection:");
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                acceptor.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // shutting down anyway
+            }
+        }
+    }
+
+    private void onReady(SelectionKey key) {
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            int handled = key.isReadable()
+                    ? connection.onReadable(key, handler)
+                    : connection.onWritable(key, handler);
+            if (handled > 0) {
+                // single writer, so the volatile increment is safe
+                requests += handled;
+            }
+        } catch (IOException e) {
+            // the terminal went away; its requests so far stay executed
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            while ((channel = acceptor.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.register(selector, SelectionKey.OP_READ,
+                        new Connection(channel, MAX_LINE_LENGTH, SEND_BUFFER_SIZE));
+                connections++;
+            }
+        } catch (IOException e) {
+            // a terminal that disconnects while being accepted simply isn't served
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already gone
+                }
+            }
+        }
+    }
+}
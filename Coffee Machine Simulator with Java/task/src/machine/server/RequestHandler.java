@@ -0,0 +1,253 @@
+package machine.server;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Executes the requests of the {@link OrderServer} line protocol against one machine
+ * and encodes the responses. Requests are parsed straight from the receive buffer and
+ * numbers are written straight into the send buffer, so the common requests create no strings.
+ * Only ever used by the server thread.
+ */
+final class RequestHandler {
+
+    /**
+     * The largest number of bytes a single response can take.
+     */
+    static final int MAX_RESPONSE = 96;
+
+    private static final byte[] OK = ascii("OK");
+    private static final byte[] NEEDS_CLEANING = ascii("ERR needs cleaning\n");
+    private static final byte[] BAD_REQUEST = ascii("ERR bad request\n");
+    private static final byte[] UNKNOWN_DRINK = ascii("ERR unknown drink\n");
+    private static final byte[] INTERNAL_ERROR = ascii("ERR internal error\n");
+    private static final byte[][] NOT_ENOUGH = new byte[Resource.values().length][];
+
+    static {
+        for (Resource resource : Resource.values()) {
+            NOT_ENOUGH[resource.ordinal()] = ascii("ERR not enough " + resource.getName() + "\n");
+        }
+    }
+
+    private final SupplyCalculator supplyCalculator;
+    private final CashRegister cashRegister;
+    private final RecipeRegistry registry;
+    private final byte[] digits = new byte[20];
+
+    private byte[] line;
+    private int position;
+    private int end;
+
+    /**
+     * Creates a handler.
+     *
+     * @param supplyCalculator the supplies requests draw from
+     * @param cashRegister the register sales are charged to
+     * @param registry the drinks that can be ordered
+     */
+    RequestHandler(SupplyCalculator supplyCalculator, CashRegister cashRegister, RecipeRegistry registry) {
+        this.supplyCalculator = supplyCalculator;
+        this.cashRegister = cashRegister;
+        this.registry = registry;
+    }
+
+    /**
+     * Executes one request and appends its response. A request that fails unexpectedly, for
+     * example because a listener of the machine threw, is answered with {@code ERR internal error}
+     * so the other requests and terminals are still served; whatever it changed before failing stays changed.
+     *
+     * @param bytes the buffer holding the request
+     * @param from the index of the first byte of the request
+     * @param to the index after the last byte, line terminator excluded
+     * @param out the buffer to append the response to; needs {@link #MAX_RESPONSE} bytes of room
+     */
+    void handle(byte[] bytes, int from, int to, ByteBuffer out) {
+        int responseStart = out.position();
+        try {
+            execute(bytes, from, to, out);
+        } catch (RuntimeException e) {
+            // drop whatever part of the response was written before the failure
+            out.position(responseStart);
+            out.put(INTERNAL_ERROR);
+        }
+    }
+
+    private void execute(byte[] bytes, int from, int to, ByteBuffer out) {
+        line = bytes;
+        position = from;
+        end = to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+
+        if (word("buy")) {
+            buy(out);
+        } else if (word("fill")) {
+            fill(out);
+        } else if (word("take")) {
+            if (!atEnd()) {
+                out.put(BAD_REQUEST);
+                return;
+            }
+            out.put(OK);
+            putNumber(out, cashRegister.drain());
+            out.put((byte) '\n');
+        } else if (word("clean")) {
+            if (!atEnd()) {
+                out.put(BAD_REQUEST);
+                return;
+            }
+            supplyCalculator.clean();
+            out.put(OK).put((byte) '\n');
+        } else if (word("remaining")) {
+            if (!atEnd()) {
+                out.put(BAD_REQUEST);
+                return;
+            }
+            out.put(OK);
+            putNumber(out, supplyCalculator.getWaterSupply());
+            putNumber(out, supplyCalculator.getMilkSupply());
+            putNumber(out, supplyCalculator.getGramsCoffeeSupply());
+            putNumber(out, supplyCalculator.getDisposableCupsSupply());
+            putNumber(out, cashRegister.getMoney());
+            out.put((byte) '\n');
+        } else {
+            out.put(BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Sells the drink named by its menu number or by its name.
+     */
+    private void buy(ByteBuffer out) {
+        skipSpaces();
+        int start = position;
+        long number = number();
+        Coffee coffee;
+        if (number > 0 && atEnd()) {
+            if (number > registry.size()) {
+                out.put(UNKNOWN_DRINK);
+                return;
+            }
+            // menu numbers start at 1, recipe ids at 0
+            coffee = registry.get((int) number - 1);
+        } else {
+            position = start;
+            int nameEnd = end;
+            while (nameEnd > start && line[nameEnd - 1] == ' ') {
+                nameEnd--;
+            }
+            if (nameEnd == start) {
+                out.put(BAD_REQUEST);
+                return;
+            }
+            coffee = registry.find(new String(line, start, nameEnd - start, StandardCharsets.US_ASCII));
+            if (coffee == null) {
+                out.put(UNKNOWN_DRINK);
+                return;
+            }
+        }
+
+        if (supplyCalculator.isReadyToClean()) {
+            out.put(NEEDS_CLEANING);
+            return;
+        }
+        // only this thread sells, so the quote is exactly what the sale charges
+        long price = supplyCalculator.quote(coffee);
+        Resource shortage = supplyCalculator.trySellCoffee(coffee, cashRegister);
+        if (shortage != null) {
+            out.put(NOT_ENOUGH[shortage.ordinal()]);
+            return;
+        }
+        out.put(OK);
+        putNumber(out, price);
+        out.put((byte) '\n');
+    }
+
+    private void fill(ByteBuffer out) {
+        long water = number();
+        long milk = number();
+        long coffeeBeans = number();
+        long disposableCups = number();
+        if (water < 0 || milk < 0 || coffeeBeans < 0 || disposableCups < 0 || !atEnd()) {
+            out.put(BAD_REQUEST);
+            return;
+        }
+        supplyCalculator.fillSupplies((int) water, (int) milk, (int) coffeeBeans, (int) disposableCups);
+        out.put(OK).put((byte) '\n');
+    }
+
+    /**
+     * Consumes the given lower-case word, ignoring the case of the request,
+     * if it is followed by a space or the end of the line.
+     */
+    private boolean word(String word) {
+        int length = word.length();
+        if (end - position < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((line[position + i] | 0x20) != word.charAt(i)) {
+                return false;
+            }
+        }
+        if (position + length < end && line[position + length] != ' ') {
+            return false;
+        }
+        position += length;
+        return true;
+    }
+
+    /**
+     * Parses the next non-negative number that fits an {@code int}.
+     *
+     * @return the number, or -1 if the next field is not such a number
+     */
+    private long number() {
+        skipSpaces();
+        int start = position;
+        long value = 0;
+        while (position < end && line[position] >= '0' && line[position] <= '9') {
+            value = value * 10 + (line[position++] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return position == start ? -1 : value;
+    }
+
+    private void skipSpaces() {
+        while (position < end && line[position] == ' ') {
+            position++;
+        }
+    }
+
+    private boolean atEnd() {
+        skipSpaces();
+        return position == end;
+    }
+
+    /**
+     * Appends a space and the decimal digits of a number.
+     */
+    private void putNumber(ByteBuffer out, long value) {
+        out.put((byte) ' ');
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.put(digits, start, digits.length - start);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
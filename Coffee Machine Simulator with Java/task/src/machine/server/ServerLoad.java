@@ -0,0 +1,173 @@
+package machine.server;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.RecipeRegistry;
+import machine.io.Output;
+import machine.metrics.LatencyHistogram;
+import machine.supplycalculator.SupplyCalculator;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drives an {@link OrderServer} on the loopback interface with several terminals that
+ * keep a fixed number of requests in flight each, and reports requests per second and
+ * request-to-response latency.
+ * <p>
+ * Every terminal cycles through a mix of mostly purchases with a refill, a cleaning,
+ * a stock check and a cash collection in between, so all request types are exercised.
+ * Purchases refused because another terminal used up the brews since the last cleaning
+ * count as refused, not as failures.
+ * </p>
+ */
+public class ServerLoad {
+
+    /**
+     * The largest number of requests a terminal can keep in flight. Bounds what a
+     * terminal writes before it reads, so it can never block the server by not reading.
+     */
+    public static final int MAX_DEPTH = 1024;
+
+    private static final byte[][] MIX = ascii(
+            "buy 1", "buy 2", "buy 3", "buy 1", "buy 2", "buy 3", "buy espresso", "remaining",
+            "buy 1", "buy 2", "buy 3", "fill 1000 600 100 10", "buy 1", "buy latte", "take", "clean");
+    private static final int MAX_REQUEST = 32;
+
+    private final int terminals;
+    private final int depth;
+
+    /**
+     * Creates a load run.
+     *
+     * @param terminals the number of connections
+     * @param depth the number of requests each connection keeps in flight
+     * @throws IllegalArgumentException if there are no terminals or the depth is out of range
+     */
+    public ServerLoad(int terminals, int depth) {
+        if (terminals <= 0 || depth <= 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Terminals must be positive and depth between 1 and " + MAX_DEPTH);
+        }
+        this.terminals = terminals;
+        this.depth = depth;
+    }
+
+    /**
+     * Starts a server for a well stocked machine, sends the given number of requests and waits for every response.
+     *
+     * @param requests the total number of requests
+     * @param output where to print the report
+     * @throws IOException if a connection fails
+     * @throws InterruptedException if interrupted while waiting for the terminals
+     */
+    public void run(long requests, Output output) throws IOException, InterruptedException {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(1 << 30, 1 << 30, 1 << 30, 1 << 30);
+        CashRegister cashRegister = new CashRegister(0);
+        LatencyHistogram latency = new LatencyHistogram();
+        long[] refused = new long[terminals];
+        IOException[] failures = new IOException[terminals];
+
+        try (OrderServer server = new OrderServer(supplyCalculator, cashRegister, RecipeRegistry.getDefault(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            InetSocketAddress address = server.getAddress();
+            Thread[] threads = new Thread[terminals];
+            long start = System.nanoTime();
+            for (int terminal = 0; terminal < terminals; terminal++) {
+                int index = terminal;
+                long quota = requests / terminals + (terminal < requests % terminals ? 1 : 0);
+                threads[terminal] = new Thread(() -> {
+                    try (SocketChannel channel = SocketChannel.open(address)) {
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                        refused[index] = drive(channel, quota, index, latency);
+                    } catch (IOException e) {
+                        failures[index] = e;
+                    }
+                }, "terminal-" + terminal);
+                threads[terminal].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            for (IOException failure : failures) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+
+            long totalRefused = 0;
+            for (long count : refused) {
+                totalRefused += count;
+            }
+            output.printf("%d requests from %d terminals, %d in flight each, served on %s%n",
+                    requests, terminals, depth, address);
+            output.printf("Answered %d (%d refused) in %.3f s (%.0f requests/s)%n", server.getRequests(),
+                    totalRefused, elapsed / 1e9, requests * 1e9 / elapsed);
+            output.printf("Request-to-response latency: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+        }
+    }
+
+    /**
+     * Keeps the window of requests full until the quota is answered.
+     *
+     * @return the number of requests answered with an error
+     */
+    private long drive(SocketChannel channel, long quota, int terminal, LatencyHistogram latency)
+            throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(depth * MAX_REQUEST);
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        long[] sentAt = new long[depth];
+        long sent = 0;
+        long answered = 0;
+        long refused = 0;
+        // terminals start at different points of the mix
+        int next = terminal * 5;
+
+        while (answered < quota) {
+            long now = System.nanoTime();
+            while (sent < quota && sent - answered < depth) {
+                out.put(MIX[next++ & (MIX.length - 1)]);
+                sentAt[(int) (sent++ % depth)] = now;
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+
+            if (channel.read(in) < 0) {
+                throw new EOFException("The server closed the connection");
+            }
+            now = System.nanoTime();
+            byte[] bytes = in.array();
+            int lineStart = 0;
+            for (int i = 0; i < in.position(); i++) {
+                if (bytes[i] == '\n') {
+                    latency.record(now - sentAt[(int) (answered++ % depth)]);
+                    if (bytes[lineStart] != 'O') {
+                        refused++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            in.flip().position(lineStart);
+            in.compact();
+        }
+        return refused;
+    }
+
+    private static byte[][] ascii(String... requests) {
+        byte[][] lines = new byte[requests.length][];
+        for (int i = 0; i < requests.length; i++) {
+            lines[i] = (requests[i] + "\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        return lines;
+    }
+}
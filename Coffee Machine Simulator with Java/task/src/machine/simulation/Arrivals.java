@@ -0,0 +1,126 @@
+package machine.simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The stream of customers walking up to a simulated machine, in order of arrival.
+ * Implementations produce one arrival at a time without allocating.
+ */
+public interface Arrivals {
+
+    /**
+     * Advances to the next customer.
+     *
+     * @return the virtual arrival time in nanoseconds, or -1 if no more customers come
+     */
+    long next();
+
+    /**
+     * Returns the recipe id ordered by the customer returned by the last {@link #next()}.
+     *
+     * @return the recipe id
+     */
+    int recipe();
+
+    /**
+     * Creates arrivals of a Poisson process: exponentially distributed gaps at the given rate,
+     * each customer picking one of the recipes uniformly. The same seed yields the same customers.
+     *
+     * @param customersPerHour the average arrival rate
+     * @param recipes the number of recipe ids to choose from, starting at 0
+     * @param seed the random seed
+     * @return the arrivals
+     * @throws IllegalArgumentException if the rate or the recipe count is not positive
+     */
+    static Arrivals poisson(double customersPerHour, int recipes, long seed) {
+        if (recipes <= 0) {
+            throw new IllegalArgumentException("Recipe count must be positive");
+        }
+        double[] mix = new double[recipes];
+        Arrays.fill(mix, 1);
+        return poisson(customersPerHour, mix, seed);
+    }
+
+    /**
+     * Creates arrivals of a Poisson process whose customers pick recipes with the given weights.
+     *
+     * @param customersPerHour the average arrival rate
+     * @param mix the relative demand for each recipe id; they need not add up to 1
+     * @param seed the random seed
+     * @return the arrivals
+     * @throws IllegalArgumentException if the rate is not positive or the weights are negative or all zero
+     */
+    static Arrivals poisson(double customersPerHour, double[] mix, long seed) {
+        if (customersPerHour <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive");
+        }
+        double[] cumulative = new double[mix.length];
+        double total = 0;
+        for (int recipe = 0; recipe < mix.length; recipe++) {
+            if (mix[recipe] < 0) {
+                throw new IllegalArgumentException("Demand weights can't be negative.");
+            }
+            total += mix[recipe];
+            cumulative[recipe] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one recipe needs some demand");
+        }
+        double meanGapNanos = 3600e9 / customersPerHour;
+        double totalWeight = total;
+        SplittableRandom random = new SplittableRandom(seed);
+        return new Arrivals() {
+            private long time;
+            private int recipe;
+
+            @Override
+            public long next() {
+                time += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+                double pick = random.nextDouble() * totalWeight;
+                recipe = 0;
+                while (recipe < cumulative.length - 1 && pick >= cumulative[recipe]) {
+                    recipe++;
+                }
+                return time;
+            }
+
+            @Override
+            public int recipe() {
+                return recipe;
+            }
+        };
+    }
+
+    /**
+     * Replays recorded arrivals.
+     *
+     * @param times the arrival times in nanoseconds, in ascending order
+     * @param recipes the recipe id of each arrival
+     * @return the arrivals
+     * @throws IllegalArgumentException if the arrays differ in length or the times are not sorted
+     */
+    static Arrivals trace(long[] times, int[] recipes) {
+        if (times.length != recipes.length) {
+            throw new IllegalArgumentException("Every arrival needs exactly one recipe");
+        }
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] < times[i - 1]) {
+                throw new IllegalArgumentException("Arrival times must be in ascending order");
+            }
+        }
+        return new Arrivals() {
+            private int index = -1;
+
+            @Override
+            public long next() {
+                return ++index < times.length ? times[index] : -1;
+            }
+
+            @Override
+            public int recipe() {
+                return recipes[index];
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package machine.simulation;
+
+import machine.persistence.MachineState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sizes a machine's starting supplies by simulating many days of each candidate configuration.
+ * <p>
+ * Every combination of starting supplies and demand mix is played for a number of independent
+ * {@link DaySimulation} days, each with its own seed derived from the planner's seed, so a run is
+ * repeatable no matter how the work was split. The days are independent and write their figures
+ * into their own array slots, so the fork/join pool splits them across all cores without any
+ * shared state and the runtime drops in proportion to the number of cores.
+ * </p>
+ */
+public class CapacityPlanner {
+
+    /**
+     * The number of simulated days a fork/join task runs without splitting further.
+     */
+    private static final int DAYS_PER_TASK = 8;
+
+    private final int days;
+    private final long dayNanos;
+    private final double customersPerHour;
+    private final int brewUnits;
+    private final long brewNanos;
+    private final long cleaningNanos;
+    private final long refillLeadNanos;
+    private final long seed;
+
+    /**
+     * Creates a planner.
+     *
+     * @param days the number of days simulated per configuration
+     * @param dayNanos the opening hours of one day
+     * @param customersPerHour the average arrival rate
+     * @param brewUnits the number of drinks that can brew at the same time
+     * @param brewNanos how long one drink takes
+     * @param cleaningNanos how long a cleaning takes
+     * @param refillLeadNanos how long a refill takes to arrive after it is ordered
+     * @param seed the seed all simulated days derive their randomness from
+     * @throws IllegalArgumentException if the day count or the day length is not positive
+     */
+    public CapacityPlanner(int days, long dayNanos, double customersPerHour, int brewUnits, long brewNanos,
+                           long cleaningNanos, long refillLeadNanos, long seed) {
+        if (days <= 0 || dayNanos <= 0) {
+            throw new IllegalArgumentException("Days and day length must be positive");
+        }
+        this.days = days;
+        this.dayNanos = dayNanos;
+        this.customersPerHour = customersPerHour;
+        this.brewUnits = brewUnits;
+        this.brewNanos = brewNanos;
+        this.cleaningNanos = cleaningNanos;
+        this.refillLeadNanos = refillLeadNanos;
+        this.seed = seed;
+    }
+
+    /**
+     * Simulates every combination of starting supplies and demand mix on the common fork/join pool.
+     *
+     * @param supplies the candidate starting supplies, which are also the tank sizes
+     * @param mixes the candidate demand weights, each indexed by recipe id
+     * @return one result per combination, supplies varying slowest
+     */
+    public List<CapacityResult> plan(List<MachineState> supplies, List<double[]> mixes) {
+        return plan(supplies, mixes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Simulates every combination of starting supplies and demand mix on the given fork/join pool.
+     * The results do not depend on the pool's parallelism.
+     *
+     * @param supplies the candidate starting supplies, which are also the tank sizes
+     * @param mixes the candidate demand weights, each indexed by recipe id
+     * @param pool the pool to run the simulated days on
+     * @return one result per combination, supplies varying slowest
+     */
+    public List<CapacityResult> plan(List<MachineState> supplies, List<double[]> mixes, ForkJoinPool pool) {
+        int configurations = supplies.size() * mixes.size();
+        long[] revenues = new long[configurations * days];
+        long[] stockouts = new long[configurations * days];
+        pool.invoke(new Days(supplies, mixes, revenues, stockouts, 0, revenues.length));
+
+        List<CapacityResult> results = new ArrayList<>(configurations);
+        for (int configuration = 0; configuration < configurations; configuration++) {
+            int from = configuration * days;
+            results.add(new CapacityResult(supplies.get(configuration / mixes.size()),
+                    mixes.get(configuration % mixes.size()),
+                    Arrays.copyOfRange(revenues, from, from + days),
+                    Arrays.copyOfRange(stockouts, from, from + days)));
+        }
+        return results;
+    }
+
+    /**
+     * Simulates the days with indices {@code [from, to)}; day {@code i} belongs to
+     * configuration {@code i / days}.
+     */
+    private final class Days extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<MachineState> supplies;
+        private final List<double[]> mixes;
+        private final long[] revenues;
+        private final long[] stockouts;
+        private final int from;
+        private final int to;
+
+        Days(List<MachineState> supplies, List<double[]> mixes, long[] revenues, long[] stockouts, int from, int to) {
+            this.supplies = supplies;
+            this.mixes = mixes;
+            this.revenues = revenues;
+            this.stockouts = stockouts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= DAYS_PER_TASK) {
+                for (int day = from; day < to; day++) {
+                    simulate(day);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Days(supplies, mixes, revenues, stockouts, from, middle),
+                    new Days(supplies, mixes, revenues, stockouts, middle, to));
+        }
+
+        private void simulate(int day) {
+            int configuration = day / days;
+            // mixing the day index gives each day an independent stream for any split of the work
+            long daySeed = new SplittableRandom(seed + day * 0x9E3779B97F4A7C15L).nextLong();
+            DaySimulation simulation = new DaySimulation(
+                    Arrivals.poisson(customersPerHour, mixes.get(configuration % mixes.size()), daySeed),
+                    supplies.get(configuration / mixes.size()),
+                    brewUnits, brewNanos, cleaningNanos, refillLeadNanos);
+            SimulationReport report = simulation.run(dayNanos);
+            revenues[day] = report.getRevenue();
+            stockouts[day] = report.getStockouts();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package machine.simulation;
+
+import machine.io.Output;
+import machine.persistence.MachineState;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of many simulated days of one machine configuration in a {@link CapacityPlanner} run.
+ */
+public class CapacityResult {
+
+    private final MachineState supplies;
+    private final double[] mix;
+    private final long[] revenues;
+    private final long[] stockouts;
+
+    /**
+     * Creates a result from per-day figures.
+     *
+     * @param supplies the simulated starting supplies
+     * @param mix the simulated demand weight of each recipe
+     * @param revenues the revenue of each simulated day
+     * @param stockouts the number of customers that hit a stockout on each simulated day
+     */
+    CapacityResult(MachineState supplies, double[] mix, long[] revenues, long[] stockouts) {
+        this.supplies = supplies;
+        this.mix = mix.clone();
+        this.revenues = revenues.clone();
+        this.stockouts = stockouts.clone();
+        Arrays.sort(this.revenues);
+    }
+
+    /**
+     * Returns the simulated starting supplies.
+     *
+     * @return the supplies
+     */
+    public MachineState getSupplies() {
+        return supplies;
+    }
+
+    /**
+     * Returns the simulated demand weights, indexed by recipe id.
+     *
+     * @return a copy of the demand mix
+     */
+    public double[] getMix() {
+        return mix.clone();
+    }
+
+    /**
+     * Returns the share of simulated days on which at least one customer hit a stockout.
+     *
+     * @return the stockout probability between 0 and 1
+     */
+    public double getStockoutProbability() {
+        long days = 0;
+        for (long count : stockouts) {
+            if (count > 0) {
+                days++;
+            }
+        }
+        return (double) days / stockouts.length;
+    }
+
+    /**
+     * Returns the average number of customers per day that hit a stockout.
+     *
+     * @return the mean stockout count
+     */
+    public double getMeanStockouts() {
+        long total = 0;
+        for (long count : stockouts) {
+            total += count;
+        }
+        return (double) total / stockouts.length;
+    }
+
+    /**
+     * Returns the average revenue per day.
+     *
+     * @return the mean revenue
+     */
+    public double getMeanRevenue() {
+        long total = 0;
+        for (long revenue : revenues) {
+            total += revenue;
+        }
+        return (double) total / revenues.length;
+    }
+
+    /**
+     * Returns the revenue that the given share of simulated days did not exceed.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the revenue at that percentile
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getRevenueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        int rank = (int) Math.ceil(percentile / 100 * revenues.length);
+        return revenues[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Prints the configuration and its figures on one line.
+     *
+     * @param output where to print the result
+     */
+    public void print(Output output) {
+        output.printf("%6d ml water %6d ml milk %5d g beans %4d cups  mix %-15s  P(stockout) %5.1f%%  "
+                        + "%7.1f stockouts/day  revenue p5 $%d p50 $%d p95 $%d%n",
+                supplies.getWater(), supplies.getMilk(), supplies.getCoffeeBeans(), supplies.getDisposableCups(),
+                Arrays.toString(mix), getStockoutProbability() * 100, getMeanStockouts(),
+                getRevenueAtPercentile(5), getRevenueAtPercentile(50), getRevenueAtPercentile(95));
+    }
+}
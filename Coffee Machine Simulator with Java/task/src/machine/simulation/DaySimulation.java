@@ -0,0 +1,228 @@
+package machine.simulation;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.maintenance.MaintenanceScheduler;
+import machine.metrics.LatencyHistogram;
+import machine.persistence.MachineState;
+import machine.refill.RefillPlanner;
+import machine.supplycalculator.PlainInventory;
+import machine.supplycalculator.SupplyCalculator;
+
+/**
+ * Simulates a single coffee machine over virtual time, fast enough to play a whole day of
+ * traffic in a fraction of a second.
+ * <p>
+ * Nothing waits on a real clock: an {@link EventQueue} holds brew completions, the end of a
+ * cleaning and incoming refills, and the simulation jumps straight from one event to the next.
+ * There is only ever one pending arrival, and arrivals are most of the events, so it is kept
+ * beside the queue rather than in it. Customers queue up for the brew units and walk away when
+ * the line is too long or their drink cannot be made. Every ten brews the machine has to be
+ * cleaned, which takes all units out of service; a {@link RefillPlanner} running on the virtual
+ * clock orders supplies ahead of time. The machine is driven through the same
+ * {@link SupplyCalculator} and {@link CashRegister} as the interactive menu, using their silent
+ * operations.
+ * </p>
+ * The outcome depends only on the arrivals and the parameters, so a seeded run is repeatable.
+ */
+public class DaySimulation {
+
+    /**
+     * Customers waiting in line beyond this number walk away instead of queuing.
+     */
+    public static final int QUEUE_LIMIT = 20;
+
+    private static final int BREW_DONE = 0;
+    private static final int CLEANING_DONE = 1;
+    private static final int REFILL_ARRIVES = 2;
+
+    private final Arrivals arrivals;
+    private final MachineState capacity;
+    private final int brewUnits;
+    private final long brewNanos;
+    private final long cleaningNanos;
+    private final long refillLeadNanos;
+    private final RecipeRegistry registry = RecipeRegistry.getDefault();
+
+    private final EventQueue events = new EventQueue();
+    private long nextArrival = -1;
+    private long nextArrivalSequence;
+    private int nextArrivalRecipe;
+    private final int[] waitingRecipes = new int[QUEUE_LIMIT];
+    private final long[] waitingSince = new long[QUEUE_LIMIT];
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private SupplyCalculator supplyCalculator;
+    private CashRegister cashRegister;
+    private long now;
+    private int waitingHead;
+    private int waiting;
+    private int freeUnits;
+    private boolean cleaning;
+
+    private long arrived;
+    private long served;
+    private long balked;
+    private long stockouts;
+    private long cleanings;
+    private long refills;
+    private long processedEvents;
+
+    /**
+     * Creates a simulation.
+     *
+     * @param arrivals the customers
+     * @param capacity the supplies and money the machine starts with; the supplies are also its tank sizes
+     * @param brewUnits the number of drinks that can brew at the same time
+     * @param brewNanos how long one drink takes
+     * @param cleaningNanos how long a cleaning takes
+     * @param refillLeadNanos how long a refill takes to arrive after it is ordered
+     * @throws IllegalArgumentException if the unit count or a duration is not positive
+     */
+    public DaySimulation(Arrivals arrivals, MachineState capacity, int brewUnits, long brewNanos,
+                         long cleaningNanos, long refillLeadNanos) {
+        if (brewUnits <= 0 || brewNanos <= 0 || cleaningNanos <= 0 || refillLeadNanos <= 0) {
+            throw new IllegalArgumentException("Brew units and durations must be positive");
+        }
+        this.arrivals = arrivals;
+        this.capacity = capacity;
+        this.brewUnits = brewUnits;
+        this.brewNanos = brewNanos;
+        this.cleaningNanos = cleaningNanos;
+        this.refillLeadNanos = refillLeadNanos;
+    }
+
+    /**
+     * Runs the simulation until the given virtual time or until no more events are left.
+     * A simulation can only be run once.
+     *
+     * @param untilNanos the virtual time to stop at
+     * @return the outcome of the run
+     * @throws IllegalStateException if the simulation already ran
+     */
+    public SimulationReport run(long untilNanos) {
+        if (supplyCalculator != null) {
+            throw new IllegalStateException("A simulation can only be run once");
+        }
+        supplyCalculator = new SupplyCalculator(
+                new PlainInventory(toInt(capacity.getWater()), toInt(capacity.getMilk()),
+                        toInt(capacity.getCoffeeBeans()), toInt(capacity.getDisposableCups())),
+                new MaintenanceScheduler(10, 0, 0, 1, () -> now));
+        cashRegister = new CashRegister(capacity.getMoney());
+        supplyCalculator.addListener(new RefillPlanner(supplyCalculator,
+                toInt(capacity.getWater()), toInt(capacity.getMilk()),
+                toInt(capacity.getCoffeeBeans()), toInt(capacity.getDisposableCups()),
+                3_600_000_000_000L, refillLeadNanos, () -> now,
+                order -> events.schedule(now + refillLeadNanos, REFILL_ARRIVES, 0)));
+        freeUnits = brewUnits;
+
+        long start = System.nanoTime();
+        scheduleNextArrival();
+        while (true) {
+            boolean arrival = nextArrival >= 0 && events.isBefore(nextArrival, nextArrivalSequence);
+            long at = arrival ? nextArrival : events.isEmpty() ? -1 : events.peekTime();
+            if (at < 0 || at > untilNanos) {
+                break;
+            }
+            processedEvents++;
+            if (arrival) {
+                now = at;
+                arrive(nextArrivalRecipe);
+                startBrewing();
+                continue;
+            }
+            int type = events.take();
+            now = events.time();
+            switch (type) {
+                case BREW_DONE -> {
+                    freeUnits++;
+                    served++;
+                }
+                case CLEANING_DONE -> {
+                    supplyCalculator.clean();
+                    cleaning = false;
+                    cleanings++;
+                }
+                case REFILL_ARRIVES -> refill();
+                default -> throw new IllegalStateException("Unknown event type: " + type);
+            }
+            startBrewing();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new SimulationReport(Math.min(now, untilNanos), elapsed, processedEvents, arrived, served,
+                balked, stockouts, cleanings, refills, cashRegister.getMoney() - capacity.getMoney(), waits);
+    }
+
+    private void arrive(int recipe) {
+        arrived++;
+        scheduleNextArrival();
+        if (waiting == QUEUE_LIMIT) {
+            balked++;
+            return;
+        }
+        int slot = (waitingHead + waiting++) % QUEUE_LIMIT;
+        waitingRecipes[slot] = recipe;
+        waitingSince[slot] = now;
+    }
+
+    private void scheduleNextArrival() {
+        long at = arrivals.next();
+        if (at < 0) {
+            nextArrival = -1;
+            return;
+        }
+        nextArrival = Math.max(at, now);
+        nextArrivalSequence = events.reserveSequence();
+        nextArrivalRecipe = arrivals.recipe();
+    }
+
+    /**
+     * Hands waiting customers to free brew units, or starts a cleaning once the machine
+     * is due and every unit has finished its drink.
+     */
+    private void startBrewing() {
+        while (!cleaning && waiting > 0 && freeUnits > 0) {
+            if (supplyCalculator.isReadyToClean()) {
+                if (freeUnits == brewUnits) {
+                    cleaning = true;
+                    events.schedule(now + cleaningNanos, CLEANING_DONE, 0);
+                }
+                return;
+            }
+            int recipe = waitingRecipes[waitingHead];
+            long since = waitingSince[waitingHead];
+            waitingHead = (waitingHead + 1) % QUEUE_LIMIT;
+            waiting--;
+
+            Recipe coffee = registry.get(recipe);
+            if (supplyCalculator.trySellCoffee(coffee, cashRegister) != null) {
+                stockouts++;
+                continue;
+            }
+            waits.record(now - since);
+            freeUnits--;
+            events.schedule(now + brewNanos, BREW_DONE, recipe);
+        }
+    }
+
+    private void refill() {
+        refills++;
+        supplyCalculator.fillSupplies(
+                topUp(capacity.getWater(), supplyCalculator.getWaterSupply()),
+                topUp(capacity.getMilk(), supplyCalculator.getMilkSupply()),
+                topUp(capacity.getCoffeeBeans(), supplyCalculator.getGramsCoffeeSupply()),
+                topUp(capacity.getDisposableCups(), supplyCalculator.getDisposableCupsSupply()));
+    }
+
+    private static int topUp(long capacity, int supply) {
+        return (int) Math.max(0, capacity - supply);
+    }
+
+    private static int toInt(long amount) {
+        if (amount < 0 || amount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Supply out of range: " + amount);
+        }
+        return (int) amount;
+    }
+}
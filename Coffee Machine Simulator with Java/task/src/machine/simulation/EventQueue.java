@@ -0,0 +1,140 @@
+package machine.simulation;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of simulation events kept as a binary heap over parallel primitive arrays,
+ * so scheduling and taking events never allocates once the arrays have grown.
+ * Events are ordered by time; events at the same time come out in the order they were
+ * scheduled, which keeps a simulation deterministic.
+ */
+final class EventQueue {
+
+    private long[] times = new long[64];
+    private long[] sequences = new long[64];
+    private int[] types = new int[64];
+    private int[] arguments = new int[64];
+    private int size;
+    private long nextSequence;
+
+    private long time;
+    private int argument;
+
+    /**
+     * Schedules an event.
+     *
+     * @param at the virtual time of the event
+     * @param type the event type
+     * @param arg a value passed along with the event
+     */
+    void schedule(long at, int type, int arg) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            types = Arrays.copyOf(types, capacity);
+            arguments = Arrays.copyOf(arguments, capacity);
+        }
+        long sequence = nextSequence++;
+        int child = size++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!before(at, sequence, times[parent], sequences[parent])) {
+                break;
+            }
+            move(parent, child);
+            child = parent;
+        }
+        set(child, at, sequence, type, arg);
+    }
+
+    /**
+     * Takes the earliest event; its time and argument are then available from
+     * {@link #time()} and {@link #argument()}.
+     *
+     * @return the type of the event
+     */
+    int take() {
+        time = times[0];
+        argument = arguments[0];
+        int type = types[0];
+
+        int last = --size;
+        long lastTime = times[last];
+        long lastSequence = sequences[last];
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && before(times[child + 1], sequences[child + 1], times[child], sequences[child])) {
+                child++;
+            }
+            if (!before(times[child], sequences[child], lastTime, lastSequence)) {
+                break;
+            }
+            move(child, parent);
+            parent = child;
+        }
+        set(parent, lastTime, lastSequence, types[last], arguments[last]);
+        return type;
+    }
+
+    /**
+     * Reserves a place in the scheduling order for an event kept outside the queue, so it can be
+     * ordered against the queued events with {@link #isBefore(long, long)}.
+     *
+     * @return the sequence number the event would have had if it had been scheduled now
+     */
+    long reserveSequence() {
+        return nextSequence++;
+    }
+
+    /**
+     * Returns whether an event kept outside the queue comes before every queued event.
+     *
+     * @param at the virtual time of the event
+     * @param sequence the sequence number reserved for it
+     * @return whether it comes first, which is also the case when the queue is empty
+     */
+    boolean isBefore(long at, long sequence) {
+        return size == 0 || before(at, sequence, times[0], sequences[0]);
+    }
+
+    /**
+     * Returns the time of the earliest event without taking it.
+     *
+     * @return the time of the next event
+     */
+    long peekTime() {
+        return times[0];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long time() {
+        return time;
+    }
+
+    int argument() {
+        return argument;
+    }
+
+    private static boolean before(long time, long sequence, long otherTime, long otherSequence) {
+        return time < otherTime || time == otherTime && sequence < otherSequence;
+    }
+
+    private void move(int from, int to) {
+        set(to, times[from], sequences[from], types[from], arguments[from]);
+    }
+
+    private void set(int index, long at, long sequence, int type, int arg) {
+        times[index] = at;
+        sequences[index] = sequence;
+        types[index] = type;
+        arguments[index] = arg;
+    }
+}
@@ -0,0 +1,148 @@
+package machine.simulation;
+
+import machine.io.Output;
+import machine.metrics.LatencyHistogram;
+
+/**
+ * Outcome of a {@link DaySimulation} run.
+ */
+public class SimulationReport {
+
+    private final long virtualNanos;
+    private final long elapsedNanos;
+    private final long events;
+    private final long arrived;
+    private final long served;
+    private final long balked;
+    private final long stockouts;
+    private final long cleanings;
+    private final long refills;
+    private final long revenue;
+    private final LatencyHistogram waits;
+
+    /**
+     * Creates a simulation report.
+     *
+     * @param virtualNanos the simulated time covered
+     * @param elapsedNanos the wall-clock time the run took
+     * @param events the number of events processed
+     * @param arrived the number of customers that arrived
+     * @param served the number of drinks handed out
+     * @param balked the number of customers that walked away from a full line
+     * @param stockouts the number of customers whose drink could not be made
+     * @param cleanings the number of cleanings
+     * @param refills the number of refills delivered
+     * @param revenue the money earned
+     * @param waits the time customers spent in line before their drink started
+     */
+    SimulationReport(long virtualNanos, long elapsedNanos, long events, long arrived, long served, long balked,
+                     long stockouts, long cleanings, long refills, long revenue, LatencyHistogram waits) {
+        this.virtualNanos = virtualNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.events = events;
+        this.arrived = arrived;
+        this.served = served;
+        this.balked = balked;
+        this.stockouts = stockouts;
+        this.cleanings = cleanings;
+        this.refills = refills;
+        this.revenue = revenue;
+        this.waits = waits;
+    }
+
+    /**
+     * Returns the number of customers that arrived.
+     *
+     * @return the arrival count
+     */
+    public long getArrived() {
+        return arrived;
+    }
+
+    /**
+     * Returns the number of drinks handed out.
+     *
+     * @return the served count
+     */
+    public long getServed() {
+        return served;
+    }
+
+    /**
+     * Returns the number of customers that walked away from a full line.
+     *
+     * @return the balked count
+     */
+    public long getBalked() {
+        return balked;
+    }
+
+    /**
+     * Returns the number of customers whose drink could not be made.
+     *
+     * @return the stockout count
+     */
+    public long getStockouts() {
+        return stockouts;
+    }
+
+    /**
+     * Returns the number of cleanings.
+     *
+     * @return the cleaning count
+     */
+    public long getCleanings() {
+        return cleanings;
+    }
+
+    /**
+     * Returns the number of refills delivered.
+     *
+     * @return the refill count
+     */
+    public long getRefills() {
+        return refills;
+    }
+
+    /**
+     * Returns the money earned.
+     *
+     * @return the revenue
+     */
+    public long getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Returns the time customers spent in line before their drink started, in virtual nanoseconds.
+     *
+     * @return the wait histogram
+     */
+    public LatencyHistogram getWaits() {
+        return waits;
+    }
+
+    /**
+     * Returns the number of events processed per second of wall-clock time.
+     *
+     * @return the event rate
+     */
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0 : events * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Prints the figures of the run.
+     *
+     * @param output where to print the report
+     */
+    public void print(Output output) {
+        output.printf("Simulated %.1f h in %.3f s: %d events (%.0f events/s)%n",
+                virtualNanos / 3600e9, elapsedNanos / 1e9, events, getEventsPerSecond());
+        output.printf("%d customers: %d served, %d walked away from the line, %d hit a stockout%n",
+                arrived, served, balked, stockouts);
+        output.printf("%d cleanings, %d refills, $%d of revenue%n", cleanings, refills, revenue);
+        output.printf("Wait in line: p50 %.1f s, p99 %.1f s, max %.1f s%n",
+                waits.getValueAtPercentile(50) / 1e9, waits.getValueAtPercentile(99) / 1e9, waits.getMax() / 1e9);
+    }
+}
@@ -0,0 +1,128 @@
+package machine.supplycalculator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe {@link Inventory} that packs all four supplies into a single {@code long}
+ * and updates them with compare-and-set, so a sale reserves water, milk, coffee beans
+ * and a cup in one atomic step without taking a lock.
+ * <p>
+ * Bit layout, from the least significant bit:
+ * water (18 bits), milk (18 bits), coffee beans (16 bits), disposable cups (12 bits).
+ * Supplies are therefore limited to {@value #MAX_WATER} ml of water and milk,
+ * {@value #MAX_COFFEE_BEANS} g of coffee beans and {@value #MAX_DISPOSABLE_CUPS} cups.
+ * </p>
+ */
+class AtomicInventory implements Inventory {
+
+    static final int MAX_WATER = (1 << 18) - 1;
+    static final int MAX_MILK = (1 << 18) - 1;
+    static final int MAX_COFFEE_BEANS = (1 << 16) - 1;
+    static final int MAX_DISPOSABLE_CUPS = (1 << 12) - 1;
+
+    private static final int MILK_SHIFT = 18;
+    private static final int COFFEE_BEANS_SHIFT = 36;
+    private static final int DISPOSABLE_CUPS_SHIFT = 52;
+
+    private final AtomicLong state;
+
+    /**
+     * Creates an inventory with the given starting supplies.
+     *
+     * @param water the amount of water in milliliters
+     * @param milk the amount of milk in milliliters
+     * @param coffeeBeans the amount of coffee beans in grams
+     * @param disposableCups the number of disposable cups
+     * @throws IllegalArgumentException if any supply exceeds the packed capacity
+     */
+    AtomicInventory(int water, int milk, int coffeeBeans, int disposableCups) {
+        checkCapacity(water, milk, coffeeBeans, disposableCups);
+        this.state = new AtomicLong(pack(water, milk, coffeeBeans, disposableCups));
+    }
+
+    @Override
+    public int getWater() {
+        return water(state.get());
+    }
+
+    @Override
+    public int getMilk() {
+        return milk(state.get());
+    }
+
+    @Override
+    public int getCoffeeBeans() {
+        return coffeeBeans(state.get());
+    }
+
+    @Override
+    public int getDisposableCups() {
+        return disposableCups(state.get());
+    }
+
+    /**
+     * Adds the given amounts in one atomic step.
+     *
+     * @throws IllegalArgumentException if the result would exceed the packed capacity
+     */
+    @Override
+    public void add(int water, int milk, int coffeeBeans, int disposableCups) {
+        long delta = pack(water, milk, coffeeBeans, disposableCups);
+        while (true) {
+            long current = state.get();
+            // summed in long, so a huge amount cannot wrap around to a value that passes the check
+            checkCapacity((long) water(current) + water, (long) milk(current) + milk,
+                    (long) coffeeBeans(current) + coffeeBeans, (long) disposableCups(current) + disposableCups);
+            // no field overflows, so adding the packed values never carries into a neighbour
+            if (state.compareAndSet(current, current + delta)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean tryTake(int water, int milk, int coffeeBeans, int disposableCups) {
+        long delta = pack(water, milk, coffeeBeans, disposableCups);
+        while (true) {
+            long current = state.get();
+            if (water(current) < water || milk(current) < milk
+                    || coffeeBeans(current) < coffeeBeans || disposableCups(current) < disposableCups) {
+                return false;
+            }
+            // every field covers its amount, so the packed subtraction never borrows
+            if (state.compareAndSet(current, current - delta)) {
+                return true;
+            }
+        }
+    }
+
+    private static long pack(int water, int milk, int coffeeBeans, int disposableCups) {
+        return (long) water
+                | (long) milk << MILK_SHIFT
+                | (long) coffeeBeans << COFFEE_BEANS_SHIFT
+                | (long) disposableCups << DISPOSABLE_CUPS_SHIFT;
+    }
+
+    private static int water(long state) {
+        return (int) (state & MAX_WATER);
+    }
+
+    private static int milk(long state) {
+        return (int) (state >>> MILK_SHIFT & MAX_MILK);
+    }
+
+    private static int coffeeBeans(long state) {
+        return (int) (state >>> COFFEE_BEANS_SHIFT & MAX_COFFEE_BEANS);
+    }
+
+    private static int disposableCups(long state) {
+        return (int) (state >>> DISPOSABLE_CUPS_SHIFT & MAX_DISPOSABLE_CUPS);
+    }
+
+    private static void checkCapacity(long water, long milk, long coffeeBeans, long disposableCups) {
+        if (water > MAX_WATER || milk > MAX_MILK
+                || coffeeBeans > MAX_COFFEE_BEANS || disposableCups > MAX_DISPOSABLE_CUPS) {
+            throw new IllegalArgumentException("Supplies exceed the capacity of the concurrent inventory");
+        }
+    }
+}
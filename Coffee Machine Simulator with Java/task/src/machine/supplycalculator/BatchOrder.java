@@ -0,0 +1,81 @@
+package machine.supplycalculator;
+
+import machine.coffees.Coffee;
+
+import java.util.Arrays;
+
+/**
+ * A tray of drinks sold together, such as "3 lattes, 2 espressos".
+ * Each call to {@link #add(Coffee, int)} appends one line item.
+ */
+public class BatchOrder {
+
+    private static final int INITIAL_LINES = 4;
+
+    // growable parallel arrays, so quantities are never boxed
+    private Coffee[] coffees = new Coffee[INITIAL_LINES];
+    private int[] quantities = new int[INITIAL_LINES];
+    private int size;
+
+    /**
+     * Appends a line item to the order.
+     *
+     * @param coffee the coffee recipe of the line
+     * @param quantity how many drinks of that recipe to sell
+     * @return this order, for chaining
+     * @throws IllegalArgumentException if the coffee is null or the quantity is not positive
+     */
+    public BatchOrder add(Coffee coffee, int quantity) {
+        if (coffee == null) {
+            throw new IllegalArgumentException("Coffee cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (size == quantities.length) {
+            coffees = Arrays.copyOf(coffees, size * 2);
+            quantities = Arrays.copyOf(quantities, size * 2);
+        }
+        coffees[size] = coffee;
+        quantities[size] = quantity;
+        size++;
+        return this;
+    }
+
+    /**
+     * Returns the number of line items in the order.
+     *
+     * @return the number of lines
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the coffee recipe of a line item.
+     *
+     * @param line the index of the line
+     * @return the coffee of that line
+     */
+    public Coffee getCoffee(int line) {
+        checkLine(line);
+        return coffees[line];
+    }
+
+    /**
+     * Returns the requested quantity of a line item.
+     *
+     * @param line the index of the line
+     * @return the number of drinks requested on that line
+     */
+    public int getQuantity(int line) {
+        checkLine(line);
+        return quantities[line];
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= size) {
+            throw new IndexOutOfBoundsException("Line " + line + " out of bounds for " + size + " lines");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package machine.supplycalculator;
+
+/**
+ * Outcome of selling a {@link BatchOrder}, reported per line item.
+ */
+public class BatchResult {
+
+    private final int[] requested;
+    private final int[] filled;
+    private final long[] charged;
+    private final boolean stoppedForCleaning;
+
+    /**
+     * Creates a batch result.
+     *
+     * @param requested the requested quantity of every line
+     * @param filled the quantity actually sold on every line
+     * @param charged the amount charged for every line
+     * @param stoppedForCleaning whether drinks were refused because the machine needs cleaning first
+     */
+    BatchResult(int[] requested, int[] filled, long[] charged, boolean stoppedForCleaning) {
+        this.requested = requested;
+        this.filled = filled;
+        this.charged = charged;
+        this.stoppedForCleaning = stoppedForCleaning;
+    }
+
+    /**
+     * Returns the number of line items in the result.
+     *
+     * @return the number of lines
+     */
+    public int size() {
+        return requested.length;
+    }
+
+    /**
+     * Returns how many drinks were requested on a line.
+     *
+     * @param line the index of the line
+     * @return the requested quantity
+     */
+    public int getRequested(int line) {
+        return requested[line];
+    }
+
+    /**
+     * Returns how many drinks were sold on a line.
+     *
+     * @param line the index of the line
+     * @return the sold quantity
+     */
+    public int getFilled(int line) {
+        return filled[line];
+    }
+
+    /**
+     * Returns the total number of drinks sold across all lines.
+     *
+     * @return the number of drinks sold
+     */
+    public int getTotalFilled() {
+        int total = 0;
+        for (int count : filled) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Checks whether every line was sold in full.
+     *
+     * @return true if all requested drinks were sold
+     */
+    public boolean isComplete() {
+        for (int line = 0; line < requested.length; line++) {
+            if (filled[line] != requested[line]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the machine needed cleaning before it could brew every requested drink.
+     * An all-or-nothing batch is then refused as a whole; a partial one stops at the last drink
+     * brewed before cleaning.
+     *
+     * @return true if drinks were refused for cleaning
+     */
+    public boolean isStoppedForCleaning() {
+        return stoppedForCleaning;
+    }
+
+    /**
+     * Returns the amount charged for the drinks sold on a line.
+     *
+     * @param line the index of the line
+     * @return the charged amount of that line
+     */
+    public long getCharged(int line) {
+        return charged[line];
+    }
+
+    /**
+     * Returns the total amount charged to the cash register for the batch.
+     *
+     * @return the charged amount
+     */
+    public long getCharged() {
+        long total = 0;
+        for (long amount : charged) {
+            total += amount;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,101 @@
+package machine.supplycalculator;
+
+import machine.coffees.Coffee;
+
+/**
+ * Computes how many cups of a recipe the supplies can make, together with the
+ * resource that limits that number, without boxing or allocating.
+ * <p>
+ * The result is packed into a single {@code long}: the number of cups in the upper bits
+ * and the ordinal of the bottleneck {@link Resource} in the lowest two bits.
+ * Use {@link #cups(long)} and {@link #bottleneck(long)} to read it.
+ * </p>
+ */
+public final class Capacity {
+
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int RESOURCE_BITS = 2;
+    private static final int RESOURCE_MASK = (1 << RESOURCE_BITS) - 1;
+
+    private Capacity() {
+    }
+
+    /**
+     * Calculates the number of cups the given supplies can make and which resource limits it.
+     * When several resources allow the same number of cups, the one reported first by the
+     * machine wins: water, then milk, coffee beans and disposable cups.
+     *
+     * @param water the amount of water in milliliters
+     * @param milk the amount of milk in milliliters
+     * @param coffeeBeans the amount of coffee beans in grams
+     * @param disposableCups the number of disposable cups
+     * @param coffee the coffee recipe
+     * @return the packed capacity
+     */
+    public static long of(int water, int milk, int coffeeBeans, int disposableCups, Coffee coffee) {
+        return of(water, milk, coffeeBeans, disposableCups,
+                coffee.getWaterNeeded(), coffee.getMilkNeeded(),
+                coffee.getCoffeeBeansNeeded(), coffee.getDisposableCupsNeeded());
+    }
+
+    /**
+     * Calculates the packed capacity from raw supply and recipe amounts.
+     * An ingredient the recipe does not need never limits the number of cups.
+     *
+     * @param water the amount of water in milliliters
+     * @param milk the amount of milk in milliliters
+     * @param coffeeBeans the amount of coffee beans in grams
+     * @param disposableCups the number of disposable cups
+     * @param waterNeeded the water required per cup
+     * @param milkNeeded the milk required per cup
+     * @param coffeeBeansNeeded the coffee beans required per cup
+     * @param disposableCupsNeeded the disposable cups required per cup
+     * @return the packed capacity
+     */
+    public static long of(int water, int milk, int coffeeBeans, int disposableCups,
+                          int waterNeeded, int milkNeeded, int coffeeBeansNeeded, int disposableCupsNeeded) {
+        int cups = quotient(water, waterNeeded);
+        int bottleneck = 0;
+
+        int byMilk = quotient(milk, milkNeeded);
+        if (byMilk < cups) {
+            cups = byMilk;
+            bottleneck = 1;
+        }
+        int byCoffeeBeans = quotient(coffeeBeans, coffeeBeansNeeded);
+        if (byCoffeeBeans < cups) {
+            cups = byCoffeeBeans;
+            bottleneck = 2;
+        }
+        int byDisposableCups = quotient(disposableCups, disposableCupsNeeded);
+        if (byDisposableCups < cups) {
+            cups = byDisposableCups;
+            bottleneck = 3;
+        }
+        return (long) cups << RESOURCE_BITS | bottleneck;
+    }
+
+    /**
+     * Returns the number of cups from a packed capacity.
+     *
+     * @param capacity the packed capacity
+     * @return the number of cups that can be made
+     */
+    public static int cups(long capacity) {
+        return (int) (capacity >>> RESOURCE_BITS);
+    }
+
+    /**
+     * Returns the limiting resource from a packed capacity.
+     *
+     * @param capacity the packed capacity
+     * @return the resource that runs out first
+     */
+    public static Resource bottleneck(long capacity) {
+        return RESOURCES[(int) capacity & RESOURCE_MASK];
+    }
+
+    private static int quotient(int supply, int needed) {
+        return needed == 0 ? Integer.MAX_VALUE : supply / needed;
+    }
+}
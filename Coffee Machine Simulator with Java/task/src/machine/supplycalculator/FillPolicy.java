@@ -0,0 +1,16 @@
+package machine.supplycalculator;
+
+/**
+ * Decides how a {@link BatchOrder} is handled when the supplies cannot cover all of it.
+ */
+public enum FillPolicy {
+    /**
+     * Sell every drink of the batch or none of them.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Sell as many drinks as the supplies allow, filling the lines in the order they were added.
+     */
+    PARTIAL
+}
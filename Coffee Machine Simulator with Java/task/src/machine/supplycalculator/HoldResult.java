@@ -0,0 +1,46 @@
+package machine.supplycalculator;
+
+/**
+ * The outcome of {@link SupplyCalculator#tryHold(machine.coffees.Coffee)}: the supplies were held,
+ * the machine has to be cleaned first, or a resource ran out.
+ */
+public enum HoldResult {
+    HELD(null),
+    NEEDS_CLEANING(null),
+    NOT_ENOUGH_WATER(Resource.WATER),
+    NOT_ENOUGH_MILK(Resource.MILK),
+    NOT_ENOUGH_COFFEE_BEANS(Resource.COFFEE_BEANS),
+    NOT_ENOUGH_DISPOSABLE_CUPS(Resource.DISPOSABLE_CUPS);
+
+    private static final HoldResult[] BY_SHORTAGE = {
+            NOT_ENOUGH_WATER, NOT_ENOUGH_MILK, NOT_ENOUGH_COFFEE_BEANS, NOT_ENOUGH_DISPOSABLE_CUPS
+    };
+
+    /**
+     * The resource that ran out, or null if no resource did.
+     */
+    private final Resource shortage;
+
+    HoldResult(Resource shortage) {
+        this.shortage = shortage;
+    }
+
+    /**
+     * Returns the resource that ran out.
+     *
+     * @return the resource, or null if the supplies were held or the machine needs cleaning
+     */
+    public Resource getShortage() {
+        return shortage;
+    }
+
+    /**
+     * Returns the result reporting that a resource ran out.
+     *
+     * @param shortage the resource that ran out
+     * @return the matching result
+     */
+    static HoldResult of(Resource shortage) {
+        return BY_SHORTAGE[shortage.ordinal()];
+    }
+}
@@ -0,0 +1,60 @@
+package machine.supplycalculator;
+
+/**
+ * Storage backend for the ingredient supplies held by a {@link SupplyCalculator}.
+ * Implementations decide how the four counters are stored and whether
+ * concurrent access is supported; the calculator only relies on the
+ * check-and-debit in {@link #tryTake(int, int, int, int)} being a single step.
+ */
+public interface Inventory {
+
+    /**
+     * Returns the current amount of water.
+     *
+     * @return the amount of water in milliliters
+     */
+    int getWater();
+
+    /**
+     * Returns the current amount of milk.
+     *
+     * @return the amount of milk in milliliters
+     */
+    int getMilk();
+
+    /**
+     * Returns the current amount of coffee beans.
+     *
+     * @return the amount of coffee beans in grams
+     */
+    int getCoffeeBeans();
+
+    /**
+     * Returns the current number of disposable cups.
+     *
+     * @return the number of disposable cups
+     */
+    int getDisposableCups();
+
+    /**
+     * Adds the given amounts to the stored supplies.
+     *
+     * @param water amount of water to add in milliliters
+     * @param milk amount of milk to add in milliliters
+     * @param coffeeBeans amount of coffee beans to add in grams
+     * @param disposableCups number of disposable cups to add
+     */
+    void add(int water, int milk, int coffeeBeans, int disposableCups);
+
+    /**
+     * Removes the given amounts if, and only if, every supply covers its amount.
+     * Either all four supplies are debited or none of them is.
+     *
+     * @param water amount of water to remove in milliliters
+     * @param milk amount of milk to remove in milliliters
+     * @param coffeeBeans amount of coffee beans to remove in grams
+     * @param disposableCups number of disposable cups to remove
+     * @return true if the supplies were debited, false if any of them was insufficient
+     */
+    boolean tryTake(int water, int milk, int coffeeBeans, int disposableCups);
+}
@@ -0,0 +1,69 @@
+package machine.supplycalculator;
+
+/**
+ * Single-threaded {@link Inventory} backed by four plain {@code int} fields.
+ * This is the default storage used by the interactive coffee machine.
+ */
+public class PlainInventory implements Inventory {
+
+    private int water;
+    private int milk;
+    private int coffeeBeans;
+    private int disposableCups;
+
+    /**
+     * Creates an inventory with the given starting supplies.
+     *
+     * @param water the amount of water in milliliters
+     * @param milk the amount of milk in milliliters
+     * @param coffeeBeans the amount of coffee beans in grams
+     * @param disposableCups the number of disposable cups
+     */
+    public PlainInventory(int water, int milk, int coffeeBeans, int disposableCups) {
+        this.water = water;
+        this.milk = milk;
+        this.coffeeBeans = coffeeBeans;
+        this.disposableCups = disposableCups;
+    }
+
+    @Override
+    public int getWater() {
+        return water;
+    }
+
+    @Override
+    public int getMilk() {
+        return milk;
+    }
+
+    @Override
+    public int getCoffeeBeans() {
+        return coffeeBeans;
+    }
+
+    @Override
+    public int getDisposableCups() {
+        return disposableCups;
+    }
+
+    @Override
+    public void add(int water, int milk, int coffeeBeans, int disposableCups) {
+        this.water += water;
+        this.milk += milk;
+        this.coffeeBeans += coffeeBeans;
+        this.disposableCups += disposableCups;
+    }
+
+    @Override
+    public boolean tryTake(int water, int milk, int coffeeBeans, int disposableCups) {
+        if (this.water < water || this.milk < milk
+                || this.coffeeBeans < coffeeBeans || this.disposableCups < disposableCups) {
+            return false;
+        }
+        this.water -= water;
+        this.milk -= milk;
+        this.coffeeBeans -= coffeeBeans;
+        this.disposableCups -= disposableCups;
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package machine.supplycalculator;
+
+/**
+ * The consumable resources a coffee recipe draws from, in the order the machine
+ * reports a shortage.
+ */
+public enum Resource {
+    WATER("water"),
+    MILK("milk"),
+    COFFEE_BEANS("coffee beans"),
+    DISPOSABLE_CUPS("disposable cups");
+
+    /**
+     * Human-readable name of the resource, as used in console messages.
+     */
+    private final String name;
+
+    /**
+     * Message printed when a coffee cannot be made because this resource ran out.
+     */
+    private final String shortageMessage;
+
+    /**
+     * Constructs a Resource enum constant with its human-readable name.
+     *
+     * @param name the name of the resource
+     */
+    Resource(String name) {
+        this.name = name;
+        this.shortageMessage = "Sorry, not enough " + name + "!";
+    }
+
+    /**
+     * Returns the human-readable name of the resource.
+     *
+     * @return the resource name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the message shown when this resource is insufficient for a coffee.
+     *
+     * @return the shortage message
+     */
+    public String getShortageMessage() {
+        return shortageMessage;
+    }
+}
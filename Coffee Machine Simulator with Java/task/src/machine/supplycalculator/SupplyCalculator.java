@@ -2,8 +2,13 @@ package machine.supplycalculator;
 
 import machine.cashregister.CashRegister;
 import machine.coffees.Coffee;
+import machine.events.Listeners;
+import machine.events.MachineListener;
+import machine.maintenance.MaintenanceScheduler;
+import machine.messages.PrintMessages;
+import machine.pricing.PriceList;
 
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Manages the ingredient supplies for the coffee machine.
@@ -12,12 +17,11 @@ import java.util.stream.Stream;
  */
 public class SupplyCalculator {
 
-    private int waterSupply;
-    private int milkSupply;
-    private int gramsCoffeeSupply;
-    private int disposableCupsSupply;
-    public static int coffeesMade;
-
+    private final Inventory inventory;
+    private final MaintenanceScheduler maintenance;
+    private final Listeners listeners = new Listeners();
+    private final AtomicLongArray held = new AtomicLongArray(Resource.values().length);
+    private volatile PriceList priceList = PriceList.FIXED;
 
     /**
      * Initializes the supply calculator with specific amounts of ingredients.
@@ -32,10 +36,55 @@ public class SupplyCalculator {
         if (waterSupply < 0 || milkSupply < 0 || gramsCoffeeSupply < 0 || disposableCupsSupply < 0) {
             throw new IllegalArgumentException("Supplies cannot be negative");
         }
-        this.waterSupply = waterSupply;
-        this.milkSupply = milkSupply;
-        this.gramsCoffeeSupply = gramsCoffeeSupply;
-        this.disposableCupsSupply = disposableCupsSupply;
+        this.inventory = new PlainInventory(waterSupply, milkSupply, gramsCoffeeSupply, disposableCupsSupply);
+        this.maintenance = MaintenanceScheduler.everyTenCoffees();
+    }
+
+    /**
+     * Initializes the supply calculator on top of the given inventory storage,
+     * needing a manual cleaning every 10 coffees.
+     *
+     * @param inventory the storage holding the supplies
+     * @throws IllegalArgumentException if the inventory is null
+     */
+    public SupplyCalculator(Inventory inventory) {
+        this(inventory, MaintenanceScheduler.everyTenCoffees());
+    }
+
+    /**
+     * Initializes the supply calculator on top of the given inventory storage and cleaning policy.
+     *
+     * @param inventory the storage holding the supplies
+     * @param maintenance the cleaning policy of this machine
+     * @throws IllegalArgumentException if the inventory or the cleaning policy is null
+     */
+    public SupplyCalculator(Inventory inventory, MaintenanceScheduler maintenance) {
+        if (inventory == null || maintenance == null) {
+            throw new IllegalArgumentException("Inventory and maintenance scheduler cannot be null");
+        }
+        this.inventory = inventory;
+        this.maintenance = maintenance;
+    }
+
+    /**
+     * Creates a supply calculator that can be shared by several order terminals.
+     * Each sale reserves all of its ingredients in one atomic step, so concurrent
+     * purchases can never oversell the machine.
+     *
+     * @param waterSupply the amount of water in milliliters
+     * @param milkSupply the amount of milk in milliliters
+     * @param gramsCoffeeSupply the amount of coffee beans in grams
+     * @param disposableCupsSupply the number of disposable cups
+     * @return a thread-safe supply calculator
+     * @throws IllegalArgumentException if any of the inputs are negative or too large
+     */
+    public static SupplyCalculator concurrent(int waterSupply, int milkSupply, int gramsCoffeeSupply,
+                                              int disposableCupsSupply) {
+        if (waterSupply < 0 || milkSupply < 0 || gramsCoffeeSupply < 0 || disposableCupsSupply < 0) {
+            throw new IllegalArgumentException("Supplies cannot be negative");
+        }
+        return new SupplyCalculator(
+                new AtomicInventory(waterSupply, milkSupply, gramsCoffeeSupply, disposableCupsSupply));
     }
 
     /**
@@ -51,10 +100,10 @@ public class SupplyCalculator {
         if (waterAmount < 0 || milkAmount < 0 || gramsCoffeeAmount < 0 || cupsAmount < 0) {
             throw new IllegalArgumentException("FillSupplies does not support negative arguments");
         }
-        setWaterSupply(getWaterSupply() + waterAmount);
-        setMilkSupply(getMilkSupply() + milkAmount);
-        setGramsCoffeeSupply(getGramsCoffeeSupply() + gramsCoffeeAmount);
-        setDisposableCupsSupply(getDisposableCupsSupply() + cupsAmount);
+        inventory.add(waterAmount, milkAmount, gramsCoffeeAmount, cupsAmount);
+        for (MachineListener listener : listeners.get()) {
+            listener.suppliesFilled(waterAmount, milkAmount, gramsCoffeeAmount, cupsAmount);
+        }
     }
 
     /**
@@ -65,144 +114,417 @@ public class SupplyCalculator {
      * @return the number of cups that can be made
      */
     public int calculateSuppliesBeforeSell(Coffee coffee) {
-        int cupsByWater = waterSupply / coffee.getWaterNeeded();
-        int cupsByMilk = coffee.getMilkNeeded() != 0? milkSupply / coffee.getMilkNeeded() : 1;
-        int cupsByCoffee = gramsCoffeeSupply / coffee.getCoffeeBeansNeeded();
-        int disposableCupsNeeded = disposableCupsSupply / coffee.getDisposableCupsNeeded();
+        return Capacity.cups(calculateCapacity(coffee));
+    }
 
-        return Stream.of(
-                cupsByWater,
-                cupsByMilk,
-                cupsByCoffee,
-                disposableCupsNeeded
-        ).min(Integer::compare).orElse(0);
+    /**
+     * Calculates the number of cups that can be made for a given coffee recipe
+     * together with the resource that limits it, see {@link Capacity}.
+     *
+     * @param coffee the coffee object with resource requirements
+     * @return the packed capacity
+     */
+    public long calculateCapacity(Coffee coffee) {
+        return Capacity.of(getWaterSupply(), getMilkSupply(), getGramsCoffeeSupply(),
+                getDisposableCupsSupply(), coffee);
     }
 
     /**
      * Attempts to make a coffee and deducts the necessary supplies if successful.
      * If supplies are insufficient, prints an appropriate warning.
+     * The supplies are checked and debited in one step of the underlying {@link Inventory},
+     * so a concurrent inventory never sells more coffee than it holds.
      *
      * @param coffee the coffee to be made
      * @param cashRegister the cash register to update with the coffee's price
      */
     public void sellCoffee(Coffee coffee, CashRegister cashRegister) {
-        int maxCoffeeCups = calculateSuppliesBeforeSell(coffee);
-        if(maxCoffeeCups == 0) {
-            if (waterSupply < coffee.getWaterNeeded()) {
-                System.out.println("Sorry, not enough water!");
-                return;
-            }
+        Resource shortage = trySellCoffee(coffee, cashRegister);
+        if (shortage == null) {
+            PrintMessages.printMakingCoffee();
+        } else {
+            PrintMessages.printNotEnough(shortage);
+        }
+    }
 
-            if (milkSupply < coffee.getMilkNeeded()) {
-                System.out.println("Sorry, not enough milk!");
-                return;
-            }
+    /**
+     * Makes a coffee without printing anything: debits the supplies, charges the
+     * cash register and counts the brew towards cleaning if the supplies cover the recipe.
+     * Whether the machine is ready to clean is left to the caller, see {@link #isReadyToClean()}.
+     *
+     * @param coffee the coffee to be made
+     * @param cashRegister the cash register to update with the coffee's price
+     * @return the resource that ran out, or null if the coffee was sold
+     */
+    public Resource trySellCoffee(Coffee coffee, CashRegister cashRegister) {
+        Resource shortage = take(coffee);
+        if (shortage == null) {
+            maintenance.recordBrew();
+            sold(coffee, cashRegister);
+        }
+        return shortage;
+    }
+
+    /**
+     * Holds the supplies of a coffee for a customer who pays later. The supplies are debited
+     * right away, so they no longer count towards {@link #calculateSuppliesBeforeSell(Coffee)}
+     * and no other sale can take them, but nothing is charged until
+     * {@link #commitHold(Coffee, long, CashRegister)}. {@link #releaseHold(Coffee)} puts them back.
+     * <p>
+     * Like every sale, a hold is refused while the machine needs cleaning. The brew is counted
+     * towards the next cleaning when the supplies are held, so however many holds are open,
+     * committing them never runs the machine past its cleaning threshold. A released hold does
+     * not give its brew back, which at worst makes the machine due one drink early.
+     * </p>
+     *
+     * @param coffee the coffee to hold the supplies of
+     * @return {@link HoldResult#HELD} if the supplies are held, otherwise why they are not
+     */
+    public HoldResult tryHold(Coffee coffee) {
+        if (maintenance.isReadyToClean()) {
+            return HoldResult.NEEDS_CLEANING;
+        }
+        Resource shortage = take(coffee);
+        if (shortage != null) {
+            return HoldResult.of(shortage);
+        }
+        maintenance.recordBrew();
+        changeHeld(coffee, 1);
+        for (MachineListener listener : listeners.get()) {
+            listener.suppliesHeld(coffee);
+        }
+        return HoldResult.HELD;
+    }
 
-            if (gramsCoffeeSupply < coffee.getCoffeeBeansNeeded()) {
-                System.out.println("Sorry, not enough coffee beans!");
-                return;
+    /**
+     * Sells a coffee whose supplies were held by {@link #tryHold(Coffee)}: charges the cash
+     * register the price the customer was quoted, see {@link #quote(Coffee)}, even if the
+     * price list has changed since. The brew was already counted by the hold.
+     *
+     * @param coffee the coffee whose supplies are held
+     * @param price the price quoted when the supplies were held
+     * @param cashRegister the cash register to update with the price
+     * @throws IllegalArgumentException if the price is negative
+     */
+    public void commitHold(Coffee coffee, long price, CashRegister cashRegister) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Price cannot be negative");
+        }
+        changeHeld(coffee, -1);
+        charge(coffee, price, cashRegister);
+    }
+
+    /**
+     * Returns the supplies held by {@link #tryHold(Coffee)} to the machine.
+     *
+     * @param coffee the coffee whose supplies are held
+     */
+    public void releaseHold(Coffee coffee) {
+        changeHeld(coffee, -1);
+        inventory.add(coffee.getWaterNeeded(), coffee.getMilkNeeded(),
+                coffee.getCoffeeBeansNeeded(), coffee.getDisposableCupsNeeded());
+        for (MachineListener listener : listeners.get()) {
+            listener.holdReleased(coffee);
+        }
+    }
+
+    /**
+     * Returns how much of a resource is held for open reservations. Held supplies are
+     * already debited from the amounts returned by the supply getters.
+     *
+     * @param resource the resource
+     * @return the held amount
+     */
+    public long getHeld(Resource resource) {
+        return held.get(resource.ordinal());
+    }
+
+    /**
+     * Debits the needs of a coffee in one inventory step.
+     *
+     * @return the resource that ran out, or null if the supplies were debited
+     */
+    private Resource take(Coffee coffee) {
+        while (!inventory.tryTake(coffee.getWaterNeeded(), coffee.getMilkNeeded(),
+                coffee.getCoffeeBeansNeeded(), coffee.getDisposableCupsNeeded())) {
+            long capacity = calculateCapacity(coffee);
+            if (Capacity.cups(capacity) == 0) {
+                Resource shortage = Capacity.bottleneck(capacity);
+                for (MachineListener listener : listeners.get()) {
+                    listener.stockout(coffee, shortage);
+                }
+                return shortage;
             }
+            // another terminal refilled between the attempt and the check, so try again
+        }
+        return null;
+    }
+
+    /**
+     * Charges a coffee whose supplies were debited and whose brew was counted.
+     */
+    private void sold(Coffee coffee, CashRegister cashRegister) {
+        charge(coffee, priceList.priceOf(coffee), cashRegister);
+    }
+
+    private void charge(Coffee coffee, long price, CashRegister cashRegister) {
+        cashRegister.charge(price);
+        for (MachineListener listener : listeners.get()) {
+            listener.coffeeSold(coffee, 1, price);
+        }
+    }
+
+    private void changeHeld(Coffee coffee, int sign) {
+        held.addAndGet(Resource.WATER.ordinal(), sign * coffee.getWaterNeeded());
+        held.addAndGet(Resource.MILK.ordinal(), sign * coffee.getMilkNeeded());
+        held.addAndGet(Resource.COFFEE_BEANS.ordinal(), sign * coffee.getCoffeeBeansNeeded());
+        held.addAndGet(Resource.DISPOSABLE_CUPS.ordinal(), sign * coffee.getDisposableCupsNeeded());
+    }
+
+    /**
+     * Sells a whole tray of drinks at once. The summed recipe needs are checked and
+     * debited in a single inventory step and the cash register is charged once for
+     * everything that was sold. Every line is priced before the sale events of the batch
+     * fire, so the tray costs the same whatever order its lines are in.
+     * Nothing is printed; the outcome is reported per line.
+     * <p>
+     * Like every other sale, a batch never brews past the point where the machine needs
+     * cleaning: an all-or-nothing batch with more drinks than {@link MaintenanceScheduler#getBrewsLeft()}
+     * is refused, and a partial one is cut off there. {@link BatchResult#isStoppedForCleaning()}
+     * tells when that happened.
+     * </p>
+     *
+     * @param order the drinks to sell
+     * @param cashRegister the cash register to update with the total price
+     * @param policy whether the batch must be sold completely or may be partially filled
+     * @return how many drinks were sold on every line of the order
+     */
+    public BatchResult sellBatch(BatchOrder order, CashRegister cashRegister, FillPolicy policy) {
+        int lines = order.size();
+        int[] requested = new int[lines];
+        long drinksRequested = 0;
+        for (int line = 0; line < lines; line++) {
+            requested[line] = order.getQuantity(line);
+            drinksRequested += requested[line];
+        }
+
+        long brewsLeft = maintenance.getBrewsLeft();
+        boolean stoppedForCleaning = drinksRequested > brewsLeft;
+        int[] filled;
+        boolean taken;
+        if (stoppedForCleaning && policy == FillPolicy.ALL_OR_NOTHING) {
+            filled = new int[lines];
+            taken = false;
+        } else {
+            do {
+                // a partial plan can only fail if another terminal sold in between, so plan again
+                filled = policy == FillPolicy.PARTIAL ? planPartialFill(order, brewsLeft) : requested.clone();
+                taken = takeBatch(order, filled);
+            } while (!taken && policy == FillPolicy.PARTIAL);
+        }
 
-            if (disposableCupsSupply < coffee.getDisposableCupsNeeded()) {
-                System.out.println("Sorry, not enough disposable cups!");
+        long[] charged = new long[lines];
+        if (taken) {
+            // every line is priced from the table before any sale event can reprice the next one
+            long total = 0;
+            int drinks = 0;
+            for (int line = 0; line < lines; line++) {
+                charged[line] = filled[line] * priceList.priceOf(order.getCoffee(line));
+                total += charged[line];
+                drinks += filled[line];
+            }
+            maintenance.recordBrews(drinks);
+            cashRegister.charge(total);
+            for (int line = 0; line < lines; line++) {
+                if (filled[line] > 0) {
+                    Coffee coffee = order.getCoffee(line);
+                    for (MachineListener listener : listeners.get()) {
+                        listener.coffeeSold(coffee, filled[line], charged[line]);
+                    }
+                }
             }
         } else {
-            System.out.println("I have enough resources, making you a coffee!\n");
-            coffeesMade++;
-            setWaterSupply(getWaterSupply() - coffee.getWaterNeeded());
-            setMilkSupply(getMilkSupply() - coffee.getMilkNeeded());
-            setGramsCoffeeSupply(getGramsCoffeeSupply() - coffee.getCoffeeBeansNeeded());
-            setDisposableCupsSupply(getDisposableCupsSupply() - coffee.getDisposableCupsNeeded());
-            cashRegister.charge(coffee.getPrice());
+            filled = new int[lines];
         }
+        return new BatchResult(requested, filled, charged, stoppedForCleaning);
     }
 
     /**
-     * Checks if the machine needs cleaning after making a set number of coffees.
+     * Debits the summed needs of the given quantities in one inventory step.
      *
-     * @return true if 10 or more coffees have been made
+     * @param order the order holding the recipes
+     * @param quantities the number of drinks to take for every line
+     * @return true if the supplies covered every line
      */
-    public static boolean isReadyToClean() {
-        return coffeesMade >= 10;
+    private boolean takeBatch(BatchOrder order, int[] quantities) {
+        long water = 0;
+        long milk = 0;
+        long coffeeBeans = 0;
+        long disposableCups = 0;
+        for (int line = 0; line < quantities.length; line++) {
+            Coffee coffee = order.getCoffee(line);
+            long quantity = quantities[line];
+            water += quantity * coffee.getWaterNeeded();
+            milk += quantity * coffee.getMilkNeeded();
+            coffeeBeans += quantity * coffee.getCoffeeBeansNeeded();
+            disposableCups += quantity * coffee.getDisposableCupsNeeded();
+        }
+        if (water > Integer.MAX_VALUE || milk > Integer.MAX_VALUE
+                || coffeeBeans > Integer.MAX_VALUE || disposableCups > Integer.MAX_VALUE) {
+            return false;
+        }
+        return inventory.tryTake((int) water, (int) milk, (int) coffeeBeans, (int) disposableCups);
     }
 
     /**
-     * Resets the coffee count and prints a cleaning confirmation message.
+     * Plans how many drinks of every line the current supplies can cover,
+     * filling the lines in order.
+     *
+     * @param order the order to plan
+     * @param brewsLeft the number of drinks the machine can brew before it needs cleaning
+     * @return the quantity to sell on every line
      */
-    public static void cleanMachine(){
-        coffeesMade = 0;
-        System.out.println("I have been cleaned!");
+    private int[] planPartialFill(BatchOrder order, long brewsLeft) {
+        long water = getWaterSupply();
+        long milk = getMilkSupply();
+        long coffeeBeans = getGramsCoffeeSupply();
+        long disposableCups = getDisposableCupsSupply();
+
+        int[] planned = new int[order.size()];
+        for (int line = 0; line < planned.length; line++) {
+            Coffee coffee = order.getCoffee(line);
+            long quantity = order.getQuantity(line);
+            quantity = Math.min(quantity, affordable(water, coffee.getWaterNeeded()));
+            quantity = Math.min(quantity, affordable(milk, coffee.getMilkNeeded()));
+            quantity = Math.min(quantity, affordable(coffeeBeans, coffee.getCoffeeBeansNeeded()));
+            quantity = Math.min(quantity, affordable(disposableCups, coffee.getDisposableCupsNeeded()));
+            quantity = Math.min(quantity, brewsLeft);
+
+            water -= quantity * coffee.getWaterNeeded();
+            milk -= quantity * coffee.getMilkNeeded();
+            coffeeBeans -= quantity * coffee.getCoffeeBeansNeeded();
+            disposableCups -= quantity * coffee.getDisposableCupsNeeded();
+            brewsLeft -= quantity;
+            planned[line] = (int) quantity;
+        }
+        return planned;
+    }
+
+    private static long affordable(long supply, int needed) {
+        return needed == 0 ? Long.MAX_VALUE : supply / needed;
     }
 
     /**
-     * Returns the current amount of water.
+     * Checks if the machine needs cleaning before it can make more coffee,
+     * according to its {@link MaintenanceScheduler}.
      *
-     * @return the amount of water
+     * @return true if every brew unit is due for cleaning or being cleaned
      */
-    public int getWaterSupply() {
-        return waterSupply;
+    public boolean isReadyToClean() {
+        return maintenance.isReadyToClean();
     }
 
     /**
-     * Updates the amount of water in the machine.
+     * Cleans every brew unit of this machine and prints a cleaning confirmation message.
+     */
+    public void cleanMachine(){
+        clean();
+        PrintMessages.printCleaned();
+    }
+
+    /**
+     * Cleans every brew unit of this machine without printing anything.
+     */
+    public void clean() {
+        maintenance.cleanAll();
+        for (MachineListener listener : listeners.get()) {
+            listener.machineCleaned();
+        }
+    }
+
+    /**
+     * Replaces the prices coffees are charged at. Every coffee is charged its fixed recipe price by default.
      *
-     * @param waterSupply the new amount to set
+     * @param priceList the price list to charge by
+     * @throws IllegalArgumentException if the price list is null
      */
-    private void setWaterSupply(int waterSupply) {
-        this.waterSupply = waterSupply;
+    public void setPriceList(PriceList priceList) {
+        if (priceList == null) {
+            throw new IllegalArgumentException("Price list cannot be null");
+        }
+        this.priceList = priceList;
     }
 
     /**
-     * Returns the current amount of milk.
+     * Returns what a coffee would be charged if it were sold right now.
      *
-     * @return the amount of milk
+     * @param coffee the coffee
+     * @return the current price
      */
-    public int getMilkSupply() {
-        return milkSupply;
+    public long quote(Coffee coffee) {
+        return priceList.priceOf(coffee);
     }
 
     /**
-     * Updates the amount of milk in the machine.
+     * Registers a listener that is told about every sale, stockout, refill and cleaning.
      *
-     * @param milkSupply the new amount to set
+     * @param listener the listener to add
      */
-    private void setMilkSupply(int milkSupply) {
-        this.milkSupply = milkSupply;
+    public void addListener(MachineListener listener) {
+        listeners.add(listener);
     }
 
     /**
-     * Returns the current amount of coffee beans.
+     * Unregisters a listener added with {@link #addListener(MachineListener)}.
      *
-     * @return the amount of coffee beans
+     * @param listener the listener to remove
      */
-    public int getGramsCoffeeSupply() {
-        return gramsCoffeeSupply;
+    public void removeListener(MachineListener listener) {
+        listeners.remove(listener);
     }
 
     /**
-     * Updates the amount of coffee beans in the machine.
+     * Returns the cleaning policy of this machine.
      *
-     * @param gramsCoffeeSupply the new amount to set
+     * @return the maintenance scheduler
      */
-    private void setGramsCoffeeSupply(int gramsCoffeeSupply) {
-        this.gramsCoffeeSupply = gramsCoffeeSupply;
+    public MaintenanceScheduler getMaintenance() {
+        return maintenance;
     }
 
     /**
-     * Returns the current amount of disposable cups.
+     * Returns the current amount of water.
      *
-     * @return the amount of disposable cups
+     * @return the amount of water
      */
-    public int getDisposableCupsSupply() {
-        return disposableCupsSupply;
+    public int getWaterSupply() {
+        return inventory.getWater();
     }
 
     /**
-     * Updates the amount of disposable cups in the machine.
+     * Returns the current amount of milk.
      *
-     * @param disposableCupsSupply the new amount to set
+     * @return the amount of milk
      */
-    private void setDisposableCupsSupply(int disposableCupsSupply) {
-        this.disposableCupsSupply = disposableCupsSupply;
+    public int getMilkSupply() {
+        return inventory.getMilk();
+    }
+
+    /**
+     * Returns the current amount of coffee beans.
+     *
+     * @return the amount of coffee beans
+     */
+    public int getGramsCoffeeSupply() {
+        return inventory.getCoffeeBeans();
+    }
+
+    /**
+     * Returns the current amount of disposable cups.
+     *
+     * @return the amount of disposable cups
+     */
+    public int getDisposableCupsSupply() {
+        return inventory.getDisposableCups();
     }
 }
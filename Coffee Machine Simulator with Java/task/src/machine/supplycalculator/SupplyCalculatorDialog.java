@@ -1,6 +1,8 @@
 package machine.supplycalculator;
 
 import machine.cashregister.CashRegister;
+import machine.io.Output;
+import machine.messages.PrintMessages;
 
 /**
  * The {@code SupplyCalculatorDialog} class is responsible for interacting with
@@ -28,11 +30,12 @@ public class SupplyCalculatorDialog {
      * @param cashRegister the cash register instance holding information about current money
      */
     public void printCoffeeMachineSupplies(SupplyCalculator supply, CashRegister cashRegister) {
+        Output output = PrintMessages.getOutput();
         String COFFEE_MACHINE_HAS = "The coffee machine has:";
-        System.out.println(COFFEE_MACHINE_HAS);
+        output.println(COFFEE_MACHINE_HAS);
 
         // print the supplies without leading indentation
-        System.out.printf("""
+        output.printf("""
                 %d ml of water
                 %d ml of milk
                 %d g of coffee beans
@@ -0,0 +1,138 @@
+package machine.availability;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.HoldResult;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityCacheTest {
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Coffee latte = registry.get(CoffeeOptions.LATTE);
+    private final Coffee cappuccino = registry.get(CoffeeOptions.CAPPUCCINO);
+
+    @Test
+    void countsFollowSalesFillsHoldsAndReleases() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+        AvailabilityCache cache = new AvailabilityCache(supplyCalculator, registry);
+        supplyCalculator.addListener(cache);
+        List<String> changes = new ArrayList<>();
+        cache.addListener((recipe, previous, cups) -> changes.add(recipe.getName() + " " + previous + "->" + cups));
+        assertCups(cache, 1, 1, 2);
+
+        supplyCalculator.trySellCoffee(cappuccino, new CashRegister(0));
+        assertCups(cache, 0, 0, 1);
+        assertFalse(cache.isAvailable(CoffeeOptions.ESPRESSO));
+        assertEquals(List.of("espresso 1->0", "latte 1->0", "cappuccino 2->1"), changes);
+
+        changes.clear();
+        supplyCalculator.fillSupplies(1_000, 0, 0, 0);
+        assertCups(cache, 4, 3, 4);
+        assertEquals(List.of("espresso 0->4", "latte 0->3", "cappuccino 1->4"), changes);
+
+        assertEquals(HoldResult.HELD, supplyCalculator.tryHold(latte));
+        assertCups(cache, 3, 2, 3);
+
+        supplyCalculator.releaseHold(latte);
+        assertCups(cache, 4, 3, 4);
+        assertTrue(cache.isAvailable(CoffeeOptions.LATTE));
+    }
+
+    @Test
+    void fillOnlyRecountsTheRecipesNeedingWhatWasFilled() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(1_000, 0, 1_000, 100);
+        AvailabilityCache cache = new AvailabilityCache(supplyCalculator, registry);
+        supplyCalculator.addListener(cache);
+        List<String> changes = new ArrayList<>();
+        cache.addListener((recipe, previous, cups) -> changes.add(recipe.getName()));
+
+        supplyCalculator.fillSupplies(0, 100, 0, 0);
+
+        assertEquals(List.of("latte", "cappuccino"), changes);
+        assertCups(cache, 4, 1, 1);
+    }
+
+    @Test
+    void rejectsOptionsThatAreNotDrinks() {
+        AvailabilityCache cache = new AvailabilityCache(new SupplyCalculator(400, 540, 120, 9), registry);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.getCups(CoffeeOptions.BACK));
+        assertThrows(IllegalArgumentException.class, () -> cache.getCups(registry.size()));
+    }
+
+    @Test
+    void concurrentSalesAndFillsEndWithTheCurrentCounts() throws InterruptedException {
+        SupplyCalculator supplyCalculator = SupplyCalculator.concurrent(0, 0, 0, 0);
+        AvailabilityCache cache = new AvailabilityCache(supplyCalculator, registry);
+        supplyCalculator.addListener(cache);
+        // the changes of one recipe chain together, so they add up to its final count whatever order they ran in
+        AtomicLongArray reported = new AtomicLongArray(registry.size());
+        cache.addListener((recipe, previous, cups) -> reported.addAndGet(recipe.getId(), cups - previous));
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] terminals = new Thread[4];
+        for (int t = 0; t < terminals.length; t++) {
+            boolean filler = t == 0;
+            Coffee coffee = registry.get(t % registry.size());
+            terminals[t] = new Thread(() -> {
+                await(start);
+                CashRegister cashRegister = CashRegister.concurrent(0);
+                for (int i = 0; i < 20_000; i++) {
+                    if (filler) {
+                        // the only filler, so checking first keeps the supplies within the inventory's limits
+                        if (supplyCalculator.getWaterSupply() < 100_000 && supplyCalculator.getMilkSupply() < 100_000
+                                && supplyCalculator.getGramsCoffeeSupply() < 10_000
+                                && supplyCalculator.getDisposableCupsSupply() < 1_000) {
+                            supplyCalculator.fillSupplies(350, 100, 20, 1);
+                        }
+                    } else {
+                        supplyCalculator.trySellCoffee(coffee, cashRegister);
+                    }
+                }
+            });
+            terminals[t].setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+            terminals[t].start();
+        }
+        start.countDown();
+        for (Thread terminal : terminals) {
+            terminal.join();
+        }
+
+        assertNull(failure.get());
+        for (int id = 0; id < registry.size(); id++) {
+            Recipe recipe = registry.get(id);
+            assertEquals(supplyCalculator.calculateSuppliesBeforeSell(recipe), cache.getCups(id));
+            assertEquals(cache.getCups(id), reported.get(id));
+        }
+    }
+
+    private static void assertCups(AvailabilityCache cache, int espresso, int latte, int cappuccino) {
+        assertEquals(espresso, cache.getCups(CoffeeOptions.ESPRESSO));
+        assertEquals(latte, cache.getCups(CoffeeOptions.LATTE));
+        assertEquals(cappuccino, cache.getCups(CoffeeOptions.CAPPUCCINO));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package machine.events;
+
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBusTest {
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Coffee espresso = registry.get(CoffeeOptions.ESPRESSO);
+
+    @Test
+    void concurrentPublishersAreDeliveredInSequenceWithoutLossOrReordering() throws InterruptedException {
+        int publishers = 4;
+        int eventsPerPublisher = 20_000;
+        Coffee[] coffees = new Coffee[publishers];
+        for (int p = 0; p < publishers; p++) {
+            coffees[p] = registry.register("drink " + p, espresso);
+        }
+        EventBus bus = new EventBus(publishers * eventsPerPublisher);
+        List<String> problems = new ArrayList<>();
+        long[] expectedCount = new long[publishers];
+        long[] expectedSequence = new long[1];
+        Subscription subscription = bus.subscribe("ordering", new EventSubscriber() {
+            @Override
+            public void onEvent(MachineEvent event, boolean endOfBatch) {
+                if (event.getSequence() != expectedSequence[0]++) {
+                    problems.add("sequence " + event.getSequence());
+                }
+                int publisher = List.of(coffees).indexOf(event.getCoffee());
+                if (event.getCount() != expectedCount[publisher]++) {
+                    problems.add("publisher " + publisher + " count " + event.getCount());
+                }
+            }
+
+            @Override
+            public void onDropped(long count) {
+                problems.add("dropped " + count);
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[publishers];
+        for (int p = 0; p < publishers; p++) {
+            Coffee coffee = coffees[p];
+            threads[p] = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < eventsPerPublisher; i++) {
+                    bus.coffeeSold(coffee, i, i);
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        bus.close();
+
+        assertEquals(List.of(), problems);
+        assertEquals((long) publishers * eventsPerPublisher, subscription.getDelivered());
+        for (long count : expectedCount) {
+            assertEquals(eventsPerPublisher, count);
+        }
+    }
+
+    @Test
+    void subscriberThatFallsALapBehindIsToldExactlyHowManyEventsItMissed() throws InterruptedException {
+        EventBus bus = new EventBus(8);
+        CountDownLatch inFirstEvent = new CountDownLatch(1);
+        CountDownLatch overwritten = new CountDownLatch(1);
+        List<Long> sequences = new ArrayList<>();
+        List<Long> drops = new ArrayList<>();
+        Subscription subscription = bus.subscribe("slow", new EventSubscriber() {
+            @Override
+            public void onEvent(MachineEvent event, boolean endOfBatch) {
+                sequences.add(event.getSequence());
+                if (event.getSequence() == 0) {
+                    inFirstEvent.countDown();
+                    await(overwritten);
+                }
+            }
+
+            @Override
+            public void onDropped(long count) {
+                drops.add(count);
+            }
+        });
+
+        bus.machineCleaned();
+        assertTrue(inFirstEvent.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            bus.moneyTaken(i);
+        }
+        overwritten.countDown();
+        bus.close();
+
+        // events 1 to 16 were overwritten; the reader resumes half a ring behind the cursor of 21
+        assertEquals(List.of(16L), drops);
+        assertEquals(List.of(0L, 17L, 18L, 19L, 20L), sequences);
+        assertEquals(16, subscription.getDropped());
+        assertEquals(5, subscription.getDelivered());
+    }
+
+    @Test
+    void throwingSubscriberEndsOnlyItsOwnSubscription() throws InterruptedException {
+        EventBus bus = new EventBus(256);
+        IllegalStateException failure = new IllegalStateException("subscriber failed on purpose");
+        Subscription failing = bus.subscribe("failing", (event, endOfBatch) -> {
+            if (event.getSequence() == 2) {
+                throw failure;
+            }
+        });
+        List<Long> seen = new ArrayList<>();
+        Subscription healthy = bus.subscribe("healthy", (event, endOfBatch) -> seen.add(event.getAmount()));
+
+        for (int i = 0; i < 200; i++) {
+            bus.moneyTaken(i);
+        }
+        failing.close();
+        bus.close();
+
+        assertSame(failure, failing.getFailure());
+        assertEquals(2, failing.getDelivered());
+        assertNull(healthy.getFailure());
+        assertEquals(200, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i, (long) seen.get(i));
+        }
+    }
+
+    @Test
+    void closeDeliversEverythingPublishedBeforeIt() {
+        EventBus bus = new EventBus(1_024);
+        List<MachineEvent.Type> types = new ArrayList<>();
+        List<Boolean> batchEnds = new ArrayList<>();
+        Subscription subscription = bus.subscribe("log", (event, endOfBatch) -> {
+            types.add(event.getType());
+            batchEnds.add(endOfBatch);
+        });
+
+        bus.coffeeSold(espresso, 1, 4);
+        bus.stockout(espresso, Resource.WATER);
+        bus.suppliesFilled(1, 2, 3, 4);
+        bus.suppliesHeld(espresso);
+        bus.holdReleased(espresso);
+        bus.moneyTaken(4);
+        bus.machineCleaned();
+        bus.close();
+
+        assertEquals(List.of(MachineEvent.Type.COFFEE_SOLD, MachineEvent.Type.STOCKOUT_REJECTED,
+                MachineEvent.Type.SUPPLIES_FILLED, MachineEvent.Type.SUPPLIES_HELD, MachineEvent.Type.HOLD_RELEASED,
+                MachineEvent.Type.MONEY_TAKEN, MachineEvent.Type.MACHINE_CLEANED), types);
+        assertTrue(batchEnds.get(batchEnds.size() - 1));
+        assertEquals(7, subscription.getDelivered());
+        assertEquals(7, bus.getPublished());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package machine.fleet;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.maintenance.MaintenanceScheduler;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.PlainInventory;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FleetMachineTest {
+
+    private final Coffee espresso = RecipeRegistry.withDefaults().get(CoffeeOptions.ESPRESSO);
+
+    @Test
+    void machineThatRefillsWhenEmptyServesEveryCustomer() {
+        FleetMachine machine = new FleetMachine(0, defaultSupplies(), new CashRegister(0), true);
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(machine.serve(espresso));
+        }
+
+        // 400 ml of water make one espresso, so every sale after the first needs a refill
+        assertEquals(25, machine.getSold());
+        assertEquals(24, machine.getRefills());
+        assertEquals(0, machine.getStockouts());
+        assertEquals(400, machine.getSupplyCalculator().getWaterSupply() + espresso.getWaterNeeded());
+    }
+
+    @Test
+    void machineWithoutRefillsTurnsCustomersAwayOnceEmpty() {
+        FleetMachine machine = new FleetMachine(0, defaultSupplies(), new CashRegister(0));
+
+        assertTrue(machine.serve(espresso));
+        assertFalse(machine.serve(espresso));
+
+        assertEquals(1, machine.getSold());
+        assertEquals(0, machine.getRefills());
+        assertEquals(1, machine.getStockouts());
+    }
+
+    @Test
+    void fleetThatRefillsSellsToEveryCustomer() throws InterruptedException {
+        FleetSimulator fleet = new FleetSimulator(4, 0, MaintenanceScheduler::everyTenCoffees, true);
+
+        FleetReport report = fleet.run(1_000);
+
+        assertEquals(1_000, report.getSold());
+        assertEquals(0, report.getTotalStockouts());
+        assertTrue(report.getRefills() > 0);
+    }
+
+    private static SupplyCalculator defaultSupplies() {
+        return new SupplyCalculator(new PlainInventory(400, 540, 120, 9), MaintenanceScheduler.everyTenCoffees());
+    }
+}
@@ -0,0 +1,227 @@
+package machine.fleet;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Recipe;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.Inventory;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FleetStateStoreTest {
+
+    private static final int MACHINES = 5_000;
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+
+    @Test
+    void fillAllAddsToEveryRow() {
+        FleetStateStore store = randomFleet(MACHINES, 1);
+        int[][] before = new int[MACHINES][];
+        for (int machine = 0; machine < MACHINES; machine++) {
+            before[machine] = supplies(store.inventory(machine));
+        }
+
+        store.fillAll(100, 200, 30, 4);
+
+        for (int machine = 0; machine < MACHINES; machine++) {
+            int[] after = supplies(store.inventory(machine));
+            assertEquals(before[machine][0] + 100, after[0], "water of machine " + machine);
+            assertEquals(before[machine][1] + 200, after[1], "milk of machine " + machine);
+            assertEquals(before[machine][2] + 30, after[2], "coffee beans of machine " + machine);
+            assertEquals(before[machine][3] + 4, after[3], "cups of machine " + machine);
+        }
+        assertThrows(IllegalArgumentException.class, () -> store.fillAll(0, -1, 0, 0));
+    }
+
+    @Test
+    void fillThatWouldOverflowAnyRowIsRefusedWithoutChangingOne() {
+        FleetStateStore store = new FleetStateStore(3, 0, 0, 0, 0, 0);
+        store.inventory(1).add(Integer.MAX_VALUE - 10, 0, 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> store.fillAll(11, 0, 0, 0));
+        assertEquals(0, store.inventory(0).getWater());
+        assertEquals(Integer.MAX_VALUE - 10, store.inventory(1).getWater());
+
+        store.fillAll(10, 0, 0, 0);
+        assertEquals(10, store.inventory(0).getWater());
+        assertEquals(Integer.MAX_VALUE, store.inventory(1).getWater());
+        assertThrows(IllegalArgumentException.class, () -> store.inventory(1).add(1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> store.supplyCalculator(1).fillSupplies(1, 0, 0, 0));
+        assertEquals(Integer.MAX_VALUE, store.inventory(1).getWater());
+    }
+
+    @Test
+    void canMakeMatchesEveryRow() {
+        FleetStateStore store = randomFleet(MACHINES, 2);
+        boolean[] result = new boolean[MACHINES];
+        for (int id = 0; id < registry.size(); id++) {
+            Recipe recipe = registry.get(id);
+
+            int count = store.canMake(recipe, result);
+
+            int expected = 0;
+            for (int machine = 0; machine < MACHINES; machine++) {
+                boolean possible = store.supplyCalculator(machine).calculateSuppliesBeforeSell(recipe) > 0;
+                assertEquals(possible, result[machine], recipe.getName() + " on machine " + machine);
+                expected += possible ? 1 : 0;
+            }
+            assertEquals(expected, count, recipe.getName());
+        }
+        assertThrows(IllegalArgumentException.class, () -> store.canMake(registry.get(0), new boolean[1]));
+    }
+
+    @Test
+    void totalMoneySumsEveryRegister() {
+        FleetStateStore store = new FleetStateStore(MACHINES, 0, 0, 0, 0, 10);
+        SplittableRandom random = new SplittableRandom(3);
+        long expected = 10L * MACHINES;
+        for (int machine = 0; machine < MACHINES; machine += 7) {
+            CashRegister cashRegister = store.cashRegister(machine);
+            if (random.nextBoolean()) {
+                expected -= cashRegister.drain();
+            } else {
+                long amount = random.nextInt(1_000);
+                cashRegister.charge(amount);
+                expected += amount;
+            }
+        }
+
+        assertEquals(expected, store.getTotalMoney());
+    }
+
+    @Test
+    void rowViewsReadAndWriteTheColumns() {
+        FleetStateStore store = new FleetStateStore(3, 400, 540, 120, 9, 550);
+        Recipe latte = registry.get(CoffeeOptions.LATTE);
+
+        SupplyCalculator supplyCalculator = store.supplyCalculator(1);
+        supplyCalculator.sellCoffee(latte, store.cashRegister(1));
+
+        assertEquals(50, store.inventory(1).getWater());
+        assertEquals(465, store.inventory(1).getMilk());
+        assertEquals(100, store.inventory(1).getCoffeeBeans());
+        assertEquals(8, store.inventory(1).getDisposableCups());
+        assertEquals(557, store.cashRegister(1).getMoney());
+        assertEquals(1, store.getCoffeesSinceCleaning(1));
+        assertEquals(400, store.inventory(0).getWater());
+        assertEquals(400, store.inventory(2).getWater());
+        assertEquals(550 * 3 + 7, store.getTotalMoney());
+        assertThrows(IllegalArgumentException.class, () -> store.inventory(3));
+        assertThrows(IllegalArgumentException.class, () -> store.getCoffeesSinceCleaning(3));
+        assertThrows(IllegalArgumentException.class, () -> store.getCoffeesSinceCleaning(-1));
+    }
+
+    @Test
+    void reciprocalDivisionMatchesPlainDivision() {
+        SplittableRandom random = new SplittableRandom(4);
+        int[] needs = new int[64];
+        int[] fixedNeeds = {1, 2, 3, 7, 10, 250, 0xFFFF, (1 << 30) - 1, 1 << 30, (1 << 30) + 1, Integer.MAX_VALUE};
+        System.arraycopy(fixedNeeds, 0, needs, 0, fixedNeeds.length);
+        for (int i = fixedNeeds.length; i < needs.length; i++) {
+            needs[i] = 1 + random.nextInt(i % 2 == 0 ? 1_000 : Integer.MAX_VALUE);
+        }
+        int[] column = new int[4_096];
+        for (int needed : needs) {
+            int edges = 0;
+            for (int supply : new int[] {0, 1, needed - 1, needed, needed + 1, 2 * needed - 1, 2 * needed,
+                    Integer.MAX_VALUE - 1, Integer.MAX_VALUE}) {
+                // 2 * needed overflows for the largest needs, which the clamp in limitCapacity maps to 0
+                column[edges++] = Math.max(0, supply);
+            }
+            for (int machine = edges; machine < column.length; machine++) {
+                column[machine] = random.nextInt(Integer.MAX_VALUE);
+            }
+            int[] capacity = new int[column.length];
+            Arrays.fill(capacity, Integer.MAX_VALUE);
+
+            FleetStateStore.limitCapacity(capacity, column, 0, column.length, needed);
+
+            for (int machine = 0; machine < column.length; machine++) {
+                assertEquals(column[machine] / needed, capacity[machine], column[machine] + " / " + needed);
+            }
+        }
+    }
+
+    @Test
+    void capacityHistogramMatchesPerMachineCalculation() {
+        // not a multiple of the block size, so the last block is partial
+        FleetStateStore store = randomFleet(3 * 2_048 + 123, 5);
+        RecipeRegistry recipes = RecipeRegistry.withDefaults();
+        recipes.register("doppio", 60, 0, 32, 1, 5);
+        recipes.register("flat white", 130, 180, 18, 1, 6);
+        recipes.register("bucket", Recipe.MAX_AMOUNT, Recipe.MAX_AMOUNT, 7, 3, 40);
+
+        CapacityHistogram[] histograms = store.capacityHistograms(recipes);
+
+        assertEquals(recipes.size(), histograms.length);
+        for (int id = 0; id < recipes.size(); id++) {
+            Recipe recipe = recipes.get(id);
+            long[] expected = new long[CapacityHistogram.BUCKETS];
+            for (int machine = 0; machine < store.size(); machine++) {
+                int cups = store.supplyCalculator(machine).calculateSuppliesBeforeSell(recipe);
+                expected[CapacityHistogram.bucketOf(cups)]++;
+            }
+            assertEquals(recipe.getName(), histograms[id].getRecipe());
+            assertArrayEquals(expected, buckets(histograms[id]));
+        }
+    }
+
+    @Test
+    void capacityHistogramHandlesFullIntSupplies() {
+        FleetStateStore store = new FleetStateStore(2_048 + 1, 0, 0, 0, 0, 0);
+        SplittableRandom random = new SplittableRandom(6);
+        for (int machine = 0; machine < store.size(); machine++) {
+            store.inventory(machine).add(random.nextInt(Integer.MAX_VALUE), random.nextInt(Integer.MAX_VALUE),
+                    random.nextInt(Integer.MAX_VALUE), machine == 0 ? Integer.MAX_VALUE : random.nextInt(100));
+        }
+        Recipe cappuccino = registry.get(CoffeeOptions.CAPPUCCINO);
+
+        CapacityHistogram histogram = store.capacityHistogram("cappuccino", cappuccino);
+
+        long[] expected = new long[CapacityHistogram.BUCKETS];
+        for (int machine = 0; machine < store.size(); machine++) {
+            Inventory inventory = store.inventory(machine);
+            int cups = Math.min(Math.min(inventory.getWater() / cappuccino.getWaterNeeded(),
+                            inventory.getMilk() / cappuccino.getMilkNeeded()),
+                    Math.min(inventory.getCoffeeBeans() / cappuccino.getCoffeeBeansNeeded(),
+                            inventory.getDisposableCups() / cappuccino.getDisposableCupsNeeded()));
+            expected[CapacityHistogram.bucketOf(cups)]++;
+        }
+        assertArrayEquals(expected, buckets(histogram));
+    }
+
+    private static long[] buckets(CapacityHistogram histogram) {
+        long[] buckets = new long[CapacityHistogram.BUCKETS];
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            buckets[bucket] = histogram.getMachines(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * Creates a fleet whose rows hold random supplies, many of them too low for some recipe.
+     */
+    static FleetStateStore randomFleet(int machines, long seed) {
+        FleetStateStore store = new FleetStateStore(machines, 0, 0, 0, 0, 0);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int machine = 0; machine < machines; machine++) {
+            store.inventory(machine).add(random.nextInt(2_000), random.nextInt(1_000),
+                    random.nextInt(200), random.nextInt(12));
+        }
+        return store;
+    }
+
+    private static int[] supplies(Inventory inventory) {
+        return new int[] {
+                inventory.getWater(), inventory.getMilk(), inventory.getCoffeeBeans(), inventory.getDisposableCups()
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package machine.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FastInputTest {
+
+    private static final String TOKENS = "1 +5 -3 007 -0 1,000 -12,345 1,00 12a a12 - + 2147483647 2147483648 "
+            + "-2147483648 -2147483649 99999999999 1.5 " + "9".repeat(40) + " 4";
+
+    @Test
+    void integersAreReadLikeTheInteractiveScanner() {
+        Input expected = new ScannerInput(stream(TOKENS));
+        // a buffer smaller than most tokens makes them straddle refills
+        Input actual = new FastInput(stream(TOKENS), 4);
+
+        for (String token : TOKENS.split(" ")) {
+            assertEquals(expected.tryNextInt(), actual.tryNextInt(), token);
+        }
+    }
+
+    @Test
+    void groupedNumberIsAcceptedAndTheRestOfTheLineIsKept() {
+        Input input = new FastInput(stream("1,000 cups\r\nnext\n"));
+
+        assertEquals(OptionalInt.of(1_000), input.tryNextInt());
+        assertEquals(" cups", input.nextLine());
+        assertEquals("next", input.nextLine());
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
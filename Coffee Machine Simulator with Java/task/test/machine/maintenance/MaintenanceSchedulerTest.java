@@ -0,0 +1,141 @@
+package machine.maintenance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaintenanceSchedulerTest {
+
+    private long now;
+
+    @Test
+    void manualCleaningCountsTheWaitForTheOperatorAsLostThroughput() {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 0, 0, 1, () -> now);
+
+        now = 100;
+        scheduler.recordBrews(10);
+        assertTrue(scheduler.isReadyToClean());
+        assertEquals(0, scheduler.getOutOfServiceNanos());
+
+        now = 400;
+        assertEquals(300, scheduler.getOutOfServiceNanos());
+        assertEquals(0.75, scheduler.getLostThroughput(), 1e-9);
+
+        scheduler.cleanAll();
+        now = 800;
+        assertFalse(scheduler.isReadyToClean());
+        assertEquals(300, scheduler.getOutOfServiceNanos());
+        assertEquals(1, scheduler.getCleanings());
+    }
+
+    @Test
+    void automaticCleaningStartsWhenDueAndReadingDoesNotChangeState() {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(2, 0, 50, 2, () -> now);
+
+        now = 10;
+        scheduler.recordBrews(4);
+        assertTrue(scheduler.isReadyToClean());
+        assertEquals(0, scheduler.getUnitsInService());
+        assertEquals(2, scheduler.getCleanings());
+
+        now = 40;
+        assertTrue(scheduler.isReadyToClean());
+        assertEquals(60, scheduler.getOutOfServiceNanos());
+
+        now = 60;
+        assertFalse(scheduler.isReadyToClean());
+        assertEquals(2, scheduler.getUnitsInService());
+        assertEquals(0, scheduler.getBrewsSinceCleaning());
+        assertEquals(100, scheduler.getOutOfServiceNanos());
+
+        scheduler.recordBrew();
+        assertEquals(1, scheduler.getBrewsSinceCleaning());
+        assertEquals(2, scheduler.getCleanings());
+        assertEquals(100, scheduler.getOutOfServiceNanos());
+    }
+
+    @Test
+    void idleUnitCleansItselfEveryMaximumInterval() {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 100, 20, 1, () -> now);
+
+        now = 99;
+        assertFalse(scheduler.isReadyToClean());
+        now = 100;
+        assertTrue(scheduler.isReadyToClean());
+        now = 120;
+        assertFalse(scheduler.isReadyToClean());
+        // the second cleaning starts 100 after the first one ended
+        now = 225;
+        assertTrue(scheduler.isReadyToClean());
+        assertEquals(2, scheduler.getCleanings());
+        assertEquals(25, scheduler.getOutOfServiceNanos());
+
+        now = 250;
+        scheduler.recordBrew();
+        assertEquals(1, scheduler.getBrewsSinceCleaning());
+        assertEquals(2, scheduler.getCleanings());
+        assertEquals(40, scheduler.getOutOfServiceNanos());
+        now = 339;
+        assertFalse(scheduler.isReadyToClean());
+        now = 340;
+        assertTrue(scheduler.isReadyToClean());
+    }
+
+    @Test
+    void concurrentBrewsAreCountedExactlyOnce() throws InterruptedException {
+        int threads = 4;
+        int brewsPerThread = 100_000;
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(Integer.MAX_VALUE, 0, 0, 3, System::nanoTime);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] brewers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            brewers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < brewsPerThread; i++) {
+                    scheduler.recordBrew();
+                }
+            });
+            brewers[t].start();
+        }
+        start.countDown();
+        for (Thread brewer : brewers) {
+            brewer.join();
+        }
+
+        assertEquals(threads * brewsPerThread, scheduler.getBrewsSinceCleaning());
+        assertEquals(3, scheduler.getUnitsInService());
+    }
+
+    @Test
+    void concurrentBrewsNeverPushAUnitPastItsThreshold() throws InterruptedException {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(1_000, 0, 0, 4, System::nanoTime);
+        Thread[] brewers = new Thread[4];
+        for (int t = 0; t < brewers.length; t++) {
+            brewers[t] = new Thread(() -> {
+                while (!scheduler.isReadyToClean()) {
+                    scheduler.recordBrew();
+                }
+            });
+            brewers[t].start();
+        }
+        for (Thread brewer : brewers) {
+            brewer.join();
+        }
+
+        // a brew can only run past the threshold by racing the last check, at most once per thread
+        int brews = scheduler.getBrewsSinceCleaning();
+        assertTrue(brews >= 4_000 && brews <= 4_000 + brewers.length, "brews " + brews);
+        scheduler.cleanAll();
+        assertEquals(0, scheduler.getBrewsSinceCleaning());
+        assertFalse(scheduler.isReadyToClean());
+    }
+}
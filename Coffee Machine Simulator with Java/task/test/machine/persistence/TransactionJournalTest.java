@@ -0,0 +1,125 @@
+package machine.persistence;
+
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionJournalTest {
+
+    private static final long RECORDS_PER_SEGMENT = TransactionJournal.SEGMENT_SIZE / TransactionJournal.RECORD_SIZE;
+
+    private final Coffee espresso = RecipeRegistry.withDefaults().get(CoffeeOptions.ESPRESSO);
+
+    @Test
+    void recordCutOffMidwayIsDroppedAndOverwritten() throws IOException {
+        Path file = Files.createTempFile("journal", ".bin");
+        try {
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, emptyState(), 60_000)) {
+                journal.suppliesFilled(1_000, 500, 100, 10);
+                journal.coffeeSold(espresso, 1, 4);
+                journal.coffeeSold(espresso, 1, 4);
+            }
+            // the process died while the third record was being written out
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(2 * TransactionJournal.RECORD_SIZE + 10);
+            }
+
+            MachineState state = emptyState();
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, state, 60_000)) {
+                assertEquals(2 * TransactionJournal.RECORD_SIZE, journal.getPosition());
+                journal.moneyTaken(3);
+            }
+            assertEquals(750, state.getWater());
+            assertEquals(4, state.getMoney());
+            assertEquals(1, state.getCoffeesSinceCleaning());
+
+            MachineState recovered = emptyState();
+            TransactionJournal.open(file, 0, recovered, 60_000).close();
+            assertEquals(750, recovered.getWater());
+            assertEquals(9, recovered.getDisposableCups());
+            assertEquals(1, recovered.getMoney());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void recordWhoseTypeByteWasNeverWrittenEndsTheLog() throws IOException {
+        Path file = Files.createTempFile("journal", ".bin");
+        try {
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, emptyState(), 60_000)) {
+                journal.suppliesFilled(1_000, 500, 100, 10);
+                journal.coffeeSold(espresso, 1, 4);
+                journal.coffeeSold(espresso, 1, 4);
+            }
+            // the payload of the last record made it to disk, its type byte did not
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[1]), 2 * TransactionJournal.RECORD_SIZE);
+            }
+
+            MachineState state = emptyState();
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, state, 60_000)) {
+                assertEquals(2 * TransactionJournal.RECORD_SIZE, journal.getPosition());
+            }
+            assertEquals(750, state.getWater());
+            assertEquals(1, state.getCoffeesSinceCleaning());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void recordsOnBothSidesOfASegmentBoundaryAreReplayed() throws IOException {
+        Path file = Files.createTempFile("journal", ".bin");
+        try {
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, emptyState(), 60_000)) {
+                fillOneMilliliterAtATime(journal, RECORDS_PER_SEGMENT - 1);
+            }
+            // reopened one record before the boundary, the journal crosses it while appending
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, emptyState(), 60_000)) {
+                assertEquals(TransactionJournal.SEGMENT_SIZE - TransactionJournal.RECORD_SIZE, journal.getPosition());
+                fillOneMilliliterAtATime(journal, 3);
+                assertEquals(TransactionJournal.SEGMENT_SIZE + 2 * TransactionJournal.RECORD_SIZE,
+                        journal.getPosition());
+            }
+
+            MachineState everything = emptyState();
+            try (TransactionJournal journal = TransactionJournal.open(file, 0, everything, 60_000)) {
+                assertEquals(TransactionJournal.SEGMENT_SIZE + 2 * TransactionJournal.RECORD_SIZE,
+                        journal.getPosition());
+            }
+            assertEquals(RECORDS_PER_SEGMENT + 2, everything.getWater());
+
+            // snapshots taken on either side of the boundary resume from there
+            MachineState beforeBoundary = emptyState();
+            TransactionJournal.open(file, TransactionJournal.SEGMENT_SIZE - TransactionJournal.RECORD_SIZE,
+                    beforeBoundary, 60_000).close();
+            assertEquals(3, beforeBoundary.getWater());
+            MachineState atBoundary = emptyState();
+            TransactionJournal.open(file, TransactionJournal.SEGMENT_SIZE, atBoundary, 60_000).close();
+            assertEquals(2, atBoundary.getWater());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void fillOneMilliliterAtATime(TransactionJournal journal, long records) {
+        for (long record = 0; record < records; record++) {
+            journal.suppliesFilled(1, 0, 0, 0);
+        }
+    }
+
+    private static MachineState emptyState() {
+        return new MachineState(0, 0, 0, 0, 0, 0);
+    }
+}
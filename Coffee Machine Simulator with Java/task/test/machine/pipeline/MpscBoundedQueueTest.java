@@ -0,0 +1,82 @@
+package machine.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscBoundedQueueTest {
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws InterruptedException {
+        int producers = 4;
+        int elementsPerProducer = 100_000;
+        // a small queue keeps the producers running into a full queue and wrapping around
+        MpscBoundedQueue<Long> queue = new MpscBoundedQueue<>(16);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < elementsPerProducer; i++) {
+                    Long element = producer << 32 | i;
+                    while (!queue.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+        int[] next = new int[producers];
+        long received = 0;
+        while (received < (long) producers * elementsPerProducer) {
+            Long element = queue.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) (element >>> 32);
+            // each producer's elements come out in the order it offered them, each exactly once
+            assertEquals(next[producer]++, (int) (long) element);
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(queue.poll());
+        for (int count : next) {
+            assertEquals(elementsPerProducer, count);
+        }
+    }
+
+    @Test
+    void fullQueueRefusesUntilTheConsumerFreesASlot() {
+        MpscBoundedQueue<Integer> queue = new MpscBoundedQueue<>(5);
+        assertEquals(8, queue.capacity());
+
+        for (int i = 0; i < queue.capacity(); i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+
+        assertEquals(0, (int) queue.poll());
+        assertTrue(queue.offer(8));
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(i, (int) queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+}
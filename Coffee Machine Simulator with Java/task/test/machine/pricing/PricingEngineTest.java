@@ -0,0 +1,149 @@
+package machine.pricing;
+
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.persistence.MachineState;
+import machine.supplycalculator.HoldResult;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PricingEngineTest {
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Coffee espresso = registry.get(CoffeeOptions.ESPRESSO);
+    private final Coffee latte = registry.get(CoffeeOptions.LATTE);
+    private long now;
+
+    @Test
+    void heldSuppliesRaiseTheScarcitySurchargeUntilReleased() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(1_000, 1_000, 1_000, 100);
+        MachineState capacity = new MachineState(2_000, 1_000, 1_000, 100, 0, 0);
+        PricingEngine engine = new PricingEngine(supplyCalculator, registry, capacity, 50, 1, 1, () -> 0);
+        supplyCalculator.addListener(engine);
+        assertEquals(espresso.getPrice(), engine.priceOf(espresso));
+
+        assertEquals(HoldResult.HELD, supplyCalculator.tryHold(latte));
+        assertEquals(HoldResult.HELD, supplyCalculator.tryHold(latte));
+
+        // 300 ml of water left is below a quarter of the 2000 ml capacity
+        assertTrue(engine.priceOf(espresso) > espresso.getPrice());
+
+        supplyCalculator.releaseHold(latte);
+        supplyCalculator.releaseHold(latte);
+
+        assertEquals(espresso.getPrice(), engine.priceOf(espresso));
+    }
+
+    @Test
+    void scarcityClimbsOneStepPerSixteenthOfTheLastQuarterUsedUp() {
+        // 4000 ml of capacity is scarce below 1000 ml, and every 62.5 ml missing is one more step
+        assertEquals(0, step(scarcityEngine(1_000, 4_000), CoffeeOptions.ESPRESSO));
+        assertEquals(1, step(scarcityEngine(999, 4_000), CoffeeOptions.ESPRESSO));
+        assertEquals(1, step(scarcityEngine(938, 4_000), CoffeeOptions.ESPRESSO));
+        assertEquals(2, step(scarcityEngine(937, 4_000), CoffeeOptions.ESPRESSO));
+        assertEquals(15, step(scarcityEngine(63, 4_000), CoffeeOptions.ESPRESSO));
+        assertEquals(PricingEngine.STEPS, step(scarcityEngine(0, 4_000), CoffeeOptions.ESPRESSO));
+    }
+
+    @Test
+    void recipeFollowsItsScarcestIngredient() {
+        PricingEngine engine = scarcityEngine(4_000, 500);
+
+        assertEquals(0, step(engine, CoffeeOptions.ESPRESSO));
+        assertEquals(8, step(engine, CoffeeOptions.LATTE));
+        assertEquals(8, step(engine, CoffeeOptions.CAPPUCCINO));
+    }
+
+    @Test
+    void surchargeIsRoundedHalfUpToWholeUnits() {
+        // at 50 %, espresso at $4 earns $0.125 per step and latte at $7 earns $0.21875
+        assertEquals(4, scarcityEngine(850, 4_000).priceOf(espresso));
+        assertEquals(5, scarcityEngine(750, 4_000).priceOf(espresso));
+        assertEquals(7, scarcityEngine(4_000, 937).priceOf(latte));
+        assertEquals(11, scarcityEngine(4_000, 0).priceOf(latte));
+    }
+
+    @Test
+    void demandSurchargeFollowsTheSmoothedSalesRate() {
+        // one espresso per millisecond is the normal rate; the engines start at 0 and sell once warmed up
+        PricingEngine normal = demandEngine();
+        PricingEngine brisk = demandEngine();
+        PricingEngine busy = demandEngine();
+        now = 40_000_000_000L;
+        assertEquals(0, step(sellEvery(normal, 1_000_000, 10_000), CoffeeOptions.ESPRESSO));
+        assertEquals(4, step(sellEvery(brisk, 800_000, 10_000), CoffeeOptions.ESPRESSO));
+        sellEvery(busy, 500_000, 20_000);
+        assertEquals(PricingEngine.STEPS, step(busy, CoffeeOptions.ESPRESSO));
+
+        // a quiet spell only shows at the next sale, by when five time constants have decayed the rate
+        now += 5_000_000_000L;
+        assertEquals(PricingEngine.STEPS, step(busy, CoffeeOptions.ESPRESSO));
+        busy.coffeeSold(espresso, 1, espresso.getPrice());
+        assertEquals(0, step(busy, CoffeeOptions.ESPRESSO));
+        assertEquals(espresso.getPrice(), busy.priceOf(espresso));
+    }
+
+    @Test
+    void demandDuringWarmUpIsMeasuredOverTheTimeObservedSoFar() {
+        PricingEngine atStart = demandEngine();
+        atStart.coffeeSold(espresso, 1, espresso.getPrice());
+        assertEquals(0, step(atStart, CoffeeOptions.ESPRESSO));
+        // a second sale within the first normal gap is twice the normal rate
+        atStart.coffeeSold(espresso, 1, espresso.getPrice());
+        assertEquals(PricingEngine.STEPS, step(atStart, CoffeeOptions.ESPRESSO));
+
+        // 1100 sales after one time constant count against 63 % of it, after forty against all of it
+        PricingEngine afterOne = demandEngine();
+        PricingEngine afterForty = demandEngine();
+        now = 1_000_000_000L;
+        assertEquals(11, step(sellEvery(afterOne, 0, 1_100), CoffeeOptions.ESPRESSO));
+        now = 40_000_000_000L;
+        assertEquals(1, step(sellEvery(afterForty, 0, 1_100), CoffeeOptions.ESPRESSO));
+    }
+
+    @Test
+    void scarcityAndDemandTogetherStopAtTheTopStep() {
+        PricingEngine engine = scarcityEngine(250, 4_000);
+        assertEquals(12, step(engine, CoffeeOptions.ESPRESSO));
+
+        engine.coffeeSold(espresso, 2, 2 * espresso.getPrice());
+
+        assertEquals(PricingEngine.STEPS, step(engine, CoffeeOptions.ESPRESSO));
+        assertEquals(6, engine.priceOf(espresso));
+    }
+
+    private int step(PricingEngine engine, CoffeeOptions option) {
+        return engine.getStep(registry.get(option).getId());
+    }
+
+    /**
+     * Creates an engine at 50 % surcharge whose only pressure is the given water and milk against 4000 ml capacities.
+     */
+    private PricingEngine scarcityEngine(int water, int milk) {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(water, milk, 1_000, 100);
+        MachineState capacity = new MachineState(4_000, 4_000, 1_000, 100, 0, 0);
+        return new PricingEngine(supplyCalculator, registry, capacity, 50, 1, 1, () -> now);
+    }
+
+    /**
+     * Creates an engine with full supplies, a normal rate of one cup per millisecond and a one second time constant.
+     */
+    private PricingEngine demandEngine() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(1_000, 1_000, 1_000, 100);
+        MachineState capacity = new MachineState(1_000, 1_000, 1_000, 100, 0, 0);
+        return new PricingEngine(supplyCalculator, registry, capacity, 50, 3_600_000, 1_000_000_000L, () -> now);
+    }
+
+    private PricingEngine sellEvery(PricingEngine engine, long gapNanos, int sales) {
+        long start = now;
+        for (int sale = 0; sale < sales; sale++) {
+            now = start + sale * gapNanos;
+            engine.coffeeSold(espresso, 1, espresso.getPrice());
+        }
+        return engine;
+    }
+}
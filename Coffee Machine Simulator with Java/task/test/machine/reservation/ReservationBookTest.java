@@ -0,0 +1,213 @@
+package machine.reservation;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.menu.CoffeeOptions;
+import machine.supplycalculator.HoldResult;
+import machine.supplycalculator.Resource;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationBookTest {
+
+    private static final long TTL = 60_000_000_000L;
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Coffee espresso = registry.get(CoffeeOptions.ESPRESSO);
+    private final Coffee latte = registry.get(CoffeeOptions.LATTE);
+
+    private long now;
+    private SupplyCalculator supplyCalculator;
+    private CashRegister cashRegister;
+    private ReservationBook book;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000;
+        supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+        cashRegister = new CashRegister(550);
+        book = new ReservationBook(supplyCalculator, cashRegister, TTL, () -> now);
+    }
+
+    @Test
+    void commitChargesTheHeldCoffee() {
+        Reservation reservation = book.reserve(latte);
+
+        assertEquals(Reservation.State.OPEN, reservation.getState());
+        assertEquals(50, supplyCalculator.getWaterSupply());
+        assertEquals(350, supplyCalculator.getHeld(Resource.WATER));
+        assertEquals(550, cashRegister.getMoney());
+
+        assertTrue(book.commit(reservation));
+
+        assertEquals(Reservation.State.COMMITTED, reservation.getState());
+        assertEquals(557, cashRegister.getMoney());
+        assertEquals(50, supplyCalculator.getWaterSupply());
+        assertEquals(0, supplyCalculator.getHeld(Resource.WATER));
+        assertFalse(book.commit(reservation));
+        assertFalse(book.release(reservation));
+        assertEquals(1, book.getCommitted());
+        assertEquals(0, book.getOpen());
+    }
+
+    @Test
+    void commitChargesThePriceQuotedAtReserveTime() {
+        supplyCalculator.setPriceList(coffee -> 5);
+        Reservation reservation = book.reserve(latte);
+        supplyCalculator.setPriceList(coffee -> 9);
+
+        assertEquals(5, reservation.getPrice());
+        assertTrue(book.commit(reservation));
+        assertEquals(555, cashRegister.getMoney());
+    }
+
+    @Test
+    void releaseGivesTheSuppliesBack() {
+        Reservation reservation = book.reserve(latte);
+
+        assertTrue(book.release(reservation));
+
+        assertEquals(Reservation.State.RELEASED, reservation.getState());
+        assertEquals(400, supplyCalculator.getWaterSupply());
+        assertEquals(540, supplyCalculator.getMilkSupply());
+        assertEquals(0, supplyCalculator.getHeld(Resource.MILK));
+        assertEquals(550, cashRegister.getMoney());
+        assertFalse(book.commit(reservation));
+        assertEquals(1, book.getReleased());
+    }
+
+    @Test
+    void expiredReservationGivesTheSuppliesBackAndCannotBeCommitted() {
+        supplyCalculator.fillSupplies(1_000, 0, 100, 10);
+        Reservation first = book.reserve(espresso);
+        now += TTL / 2;
+        Reservation second = book.reserve(espresso);
+
+        now = first.getDeadline() - 1;
+        assertEquals(0, book.expireDue());
+        now = first.getDeadline() + TTL / 128;
+        assertEquals(1, book.expireDue());
+
+        assertEquals(Reservation.State.EXPIRED, first.getState());
+        assertEquals(Reservation.State.OPEN, second.getState());
+        assertEquals(1_150, supplyCalculator.getWaterSupply());
+        assertFalse(book.commit(first));
+        assertTrue(book.commit(second));
+        assertEquals(554, cashRegister.getMoney());
+        assertEquals(1, book.getExpired());
+    }
+
+    @Test
+    void idleBookExpiresEverythingAfterManyTurnsOfTheWheel() {
+        supplyCalculator.fillSupplies(1_000, 0, 100, 10);
+        for (int i = 0; i < 5; i++) {
+            book.reserve(espresso);
+            now += TTL / 5;
+        }
+
+        // the wheel spans four time to lives, so this is several turns later
+        now += 50 * TTL;
+
+        assertEquals(5, book.expireDue());
+        assertEquals(0, book.getOpen());
+        assertEquals(1_400, supplyCalculator.getWaterSupply());
+    }
+
+    @Test
+    void refusesShortageWithTheResourceThatRanOut() {
+        Reservation first = book.reserve(latte);
+        Reservation second = book.reserve(latte);
+
+        assertEquals(HoldResult.HELD, first.getHoldResult());
+        assertEquals(Reservation.State.REFUSED, second.getState());
+        assertEquals(HoldResult.NOT_ENOUGH_WATER, second.getHoldResult());
+        assertEquals(Resource.WATER, second.getHoldResult().getShortage());
+        assertFalse(book.commit(second));
+        assertFalse(book.release(second));
+        assertEquals(1, book.getOpen());
+    }
+
+    @Test
+    void refusesWhileTheMachineNeedsCleaningAndNeverPassesTheBrewLimit() {
+        supplyCalculator.fillSupplies(10_000, 10_000, 10_000, 100);
+        List<Reservation> held = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Reservation reservation = book.reserve(espresso);
+            if (reservation.getState() == Reservation.State.OPEN) {
+                held.add(reservation);
+            } else {
+                assertEquals(HoldResult.NEEDS_CLEANING, reservation.getHoldResult());
+            }
+        }
+
+        assertEquals(10, held.size());
+        assertTrue(supplyCalculator.isReadyToClean());
+        for (Reservation reservation : held) {
+            assertTrue(book.commit(reservation));
+        }
+        assertEquals(10, supplyCalculator.getMaintenance().getBrewsSinceCleaning());
+
+        supplyCalculator.clean();
+        assertEquals(Reservation.State.OPEN, book.reserve(espresso).getState());
+    }
+
+    @Test
+    void randomOperationsConserveSuppliesAndMoney() {
+        supplyCalculator.fillSupplies(20_000, 20_000, 5_000, 300);
+        SplittableRandom random = new SplittableRandom(11);
+        List<Reservation> open = new ArrayList<>();
+        long charged = 0;
+        long water = 400 + 20_000;
+        long cups = 9 + 300;
+        for (int step = 0; step < 50_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 4) {
+                Reservation reservation = book.reserve(registry.get(random.nextInt(registry.size())));
+                if (reservation.getState() == Reservation.State.OPEN) {
+                    open.add(reservation);
+                } else if (reservation.getHoldResult() == HoldResult.NEEDS_CLEANING) {
+                    supplyCalculator.clean();
+                }
+            } else if (action < 6 && !open.isEmpty()) {
+                Reservation reservation = open.remove(random.nextInt(open.size()));
+                if (book.commit(reservation)) {
+                    charged += reservation.getCoffee().getPrice();
+                    water -= reservation.getCoffee().getWaterNeeded();
+                    cups -= reservation.getCoffee().getDisposableCupsNeeded();
+                }
+            } else if (action < 8 && !open.isEmpty()) {
+                book.release(open.remove(random.nextInt(open.size())));
+            } else if (action == 8) {
+                supplyCalculator.fillSupplies(350, 100, 20, 1);
+                water += 350;
+                cups++;
+            }
+            now += random.nextLong(TTL / 4);
+            open.removeIf(reservation -> reservation.getState() != Reservation.State.OPEN);
+            assertEquals(open.size(), book.getOpen());
+        }
+
+        assertEquals(550 + charged, cashRegister.getMoney());
+        assertTrue(book.getExpired() > 0, "no reservation expired");
+        assertTrue(book.getCommitted() > 0, "no reservation was committed");
+        // what is neither sold nor in stock must be held by the reservations still open
+        assertEquals(water, supplyCalculator.getWaterSupply() + supplyCalculator.getHeld(Resource.WATER));
+        assertEquals(cups, supplyCalculator.getDisposableCupsSupply()
+                + supplyCalculator.getHeld(Resource.DISPOSABLE_CUPS));
+        long heldWater = 0;
+        for (Reservation reservation : open) {
+            heldWater += reservation.getCoffee().getWaterNeeded();
+        }
+        assertEquals(heldWater, supplyCalculator.getHeld(Resource.WATER));
+    }
+}
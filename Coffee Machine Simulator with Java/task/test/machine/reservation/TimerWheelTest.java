@@ -0,0 +1,94 @@
+package machine.reservation;
+
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.supplycalculator.HoldResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final int SLOTS = 8;
+    private static final long TICK = 10;
+
+    private final Coffee espresso = RecipeRegistry.withDefaults().get(0);
+
+    @Test
+    void expiresOnFirstTickAtOrAfterDeadline() {
+        TimerWheel wheel = new TimerWheel(SLOTS, TICK, 0);
+        Reservation reservation = reservation(35);
+        wheel.schedule(reservation);
+
+        assertNull(wheel.advance(39));
+        assertSame(reservation, wheel.advance(40));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesSeveralTurnsAwayWaitOutTheirRounds() {
+        TimerWheel wheel = new TimerWheel(SLOTS, TICK, 0);
+        // same slot as tick 3, but two and five turns later
+        Reservation soon = reservation(3 * TICK);
+        Reservation twoTurns = reservation((3 + 2 * SLOTS) * TICK);
+        Reservation fiveTurns = reservation((3 + 5 * SLOTS) * TICK - 1);
+        wheel.schedule(soon);
+        wheel.schedule(twoTurns);
+        wheel.schedule(fiveTurns);
+
+        assertSame(soon, only(wheel.advance(3 * TICK)));
+        assertNull(wheel.advance((3 + 2 * SLOTS) * TICK - 1));
+        assertSame(twoTurns, only(wheel.advance((3 + 2 * SLOTS) * TICK)));
+        assertNull(wheel.advance((3 + 5 * SLOTS) * TICK - 1));
+        assertSame(fiveTurns, only(wheel.advance((3 + 5 * SLOTS) * TICK)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void randomDeadlinesExpireExactlyOnTheirTick() {
+        SplittableRandom random = new SplittableRandom(7);
+        TimerWheel wheel = new TimerWheel(SLOTS, TICK, 0);
+        List<Reservation> open = new ArrayList<>();
+        long now = 0;
+        for (int step = 0; step < 20_000; step++) {
+            if (random.nextInt(3) > 0) {
+                // up to ten turns ahead, so many deadlines need extra rounds
+                Reservation reservation = reservation(now + 1 + random.nextLong(10 * SLOTS * TICK));
+                wheel.schedule(reservation);
+                open.add(reservation);
+            } else if (!open.isEmpty() && random.nextInt(4) == 0) {
+                wheel.cancel(open.remove(random.nextInt(open.size())));
+            }
+            now += random.nextLong(3 * TICK);
+            long tick = Math.floorDiv(now, TICK);
+            for (Reservation due = wheel.advance(now); due != null; due = due.next) {
+                assertTrue(open.remove(due), "expired twice or after being cancelled");
+                assertTrue(deadlineTick(due) <= tick, "expired before its deadline");
+            }
+            for (Reservation reservation : open) {
+                assertTrue(deadlineTick(reservation) > tick, "overdue reservation was not expired");
+            }
+            assertEquals(open.size(), wheel.size());
+        }
+    }
+
+    private static long deadlineTick(Reservation reservation) {
+        return (reservation.getDeadline() + TICK - 1) / TICK;
+    }
+
+    private Reservation reservation(long deadline) {
+        return new Reservation(espresso, deadline, espresso.getPrice(), HoldResult.HELD);
+    }
+
+    private static Reservation only(Reservation due) {
+        assertNull(due.next);
+        return due;
+    }
+}
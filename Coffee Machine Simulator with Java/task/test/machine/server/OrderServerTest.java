@@ -0,0 +1,104 @@
+package machine.server;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.supplycalculator.SupplyCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderServerTest {
+
+    private static final InetSocketAddress ANY_PORT = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+        try (OrderServer server = new OrderServer(supplyCalculator, new CashRegister(550),
+                RecipeRegistry.withDefaults(), ANY_PORT);
+             Socket socket = connect(server)) {
+            BufferedReader responses = send(socket, "buy 2\nbuy cappuccino\nbuy 9\nfill 1 2 3 4\nremaining\nbogus\n");
+
+            assertEquals("OK 7", responses.readLine());
+            assertEquals("ERR not enough water", responses.readLine());
+            assertEquals("ERR unknown drink", responses.readLine());
+            assertEquals("OK", responses.readLine());
+            assertEquals("OK 51 467 103 12 557", responses.readLine());
+            assertEquals("ERR bad request", responses.readLine());
+        }
+    }
+
+    @Test
+    void answersFailingRequestWithInternalErrorAndKeepsServing() throws IOException {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+        supplyCalculator.addListener(new MachineListener() {
+            @Override
+            public void coffeeSold(Coffee coffee, int count, long amount) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        try (OrderServer server = new OrderServer(supplyCalculator, new CashRegister(550),
+                RecipeRegistry.withDefaults(), ANY_PORT);
+             Socket socket = connect(server)) {
+            BufferedReader responses = send(socket, "buy 1\nremaining\n");
+
+            assertEquals("ERR internal error", responses.readLine());
+            // the sale itself went through before the listener threw
+            assertEquals("OK 150 540 104 8 554", responses.readLine());
+        }
+    }
+
+    @Test
+    void reportsFailedEventLoop() throws IOException, InterruptedException {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(400, 540, 120, 9);
+        AssertionError error = new AssertionError("event loop failed");
+        supplyCalculator.addListener(new MachineListener() {
+            @Override
+            public void suppliesFilled(int water, int milk, int coffeeBeans, int disposableCups) {
+                throw error;
+            }
+        });
+        OrderServer server = new OrderServer(supplyCalculator, new CashRegister(550),
+                RecipeRegistry.withDefaults(), ANY_PORT);
+        PrintStream console = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try (Socket socket = connect(server)) {
+            BufferedReader responses = send(socket, "fill 1 1 1 1\n");
+
+            // the dead loop closes every connection instead of leaving the terminal waiting
+            assertNull(responses.readLine());
+        } finally {
+            System.setErr(console);
+        }
+
+        assertSame(error, assertThrows(IllegalStateException.class, server::getRequests).getCause());
+        assertSame(error, assertThrows(IllegalStateException.class, server::close).getCause());
+    }
+
+    private static Socket connect(OrderServer server) throws IOException {
+        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static BufferedReader send(Socket socket, String requests) throws IOException {
+        socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+}
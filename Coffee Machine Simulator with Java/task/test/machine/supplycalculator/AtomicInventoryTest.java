@@ -0,0 +1,133 @@
+package machine.supplycalculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AtomicInventoryTest {
+
+    private static final int SELLERS = 4;
+    private static final int FILLERS = 2;
+    private static final int FILLS_PER_FILLER = 1_000;
+
+    // espresso, latte and cappuccino
+    private static final int[][] RECIPES = {
+            {250, 0, 16, 1},
+            {350, 75, 20, 1},
+            {200, 100, 12, 1}
+    };
+
+    @Test
+    void concurrentSellsAndFillsNeverOversell() throws InterruptedException {
+        AtomicInventory inventory = new AtomicInventory(0, 0, 0, 0);
+        AtomicLong[] sold = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        AtomicBoolean fillsDone = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] fillers = new Thread[FILLERS];
+        for (int f = 0; f < FILLERS; f++) {
+            fillers[f] = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < FILLS_PER_FILLER; i++) {
+                    inventory.add(100, 50, 10, 1);
+                }
+            });
+        }
+        Thread[] sellers = new Thread[SELLERS];
+        for (int s = 0; s < SELLERS; s++) {
+            int first = s;
+            sellers[s] = new Thread(() -> {
+                await(start);
+                for (int i = first; ; i++) {
+                    boolean done = fillsDone.get();
+                    int recipe = i % RECIPES.length;
+                    int[] needs = RECIPES[recipe];
+                    if (inventory.tryTake(needs[0], needs[1], needs[2], needs[3])) {
+                        sold[recipe].incrementAndGet();
+                    } else if (done && fitsNone(inventory)) {
+                        return;
+                    }
+                }
+            });
+        }
+        for (Thread thread : fillers) {
+            thread.start();
+        }
+        for (Thread thread : sellers) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : fillers) {
+            thread.join();
+        }
+        fillsDone.set(true);
+        for (Thread thread : sellers) {
+            thread.join();
+        }
+
+        long[] used = new long[4];
+        for (int recipe = 0; recipe < RECIPES.length; recipe++) {
+            for (int resource = 0; resource < used.length; resource++) {
+                used[resource] += sold[recipe].get() * RECIPES[recipe][resource];
+            }
+        }
+        long fills = (long) FILLERS * FILLS_PER_FILLER;
+        assertEquals(fills * 100 - used[0], inventory.getWater(), "water");
+        assertEquals(fills * 50 - used[1], inventory.getMilk(), "milk");
+        assertEquals(fills * 10 - used[2], inventory.getCoffeeBeans(), "coffee beans");
+        assertEquals(fills - used[3], inventory.getDisposableCups(), "disposable cups");
+        assertTrue(used[3] > 0, "nothing was sold");
+    }
+
+    @Test
+    void addRejectsAmountsThatWouldOverflow() {
+        AtomicInventory inventory = new AtomicInventory(10, 20, 30, 40);
+
+        assertThrows(IllegalArgumentException.class, () -> inventory.add(Integer.MAX_VALUE, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> inventory.add(0, Integer.MAX_VALUE, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> inventory.add(0, 0, Integer.MAX_VALUE, 0));
+        assertThrows(IllegalArgumentException.class, () -> inventory.add(0, 0, 0, Integer.MAX_VALUE));
+        assertEquals(10, inventory.getWater());
+        assertEquals(20, inventory.getMilk());
+        assertEquals(30, inventory.getCoffeeBeans());
+        assertEquals(40, inventory.getDisposableCups());
+    }
+
+    @Test
+    void addFillsEveryFieldToItsCapacity() {
+        AtomicInventory inventory = new AtomicInventory(0, 0, 0, 0);
+
+        inventory.add(AtomicInventory.MAX_WATER, AtomicInventory.MAX_MILK,
+                AtomicInventory.MAX_COFFEE_BEANS, AtomicInventory.MAX_DISPOSABLE_CUPS);
+
+        assertEquals(AtomicInventory.MAX_WATER, inventory.getWater());
+        assertEquals(AtomicInventory.MAX_MILK, inventory.getMilk());
+        assertEquals(AtomicInventory.MAX_COFFEE_BEANS, inventory.getCoffeeBeans());
+        assertEquals(AtomicInventory.MAX_DISPOSABLE_CUPS, inventory.getDisposableCups());
+        assertThrows(IllegalArgumentException.class, () -> inventory.add(0, 0, 0, 1));
+    }
+
+    private static boolean fitsNone(AtomicInventory inventory) {
+        for (int[] needs : RECIPES) {
+            if (inventory.getWater() >= needs[0] && inventory.getMilk() >= needs[1]
+                    && inventory.getCoffeeBeans() >= needs[2] && inventory.getDisposableCups() >= needs[3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
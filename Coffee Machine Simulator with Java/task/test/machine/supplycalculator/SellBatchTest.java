@@ -0,0 +1,130 @@
+package machine.supplycalculator;
+
+import machine.cashregister.CashRegister;
+import machine.coffees.Coffee;
+import machine.coffees.RecipeRegistry;
+import machine.events.MachineListener;
+import machine.menu.CoffeeOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SellBatchTest {
+
+    private final RecipeRegistry registry = RecipeRegistry.withDefaults();
+    private final Coffee espresso = registry.get(CoffeeOptions.ESPRESSO);
+    private final Coffee latte = registry.get(CoffeeOptions.LATTE);
+
+    @Test
+    void everyLineIsPricedBeforeTheSaleEventsReprice() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(10_000, 10_000, 1_000, 100);
+        AtomicLong charges = new AtomicLong();
+        CashRegister cashRegister = new CashRegister(0) {
+            @Override
+            public void charge(long money) {
+                charges.incrementAndGet();
+                super.charge(money);
+            }
+        };
+        AtomicLong price = new AtomicLong(4);
+        AtomicLong reported = new AtomicLong();
+        supplyCalculator.setPriceList(coffee -> price.get());
+        supplyCalculator.addListener(new MachineListener() {
+            @Override
+            public void coffeeSold(Coffee coffee, int count, long amount) {
+                reported.addAndGet(amount);
+                price.incrementAndGet();
+            }
+        });
+
+        BatchResult result = supplyCalculator.sellBatch(
+                new BatchOrder().add(espresso, 3).add(latte, 2).add(espresso, 1), cashRegister,
+                FillPolicy.ALL_OR_NOTHING);
+
+        assertTrue(result.isComplete());
+        assertEquals(12, result.getCharged(0));
+        assertEquals(8, result.getCharged(1));
+        assertEquals(4, result.getCharged(2));
+        assertEquals(24, result.getCharged());
+        assertEquals(result.getCharged(), reported.get());
+        assertEquals(result.getCharged(), cashRegister.getMoney());
+        assertEquals(1, charges.get());
+    }
+
+    @Test
+    void partialBatchChargesOnlyTheLinesItSold() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(600, 0, 1_000, 100);
+        CashRegister cashRegister = new CashRegister(0);
+
+        BatchResult result = supplyCalculator.sellBatch(
+                new BatchOrder().add(espresso, 2).add(latte, 1), cashRegister, FillPolicy.PARTIAL);
+
+        assertEquals(2, result.getFilled(0));
+        assertEquals(0, result.getFilled(1));
+        assertEquals(2 * espresso.getPrice(), result.getCharged());
+        assertEquals(result.getCharged(), cashRegister.getMoney());
+    }
+
+    @Test
+    void allOrNothingBatchPastTheCleaningThresholdIsRefused() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(10_000, 10_000, 1_000, 100);
+        CashRegister cashRegister = new CashRegister(0);
+
+        BatchResult refused = supplyCalculator.sellBatch(new BatchOrder().add(espresso, 11), cashRegister,
+                FillPolicy.ALL_OR_NOTHING);
+
+        assertTrue(refused.isStoppedForCleaning());
+        assertEquals(0, refused.getTotalFilled());
+        assertEquals(0, cashRegister.getMoney());
+        assertEquals(10_000, supplyCalculator.getWaterSupply());
+        assertFalse(supplyCalculator.isReadyToClean());
+
+        BatchResult sold = supplyCalculator.sellBatch(new BatchOrder().add(espresso, 10), cashRegister,
+                FillPolicy.ALL_OR_NOTHING);
+
+        assertTrue(sold.isComplete());
+        assertFalse(sold.isStoppedForCleaning());
+        assertTrue(supplyCalculator.isReadyToClean());
+        assertTrue(supplyCalculator.sellBatch(new BatchOrder().add(espresso, 1), cashRegister,
+                FillPolicy.PARTIAL).isStoppedForCleaning());
+    }
+
+    @Test
+    void partialBatchStopsAtTheCleaningThreshold() {
+        SupplyCalculator supplyCalculator = new SupplyCalculator(10_000, 10_000, 1_000, 100);
+        CashRegister cashRegister = new CashRegister(0);
+        for (int i = 0; i < 7; i++) {
+            supplyCalculator.trySellCoffee(espresso, cashRegister);
+        }
+
+        BatchResult result = supplyCalculator.sellBatch(new BatchOrder().add(espresso, 2).add(latte, 5),
+                cashRegister, FillPolicy.PARTIAL);
+
+        assertTrue(result.isStoppedForCleaning());
+        assertEquals(2, result.getFilled(0));
+        assertEquals(1, result.getFilled(1));
+        assertEquals(10, supplyCalculator.getMaintenance().getBrewsSinceCleaning());
+        assertTrue(supplyCalculator.isReadyToClean());
+    }
+
+    @Test
+    void orderGrowsPastItsInitialLines() {
+        BatchOrder order = new BatchOrder();
+        for (int line = 0; line < 20; line++) {
+            order.add(line % 2 == 0 ? espresso : latte, line + 1);
+        }
+
+        assertEquals(20, order.size());
+        for (int line = 0; line < 20; line++) {
+            assertSame(line % 2 == 0 ? espresso : latte, order.getCoffee(line));
+            assertEquals(line + 1, order.getQuantity(line));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> order.getQuantity(20));
+    }
+}